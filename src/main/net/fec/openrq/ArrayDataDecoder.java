@@ -20,6 +20,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.fec.openrq.DataUtils.SourceBlockSupplier;
 import net.fec.openrq.decoder.DataDecoder;
@@ -63,6 +64,9 @@ public final class ArrayDataDecoder implements DataDecoder {
     private final FECParameters fecParams;
     private final ImmutableList<SourceBlockDecoder> srcBlockDecoders;
 
+    // the symbol arena of the last decoding of a source block, which is reused by the next one
+    private final AtomicReference<SymbolArena> spareArena;
+
 
     private ArrayDataDecoder(byte[] dataArray, FECParameters fecParams, final int symbOver) {
 
@@ -81,6 +85,24 @@ public final class ArrayDataDecoder implements DataDecoder {
                         sbn, symbOver);
                 }
             });
+
+        this.spareArena = new AtomicReference<>();
+    }
+
+    /**
+     * Returns an arena that is no longer used by any source block decoder, if there is one, or {@code null}.
+     */
+    SymbolArena takeSymbolArena() {
+
+        return spareArena.getAndSet(null);
+    }
+
+    /**
+     * Keeps an arena whose symbols are no longer used, to be reused by the next decoding of a source block.
+     */
+    void returnSymbolArena(SymbolArena arena) {
+
+        spareArena.set(arena);
     }
 
     @Override
@@ -16,12 +16,23 @@
 package net.fec.openrq;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.fec.openrq.DataUtils.SourceBlockSupplier;
 import net.fec.openrq.encoder.DataEncoder;
+import net.fec.openrq.encoder.EncodingPacketHandler;
 import net.fec.openrq.encoder.SourceBlockEncoder;
 import net.fec.openrq.parameters.FECParameters;
+import net.fec.openrq.parameters.ParameterChecker;
 import net.fec.openrq.util.checking.Indexables;
 import net.fec.openrq.util.collection.ImmutableList;
 
@@ -31,6 +42,10 @@ import net.fec.openrq.util.collection.ImmutableList;
  */
 public final class ArrayDataEncoder implements DataEncoder {
 
+    // ranges of packets of a source block are not split below this number of packets
+    private static final int MIN_PACKETS_PER_TASK = 64;
+
+
     /**
      * @param fecParams
      *            FEC parameters that configure the returned data encoder object
@@ -139,6 +154,59 @@ public final class ArrayDataEncoder implements DataEncoder {
         return srcBlockEncoders;
     }
 
+    @Override
+    public Future<DataEncoder> prepare() {
+
+        return prepare(SharedPool.get());
+    }
+
+    @Override
+    public Future<DataEncoder> prepare(Executor executor) {
+
+        Objects.requireNonNull(executor);
+
+        final List<Future<SourceBlockEncoder>> preparations = new ArrayList<>(srcBlockEncoders.size());
+        for (SourceBlockEncoder sbEnc : srcBlockEncoders) {
+            preparations.add(sbEnc.prepare(executor));
+        }
+        return new Preparation(preparations);
+    }
+
+    @Override
+    public void forEachPacket(int numRepairPackets, EncodingPacketHandler handler) {
+
+        forEachPacket(numRepairPackets, handler, SharedPool.get());
+    }
+
+    @Override
+    public void forEachPacket(int numRepairPackets, EncodingPacketHandler handler, ForkJoinPool pool) {
+
+        Objects.requireNonNull(handler);
+        Objects.requireNonNull(pool);
+        for (SourceBlockEncoder sbEnc : srcBlockEncoders) {
+            if (numRepairPackets < 0
+                || numRepairPackets > ParameterChecker.numRepairSymbolsPerBlock(sbEnc.numberOfSourceSymbols())) {
+                throw new IllegalArgumentException("invalid number of repair packets");
+            }
+        }
+
+        final List<BlockPacketsTask> tasks = new ArrayList<>(srcBlockEncoders.size());
+        for (SourceBlockEncoder sbEnc : srcBlockEncoders) {
+            tasks.add(new BlockPacketsTask((ArraySourceBlockEncoder)sbEnc, numRepairPackets, handler));
+        }
+        pool.invoke(new RecursiveAction() {
+
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void compute() {
+
+                invokeAll(tasks);
+            }
+        });
+    }
+
     /**
      * Returns an array of bytes containing the source data.
      * 
@@ -158,5 +226,132 @@ public final class ArrayDataEncoder implements DataEncoder {
 
         return offset;
     }
-}
 
+
+    // completed when every source block encoder is prepared
+    private final class Preparation implements Future<DataEncoder> {
+
+        private final List<Future<SourceBlockEncoder>> preparations;
+
+
+        Preparation(List<Future<SourceBlockEncoder>> preparations) {
+
+            this.preparations = preparations;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+
+            for (Future<SourceBlockEncoder> preparation : preparations) {
+                if (!preparation.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DataEncoder get() throws InterruptedException, ExecutionException {
+
+            for (Future<SourceBlockEncoder> preparation : preparations) {
+                preparation.get();
+            }
+            return ArrayDataEncoder.this;
+        }
+
+        @Override
+        public DataEncoder get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Future<SourceBlockEncoder> preparation : preparations) {
+                preparation.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            return ArrayDataEncoder.this;
+        }
+    }
+
+    // produces the source packets and the first repair packets of a source block
+    private static final class BlockPacketsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArraySourceBlockEncoder encoder;
+        private final int numRepairPackets;
+        private final EncodingPacketHandler handler;
+
+
+        BlockPacketsTask(ArraySourceBlockEncoder encoder, int numRepairPackets, EncodingPacketHandler handler) {
+
+            this.encoder = encoder;
+            this.numRepairPackets = numRepairPackets;
+            this.handler = handler;
+        }
+
+        @Override
+        protected void compute() {
+
+            final int K = encoder.numberOfSourceSymbols();
+            final PacketsTask sourcePackets = new PacketsTask(encoder, 0, K, handler);
+            if (numRepairPackets == 0) {
+                sourcePackets.compute();
+            }
+            else {
+                // the source packets are produced while the intermediate symbols are computed here, so that the
+                // tasks of the repair packets never wait for them
+                sourcePackets.fork();
+                encoder.prepareNow();
+                new PacketsTask(encoder, K, K + numRepairPackets, handler).compute();
+                sourcePackets.join();
+            }
+        }
+    }
+
+    // produces the packets with an ESI in [fromESI, toESI) of a source block
+    private static final class PacketsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SourceBlockEncoder encoder;
+        private final int fromESI;
+        private final int toESI;
+        private final EncodingPacketHandler handler;
+
+
+        PacketsTask(SourceBlockEncoder encoder, int fromESI, int toESI, EncodingPacketHandler handler) {
+
+            this.encoder = encoder;
+            this.fromESI = fromESI;
+            this.toESI = toESI;
+            this.handler = handler;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (toESI - fromESI <= MIN_PACKETS_PER_TASK) {
+                for (int esi = fromESI; esi < toESI; esi++) {
+                    handler.handlePacket(encoder.encodingPacket(esi));
+                }
+            }
+            else {
+                final int mid = (fromESI + toESI) >>> 1;
+                invokeAll(
+                    new PacketsTask(encoder, fromESI, mid, handler),
+                    new PacketsTask(encoder, mid, toESI, handler));
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ package net.fec.openrq;
 
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
@@ -36,6 +37,7 @@ import net.fec.openrq.parameters.ParameterChecker;
 import net.fec.openrq.util.collection.BitSetIterators;
 import net.fec.openrq.util.collection.ImmutableList;
 import net.fec.openrq.util.io.ByteBuffers.BufferType;
+import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
 import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
 import net.fec.openrq.util.rq.SystematicIndices;
 
@@ -77,6 +79,14 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
 
     private final SymbolsState symbolsState;
 
+    // null if online decoding is disabled or the source block is decoded (requires locked symbolsState)
+    private OnlineEliminator onlineEliminator;
+    private boolean onlineDecoding;
+
+    // non-null after a decoding failure, until the source block is decoded (requires locked symbolsState)
+    private ResumableSchedule resumableSchedule;
+    private SymbolArena resumableSymbols; // the vector D of the failed decoding, with the added rows
+
 
     private ArraySourceBlockDecoder(
         ArrayDataDecoder dataDecoder,
@@ -90,6 +100,12 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         this.sbn = sbn;
 
         this.symbolsState = new SymbolsState(sourceSymbols, symbOver);
+
+        this.onlineEliminator = null;
+        this.onlineDecoding = false;
+
+        this.resumableSchedule = null;
+        this.resumableSymbols = null;
     }
 
     private FECParameters fecParameters() {
@@ -246,11 +262,25 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
                 // 1. don't bother if no new symbols were added
                 // 2. the addition of a source symbol may have decoded the source block
                 // 3. enough (source/repair) symbols may have been received for a decode to start
-                if (putNewSymbol &&
-                    !symbolsState.isSourceBlockDecoded() &&
-                    symbolsState.haveEnoughSymbolsToDecode())
-                {
-                    decode();
+                if (putNewSymbol && !symbolsState.isSourceBlockDecoded()) {
+                    if (onlineEliminator != null) {
+                        if (onlineEliminator.isComplete()) {
+                            decodeOnline();
+                        }
+                    }
+                    else if (resumableSchedule != null) {
+                        // a previous decoding failed, and the new symbols were added to its system
+                        resumeDecoding();
+                    }
+                    else if (symbolsState.haveEnoughSymbolsToDecode()) {
+                        decode();
+                    }
+                }
+
+                // no need to keep reducing symbols after the source block is decoded
+                if (symbolsState.isSourceBlockDecoded()) {
+                    onlineEliminator = null;
+                    discardResumableDecoding();
                 }
             }
 
@@ -287,6 +317,64 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         }
     }
 
+    @Override
+    public boolean isOnlineDecoding() {
+
+        symbolsState.lock();
+        try {
+            return onlineDecoding;
+        }
+        finally {
+            symbolsState.unlock();
+        }
+    }
+
+    @Override
+    public void setOnlineDecoding(boolean online) {
+
+        symbolsState.lock();
+        try {
+            if (online != onlineDecoding) {
+                onlineDecoding = online;
+                if (online) {
+                    if (!symbolsState.isSourceBlockDecoded()) {
+                        // the online elimination takes over any failed decoding
+                        discardResumableDecoding();
+                        startOnlineDecoding();
+                    }
+                }
+                else {
+                    onlineEliminator = null;
+                }
+            }
+        }
+        finally {
+            symbolsState.unlock();
+        }
+    }
+
+    @Override
+    public int decodingRank() {
+
+        symbolsState.lock();
+        try {
+            if (symbolsState.isSourceBlockDecoded()) {
+                final int Kprime = SystematicIndices.ceil(K());
+                final int Ki = SystematicIndices.getKIndex(Kprime);
+                return Kprime + SystematicIndices.S(Ki) + SystematicIndices.H(Ki);
+            }
+            else if (onlineEliminator != null) {
+                return onlineEliminator.rank();
+            }
+            else {
+                return -1;
+            }
+        }
+        finally {
+            symbolsState.unlock();
+        }
+    }
+
     private void checkSourceSymbolESI(int esi) {
 
         if (esi < 0 || esi >= K()) {
@@ -342,34 +430,204 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
     private void decode() {
 
         // generate intermediate symbols -- watch out for decoding failure
-        final byte[][] intermediate_symbols = generateIntermediateSymbols();
+        final SymbolArena D = SymbolArena.reuse(
+            dataDecoder.takeSymbolArena(),
+            numDecodingRows(),
+            fecParameters().symbolSize());
+        final SymbolArena intermediate_symbols = generateIntermediateSymbols(D);
 
         if (intermediate_symbols == null) {
+            // D is kept for resuming the decoding
             symbolsState.setSourceBlockDecodingFailure();
         }
         else {
-            /*
-             * with the intermediate symbols calculated, one can recover
-             * every missing source symbol
-             */
+            recoverMissingSourceSymbols(intermediate_symbols);
+
+            // the intermediate symbols are no longer needed
+            dataDecoder.returnSymbolArena(D);
+        }
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void resumeDecoding() {
+
+        if (resumableSchedule.isComplete()) {
+            final SymbolArena intermediate_symbols = resumableSchedule.schedule().apply(resumableSymbols);
+            recoverMissingSourceSymbols(intermediate_symbols);
+
+            // the intermediate symbols are no longer needed
+            discardResumableDecoding();
+        }
+        else {
+            symbolsState.setSourceBlockDecodingFailure();
+        }
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void decodeOnline() {
+
+        final byte[][] intermediate_symbols = onlineEliminator.intermediateSymbols();
+        onlineEliminator = null;
+
+        recoverMissingSourceSymbols(intermediate_symbols);
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void recoverMissingSourceSymbols(SymbolArena intermediate_symbols) {
+
+        /*
+         * with the intermediate symbols calculated, one can recover
+         * every missing source symbol
+         */
+
+        final int Kprime = SystematicIndices.ceil(K());
+
+        // the ISI of a source symbol is the same as its ESI
+        final Set<Integer> missing = missingSourceSymbols();
+        final int[] isis = new int[missing.size()];
+        int n = 0;
+        for (int esi : missing) {
+            isis[n++] = esi;
+        }
+
+        // recover missing source symbols, all encoded together
+        final ByteBuffer sourceSymbols = ByteBuffer.allocate(isis.length * fecParameters().symbolSize());
+        LinearSystem.enc(Kprime, intermediate_symbols, isis, sourceSymbols.array(), 0);
+
+        // write to data buffer (each symbol advances the position of the buffer)
+        for (int esi : isis) {
+            putSourceData(esi, sourceSymbols, SourceSymbolDataType.CODE);
+        }
+    }
 
-            final int Kprime = SystematicIndices.ceil(K());
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void recoverMissingSourceSymbols(byte[][] intermediate_symbols) {
 
-            // recover missing source symbols
-            for (int esi : missingSourceSymbols()) {
-                byte[] sourceSymbol = LinearSystem.enc(
-                    Kprime, intermediate_symbols, new Tuple(Kprime, esi), fecParameters().symbolSize());
+        /*
+         * with the intermediate symbols calculated, one can recover
+         * every missing source symbol
+         */
+
+        final int Kprime = SystematicIndices.ceil(K());
 
-                // write to data buffer
-                putSourceData(esi, ByteBuffer.wrap(sourceSymbol), SourceSymbolDataType.CODE);
+        // recover missing source symbols
+        for (int esi : missingSourceSymbols()) {
+            byte[] sourceSymbol = LinearSystem.enc(Kprime, intermediate_symbols, esi, fecParameters().symbolSize());
+
+            // write to data buffer
+            putSourceData(esi, ByteBuffer.wrap(sourceSymbol), SourceSymbolDataType.CODE);
+        }
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void startOnlineDecoding() {
+
+        // constraint matrix parameters
+        final int Kprime = SystematicIndices.ceil(K());
+        final int Ki = SystematicIndices.getKIndex(Kprime);
+        final int S = SystematicIndices.S(Ki);
+        final int H = SystematicIndices.H(Ki);
+        final int L = Kprime + S + H;
+        final int T = fecParameters().symbolSize();
+
+        onlineEliminator = new OnlineEliminator(L, SystematicIndices.W(Ki));
+
+        // the LDPC and HDPC rows, and the rows of the padding symbols, have all-zero symbols
+        final ByteMatrix A = LinearSystem.generateConstraintMatrix(Kprime);
+        for (int row = 0; row < L; row++) {
+            if (row < S + H || row >= S + H + K()) {
+                final int numNonZeros = A.nonZerosInRow(row);
+                final int[] cols = new int[numNonZeros];
+                final byte[] coefs = new byte[numNonZeros];
+                final ByteVectorIterator it = A.readOnlyNonZeroRowIterator(row);
+                for (int n = 0; it.hasNext(); n++) {
+                    it.next();
+                    cols[n] = it.index();
+                    coefs[n] = it.get();
+                }
+
+                onlineEliminator.addRow(cols, coefs, new byte[T]);
             }
         }
+
+        for (int esi : symbolsState.receivedSourceSymbols()) {
+            addOnlineSourceRow(esi);
+        }
+        for (Entry<Integer, RepairSymbol> entry : symbolsState.repairSymbols()) {
+            addOnlineRepairRow(entry.getKey(), entry.getValue());
+        }
+
+        if (onlineEliminator.isComplete()) {
+            decodeOnline();
+        }
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void addOnlineSourceRow(int esi) {
+
+        final byte[] symbol = new byte[fecParameters().symbolSize()];
+        symbolsState.getSourceSymbol(esi).getCodeData(ByteBuffer.wrap(symbol));
+
+        // the ISI of a source symbol is the same as its ESI
+        addOnlineRow(esi, symbol);
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void addOnlineRepairRow(int esi, RepairSymbol repairSymbol) {
+
+        final int Kprime = SystematicIndices.ceil(K());
+        final int isi = SystematicIndices.getISI(esi, K(), Kprime);
+
+        addOnlineRow(isi, repairSymbol.copyOfData(BufferType.ARRAY_BACKED).array());
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void addOnlineRow(int isi, byte[] symbol) {
+
+        final int Kprime = SystematicIndices.ceil(K());
+
+        // the encoding rows are binary
+        final int[] cols = EncodingIndexes.get(Kprime, isi);
+        final byte[] coefs = new byte[cols.length];
+        Arrays.fill(coefs, (byte)1);
+
+        onlineEliminator.addRow(cols, coefs, symbol);
     }
 
     /*
      * ===== Requires locked symbolsState! =====
      */
-    private final byte[][] generateIntermediateSymbols() {
+    private int numDecodingRows() {
+
+        final int Kprime = SystematicIndices.ceil(K());
+        final int Ki = SystematicIndices.getKIndex(Kprime);
+        final int L = Kprime + SystematicIndices.S(Ki) + SystematicIndices.H(Ki);
+
+        // the extra repair symbols are also used for the decoding process
+        return L + symbolsState.numRepairSymbols() - symbolsState.numMissingSourceSymbols();
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    // D must have zeroed numDecodingRows() symbols
+    private final SymbolArena generateIntermediateSymbols(SymbolArena D) {
 
         // constraint matrix parameters
         final int Kprime = SystematicIndices.ceil(K());
@@ -377,7 +635,6 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         int S = SystematicIndices.S(Ki);
         int H = SystematicIndices.H(Ki);
         int L = Kprime + S + H;
-        int T = fecParameters().symbolSize();
 
         // number of extra repair symbols to be used for the decoding process
         int overhead = symbolsState.numRepairSymbols() - symbolsState.numMissingSourceSymbols();
@@ -388,12 +645,9 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         // generate the original constraint matrix and allocate memory for overhead rows
         ByteMatrix A = LinearSystem.generateConstraintMatrix(Kprime, overhead);
 
-        // initialize D
-        byte[][] D = new byte[M][T];
-
         // populate D with the received source symbols
         for (int esi : symbolsState.receivedSourceSymbols()) {
-            symbolsState.getSourceSymbol(esi).getCodeData(ByteBuffer.wrap(D[S + H + esi]));
+            symbolsState.getSourceSymbol(esi).getCodeData(D.rowBuffer(S + H + esi));
         }
 
         /*
@@ -415,15 +669,15 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
             final int row = S + H + missingSrcESI;
 
             // replace line S + H + missingSrcESI with the line for encIndexes
-            Set<Integer> indexes = LinearSystem.encIndexes(Kprime, new Tuple(Kprime, repairISI));
+            final int[] indexes = EncodingIndexes.get(Kprime, repairISI);
 
             A.clearRow(row); // must clear previous data first!
-            for (Integer col : indexes) {
+            for (int col : indexes) {
                 A.set(row, col, (byte)1);
             }
 
             // fill in missing source symbols in D with the repair symbols
-            D[row] = repairSymbol.copyOfData(BufferType.ARRAY_BACKED).array();
+            D.put(row, repairSymbol.readOnlyData());
         }
 
         // insert the values for overhead (repair) symbols
@@ -435,15 +689,15 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
             final RepairSymbol repairSymbol = next.getValue();
 
             // generate the overhead lines
-            Set<Integer> indexes = LinearSystem.encIndexes(Kprime, new Tuple(Kprime, repairISI));
+            final int[] indexes = EncodingIndexes.get(Kprime, repairISI);
 
             A.clearRow(row); // must clear previous data first!
-            for (Integer col : indexes) {
+            for (int col : indexes) {
                 A.set(row, col, (byte)1);
             }
 
             // update D with the data for that symbol
-            D[row] = repairSymbol.copyOfData(BufferType.ARRAY_BACKED).array();
+            D.put(row, repairSymbol.readOnlyData());
         }
 
         /*
@@ -451,14 +705,65 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
          * we have the system of linear equations ready to be solved
          */
 
-        try {
-            return LinearSystem.PInactivationDecoding(A, D, Kprime);
-            // return MatrixUtilities.gaussElimination(constraint_matrix, D);
+        // return MatrixUtilities.gaussElimination(constraint_matrix, D);
+        final ResumableSchedule schedule = LinearSystem.resumablePInactivationSchedule(A, Kprime);
+        if (schedule.isComplete()) {
+            return schedule.schedule().apply(D);
         }
-        catch (SingularMatrixException e) {
+        else {
+            // decoding failure, keep the partially eliminated system so that new symbols can be added to it
+            resumableSchedule = schedule;
+            resumableSymbols = D;
+            return null;
+        }
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void addResumableSourceRow(int esi) {
+
+        // the ISI of a source symbol is the same as its ESI
+        final int row = addResumableRow(esi);
+        symbolsState.getSourceSymbol(esi).getCodeData(resumableSymbols.rowBuffer(row));
+    }
 
-            return null; // decoding failure
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void addResumableRepairRow(int esi) {
+
+        final int isi = SystematicIndices.getISI(esi, K(), SystematicIndices.ceil(K()));
+        final int row = addResumableRow(isi);
+        resumableSymbols.put(row, symbolsState.getRepairSymbol(esi).readOnlyData());
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    // returns the row of D where the symbol of the added row must be put
+    private int addResumableRow(int isi) {
+
+        final int Kprime = SystematicIndices.ceil(K());
+
+        // the symbols are appended in the same order as the rows
+        final int row = resumableSchedule.numRows();
+        resumableSymbols = resumableSymbols.append(1);
+        resumableSchedule.addRow(EncodingIndexes.get(Kprime, isi));
+
+        return row;
+    }
+
+    /*
+     * ===== Requires locked symbolsState! =====
+     */
+    private void discardResumableDecoding() {
+
+        if (resumableSymbols != null) {
+            dataDecoder.returnSymbolArena(resumableSymbols);
         }
+        resumableSchedule = null;
+        resumableSymbols = null;
     }
 
     /*
@@ -474,6 +779,14 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         }
         else {
             symbolsState.addSourceSymbol(esi, symbolData, dataType);
+            if (!symbolsState.isSourceBlockDecoded()) {
+                if (onlineEliminator != null) {
+                    addOnlineSourceRow(esi);
+                }
+                else if (resumableSchedule != null && !resumableSchedule.isComplete()) {
+                    addResumableSourceRow(esi);
+                }
+            }
             return true;
         }
     }
@@ -492,6 +805,12 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
         else {
             // add this repair symbol to the set of received repair symbols
             symbolsState.addRepairSymbol(esi, symbolData);
+            if (onlineEliminator != null) {
+                addOnlineRepairRow(esi, symbolsState.getRepairSymbol(esi));
+            }
+            else if (resumableSchedule != null && !resumableSchedule.isComplete()) {
+                addResumableRepairRow(esi);
+            }
             return true;
         }
     }
@@ -646,6 +965,12 @@ final class ArraySourceBlockDecoder implements SourceBlockDecoder {
             sbState = SourceBlockState.INCOMPLETE;
         }
 
+        // requires valid parameter
+        RepairSymbol getRepairSymbol(int esi) {
+
+            return repairSymbols.get(esi);
+        }
+
         Iterable<Entry<Integer, RepairSymbol>> repairSymbols() {
 
             return repairSymbols.entrySet();
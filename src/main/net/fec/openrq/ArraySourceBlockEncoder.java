@@ -16,16 +16,29 @@
 package net.fec.openrq;
 
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.fec.openrq.encoder.SourceBlockEncoder;
 import net.fec.openrq.parameters.FECParameters;
 import net.fec.openrq.parameters.ParameterChecker;
+import net.fec.openrq.parameters.ParameterIO;
 import net.fec.openrq.util.collection.ImmutableList;
+import net.fec.openrq.util.datatype.SizeOf;
+import net.fec.openrq.util.io.ByteBuffers;
+import net.fec.openrq.util.io.ByteBuffers.BufferType;
 import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
-import net.fec.openrq.util.rq.IntermediateSymbolsDecoder;
 import net.fec.openrq.util.rq.SystematicIndices;
 
 
@@ -56,7 +69,10 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
 
     private final ArrayDataEncoder dataEncoder;
     private final ImmutableList<SourceSymbol> sourceSymbols;
-    private byte[][] intermediateSymbols = null;
+
+    // computed only once, by the first thread that needs it (or by an executor, if prepared), while other threads wait
+    // for the result; a computation that fails is replaced, so that it is repeated by the next thread that needs it
+    private final AtomicReference<FutureTask<SymbolArena>> intermediateSymbols;
 
     private final int sbn;
     private final int Kprime;
@@ -70,6 +86,50 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
 
         this.sbn = sbn;
         this.Kprime = SystematicIndices.ceil(K());
+
+        this.intermediateSymbols = new AtomicReference<>(newIntermediateSymbolsTask());
+    }
+
+    private FutureTask<SymbolArena> newIntermediateSymbolsTask() {
+
+        return new FutureTask<>(new Callable<SymbolArena>() {
+
+            @Override
+            public SymbolArena call() {
+
+                return generateIntermediateSymbols();
+            }
+        });
+    }
+
+    // returns the current computation of the intermediate symbols, after replacing it if it failed
+    private FutureTask<SymbolArena> intermediateSymbolsTask() {
+
+        while (true) {
+            final FutureTask<SymbolArena> task = intermediateSymbols.get();
+            if (!hasFailed(task)) {
+                return task;
+            }
+            intermediateSymbols.compareAndSet(task, newIntermediateSymbolsTask());
+        }
+    }
+
+    private static boolean hasFailed(FutureTask<?> task) {
+
+        if (!task.isDone()) {
+            return false;
+        }
+
+        try {
+            task.get(); // does not block, since the task is done
+            return false;
+        }
+        catch (ExecutionException e) {
+            return true;
+        }
+        catch (InterruptedException e) {
+            throw new AssertionError("the task is done");
+        }
     }
 
     private FECParameters fecParameters() {
@@ -83,19 +143,35 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
     }
 
     // use only this method for access to the intermediate symbols
-    private byte[][] getIntermediateSymbols() {
-
-        // Note: if multiple threads call this method concurrently, then
-        // no harm is done, only the fact that some threads may perform
-        // useless work
-
-        byte[][] is = intermediateSymbols;
-        if (is == null) {
-            is = generateIntermediateSymbols();
-            intermediateSymbols = is;
+    private SymbolArena getIntermediateSymbols() {
+
+        // does nothing if the computation was already started by another thread, or by an executor
+        final FutureTask<SymbolArena> task = intermediateSymbolsTask();
+        task.run();
+
+        // the computation cannot be abandoned, so the result is awaited even if this thread is interrupted
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw new AssertionError(cause); // the computation throws no checked exceptions
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
-
-        return is;
     }
 
     @Override
@@ -176,16 +252,103 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
         checkRepairSymbolESI(esi);
         checkNumRepairSymbols(esi, numSymbols);
 
-        // retrieve repair symbols data
-        final ByteBuffer symbols = ByteBuffer.allocate(numSymbols
-                                                       * fecParameters().symbolSize());
-        for (int i = 0; i < numSymbols; i++) {
-            symbols.put(getRepairSymbol(esi + i).readOnlyData());
-        }
-        symbols.flip();
+        // encode the repair symbols together, directly into the packet data
+        final byte[] symbols = new byte[numSymbols * fecParameters().symbolSize()];
+        LinearSystem.enc(Kprime, getIntermediateSymbols(), repairISIs(esi, numSymbols), symbols, 0);
 
         return EncodingPacket.newRepairPacket(sbn, esi,
-            symbols.asReadOnlyBuffer(), numSymbols);
+            ByteBuffer.wrap(symbols).asReadOnlyBuffer(), numSymbols);
+    }
+
+    @Override
+    public void writeRepairSymbols(int esi, int numSymbols, ByteBuffer dst) {
+
+        checkRepairSymbolESI(esi);
+        checkNumRepairSymbols(esi, numSymbols);
+
+        writeRepairSymbolsData(repairISIs(esi, numSymbols), dst);
+    }
+
+    @Override
+    public void writeRepairSymbols(int[] esis, ByteBuffer dst) {
+
+        final int[] isis = new int[esis.length];
+        for (int i = 0; i < esis.length; i++) {
+            checkRepairSymbolESI(esis[i]);
+            isis[i] = SystematicIndices.getISI(esis[i], K(), Kprime);
+        }
+
+        writeRepairSymbolsData(isis, dst);
+    }
+
+    @Override
+    public int writePacket(int esi, int numSymbols, ByteBuffer dst) {
+
+        final int size = packetSize(esi, numSymbols);
+        if (dst.isReadOnly()) throw new ReadOnlyBufferException();
+        if (dst.remaining() < size) throw new BufferOverflowException();
+
+        if (dst.hasArray()) {
+            writePacketData(esi, numSymbols, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + size);
+        }
+        else {
+            dst.putInt(ParameterIO.buildFECpayloadID(sbn, esi));
+            dst.putInt(size - SizeOf.INT - SizeOf.INT);
+
+            if (esi < K()) { // source symbols
+                for (int n = 0, ii = esi; n < numSymbols; n++, ii++) {
+                    getSourceSymbol(ii).getTransportData(dst);
+                }
+            }
+            else { // repair symbols, each encoded in a cached array before being copied
+                final int T = fecParameters().symbolSize();
+                final byte[] symbol = ByteBuffers.getCached(T, BufferType.ARRAY_BACKED).array();
+                for (int n = 0, ii = esi; n < numSymbols; n++, ii++) {
+                    LinearSystem.enc(Kprime, getIntermediateSymbols(), SystematicIndices.getISI(ii, K(), Kprime),
+                        symbol, 0);
+                    dst.put(symbol, 0, T);
+                }
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public int writePacket(int esi, int numSymbols, byte[] array, int offset) {
+
+        final int size = packetSize(esi, numSymbols);
+        if (offset < 0 || array.length - offset < size) throw new IndexOutOfBoundsException();
+
+        writePacketData(esi, numSymbols, array, offset);
+        return size;
+    }
+
+    @Override
+    public Future<SourceBlockEncoder> prepare() {
+
+        return prepare(SharedPool.get());
+    }
+
+    @Override
+    public Future<SourceBlockEncoder> prepare(Executor executor) {
+
+        Objects.requireNonNull(executor);
+        final FutureTask<SymbolArena> task = intermediateSymbolsTask();
+        if (!task.isDone()) {
+            executor.execute(task); // does nothing if the computation was already started
+        }
+        return new Preparation(task);
+    }
+
+    /**
+     * Prepares this encoder in the current thread, unless it is already prepared or being prepared by another thread,
+     * and waits until it is prepared.
+     */
+    void prepareNow() {
+
+        getIntermediateSymbols();
     }
 
     @Override
@@ -269,15 +432,106 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
         final int isi = SystematicIndices.getISI(esi, K(), Kprime);
 
         // generate the repair symbol data
-        final int T = fecParameters().symbolSize();
-        byte[] enc_data = LinearSystem.enc(Kprime, getIntermediateSymbols(),
-            new Tuple(Kprime, isi), T);
+        byte[] enc_data = LinearSystem.enc(Kprime, getIntermediateSymbols(), isi);
 
         // TODO should we store the repair symbols generated?
         return RepairSymbol.wrapData(ByteBuffer.wrap(enc_data));
     }
 
-    private byte[][] initVectorD() {
+    // requires valid ESIs
+    private int[] repairISIs(int esi, int numSymbols) {
+
+        final int[] isis = new int[numSymbols];
+        for (int i = 0; i < numSymbols; i++) {
+            isis[i] = SystematicIndices.getISI(esi + i, K(), Kprime);
+        }
+        return isis;
+    }
+
+    // requires valid ISIs
+    private void writeRepairSymbolsData(int[] isis, ByteBuffer dst) {
+
+        final int size = isis.length * fecParameters().symbolSize();
+        if (dst.isReadOnly()) throw new ReadOnlyBufferException();
+        if (dst.remaining() < size) throw new BufferOverflowException();
+
+        if (dst.hasArray()) { // encode directly into the buffer
+            LinearSystem.enc(Kprime, getIntermediateSymbols(), isis, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + size);
+        }
+        else { // each symbol is encoded in a cached array before being copied
+            final int T = fecParameters().symbolSize();
+            final byte[] symbol = ByteBuffers.getCached(T, BufferType.ARRAY_BACKED).array();
+            for (int isi : isis) {
+                LinearSystem.enc(Kprime, getIntermediateSymbols(), isi, symbol, 0);
+                dst.put(symbol, 0, T);
+            }
+        }
+    }
+
+    // validates the ESI and the number of symbols, and returns the size of the packet contents
+    private int packetSize(int esi, int numSymbols) {
+
+        checkGenericEncodingSymbolESI(esi);
+
+        final int symbolsLength;
+        if (esi < K()) { // source symbols
+            checkNumSourceSymbols(esi, numSymbols);
+
+            // the total size may be less than numSymbols * T
+            int totalSize = 0;
+            for (int n = 0, ii = esi; n < numSymbols; n++, ii++) {
+                totalSize += getSourceSymbol(ii).transportSize();
+            }
+            symbolsLength = totalSize;
+        }
+        else { // repair symbols
+            checkRepairSymbolESI(esi);
+            checkNumRepairSymbols(esi, numSymbols);
+            symbolsLength = numSymbols * fecParameters().symbolSize();
+        }
+
+        return SizeOf.INT + SizeOf.INT + symbolsLength;
+    }
+
+    // requires a valid ESI and number of symbols, and enough space in the array
+    private void writePacketData(int esi, int numSymbols, byte[] array, int offset) {
+
+        int pos = offset;
+        pos = putInt(ParameterIO.buildFECpayloadID(sbn, esi), array, pos);
+        final int symbolsLengthPos = pos;
+        pos += SizeOf.INT;
+
+        if (esi < K()) { // source symbols
+            for (int n = 0, ii = esi; n < numSymbols; n++, ii++) {
+                final SourceSymbol symbol = getSourceSymbol(ii);
+                symbol.getTransportData(array, pos);
+                pos += symbol.transportSize();
+            }
+        }
+        else { // repair symbols, encoded directly into the array
+            final int T = fecParameters().symbolSize();
+            for (int n = 0, ii = esi; n < numSymbols; n++, ii++) {
+                LinearSystem.enc(Kprime, getIntermediateSymbols(), SystematicIndices.getISI(ii, K(), Kprime),
+                    array, pos);
+                pos += T;
+            }
+        }
+
+        putInt(pos - symbolsLengthPos - SizeOf.INT, array, symbolsLengthPos);
+    }
+
+    // writes a big-endian int, like ByteBuffer.putInt, and returns the index after it
+    private static int putInt(int value, byte[] array, int offset) {
+
+        array[offset] = (byte)(value >>> 24);
+        array[offset + 1] = (byte)(value >>> 16);
+        array[offset + 2] = (byte)(value >>> 8);
+        array[offset + 3] = (byte)value;
+        return offset + SizeOf.INT;
+    }
+
+    private SymbolArena initVectorD() {
 
         // source block's parameters
         int Ki = SystematicIndices.getKIndex(Kprime);
@@ -287,21 +541,21 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
         int T = fecParameters().symbolSize();
 
         // allocate and initialize vector D
-        byte[][] D = new byte[L][T];
+        final SymbolArena D = SymbolArena.allocate(L, T);
         for (int row = S + H, esi = 0; row < K() + S + H; row++, esi++) {
-            getSourceSymbol(esi).getCodeData(ByteBuffer.wrap(D[row]));
+            getSourceSymbol(esi).getCodeData(D.rowBuffer(row));
         }
 
         return D;
     }
 
-    private byte[][] generateIntermediateSymbols() {
+    private SymbolArena generateIntermediateSymbols() {
 
         // initialize the vector D with source data
-        final byte[][] D = initVectorD();
+        final SymbolArena D = initVectorD();
 
         // first try to obtain an optimized decoder that supports Kprime
-        final IntermediateSymbolsDecoder isd = ISDManager.get(Kprime);
+        final ISDManager.LoadedISD isd = ISDManager.get(Kprime);
         if (isd != null) {
             return isd.decode(D);
         }
@@ -326,6 +580,51 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
     }
 
 
+    // a view of the computation of the intermediate symbols, which cannot be cancelled
+    private final class Preparation implements Future<SourceBlockEncoder> {
+
+        private final FutureTask<SymbolArena> task;
+
+
+        Preparation(FutureTask<SymbolArena> task) {
+
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+
+            return task.isDone();
+        }
+
+        @Override
+        public SourceBlockEncoder get() throws InterruptedException, ExecutionException {
+
+            task.get();
+            return ArraySourceBlockEncoder.this;
+        }
+
+        @Override
+        public SourceBlockEncoder get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+
+            task.get(timeout, unit);
+            return ArraySourceBlockEncoder.this;
+        }
+    }
+
     private static final class IterBuilder implements IterableBuilder {
 
         private final SourceBlockEncoder encoder;
@@ -464,7 +763,7 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
 
     // ============================= TEST_CODE ============================= //
 
-    static byte[][] forceInitVectorD(ArraySourceBlockEncoder enc) {
+    static SymbolArena forceInitVectorD(ArraySourceBlockEncoder enc) {
 
         return enc.initVectorD();
     }
@@ -473,5 +772,19 @@ final class ArraySourceBlockEncoder implements SourceBlockEncoder {
 
         enc.generateIntermediateSymbols();
     }
+
+    static void forceInterSymbolsFailure(ArraySourceBlockEncoder enc, final RuntimeException cause) {
+
+        final FutureTask<SymbolArena> failed = new FutureTask<>(new Callable<SymbolArena>() {
+
+            @Override
+            public SymbolArena call() {
+
+                throw cause;
+            }
+        });
+        failed.run();
+        enc.intermediateSymbols.set(failed);
+    }
 }
 
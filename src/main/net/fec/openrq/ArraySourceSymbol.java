@@ -117,6 +117,18 @@ final class ArraySourceSymbol implements SourceSymbol {
         return transportBuf.asReadOnlyBuffer();
     }
 
+    @Override
+    public void getTransportData(ByteBuffer dst) {
+
+        dst.put(srcDataArray, symbolOff, transportSize());
+    }
+
+    @Override
+    public void getTransportData(byte[] dst, int off) {
+
+        System.arraycopy(srcDataArray, symbolOff, dst, off, transportSize());
+    }
+
     @Override
     public void putTransportData(ByteBuffer src) {
 
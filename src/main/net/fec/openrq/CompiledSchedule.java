@@ -0,0 +1,287 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import net.fec.openrq.util.math.OctetOps;
+
+
+/**
+ * A schedule of operations over the rows of the symbols vector D, as produced by {@link ScheduleCompiler} from a
+ * {@link SymbolSchedule}.
+ * <p>
+ * The operations are kept in groups, executed in order. A group is either a broadcast of a source row, which is
+ * multiplied by a value and added to each of its destination rows (sorted by increasing index), or a division of a
+ * single row by a value. A final symbol reordering may follow, as in a symbol schedule.
+ */
+final class CompiledSchedule implements ISDOperation, SymbolArena.ColumnOperation {
+
+    static final int NO_SOURCE = -1;
+
+    // indexed by group
+    private final int[] groupSrcRows;
+    private final int[] groupEnds; // exclusive end of the members of each group
+
+    // indexed by group member
+    private final int[] dstRows;
+    private final byte[] values;
+
+    // the final reordering, if any
+    private final int L;
+    private final int[] c;
+    private final int[] d;
+
+
+    // the arrays are not copied
+    CompiledSchedule(int[] groupSrcRows, int[] groupEnds, int[] dstRows, byte[] values, int L, int[] c, int[] d) {
+
+        this.groupSrcRows = groupSrcRows;
+        this.groupEnds = groupEnds;
+        this.dstRows = dstRows;
+        this.values = values;
+
+        this.L = L;
+        this.c = c;
+        this.d = d;
+    }
+
+    /**
+     * Returns the number of additions and divisions in this schedule.
+     */
+    int size() {
+
+        return dstRows.length;
+    }
+
+    /**
+     * Returns the number of groups of operations in this schedule.
+     */
+    int numGroups() {
+
+        return groupSrcRows.length;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of heap used by this schedule.
+     */
+    long footprint() {
+
+        return 8L * groupSrcRows.length + 5L * dstRows.length + 8L * L;
+    }
+
+    /**
+     * Executes this schedule over the rows of D, which are modified in place, and returns the reordered symbols (or D
+     * itself, if there is no reordering).
+     */
+    @Override
+    public byte[][] apply(byte[][] D) {
+
+        int member = 0;
+        for (int g = 0; g < groupSrcRows.length; g++) {
+            final int srcRow = groupSrcRows[g];
+            final int end = groupEnds[g];
+            if (srcRow == NO_SOURCE) {
+                for (; member < end; member++) {
+                    final byte[] dst = D[dstRows[member]];
+                    OctetOps.valueVectorDivision(values[member], dst, dst); // in place division
+                }
+            }
+            else {
+                final byte[] src = D[srcRow];
+                OctetOps.vectorBroadcastAddition(values, src, D, dstRows, member, end, src.length);
+                member = end;
+            }
+        }
+
+        if (c == null) {
+            return D;
+        }
+        else {
+            final byte[][] C = new byte[L][];
+            for (int i = 0; i < L; i++) {
+                C[c[i]] = D[d[i]];
+            }
+
+            return C;
+        }
+    }
+
+    /**
+     * Executes this schedule over the symbols of D, which are modified in place, and returns the reordered symbols (or
+     * D itself, if there is no reordering). The operations are executed one column tile of the symbols at a time, and
+     * possibly over parallel column slices (see {@link SymbolArena#applyByColumns(SymbolArena.ColumnOperation)}).
+     */
+    @Override
+    public SymbolArena apply(SymbolArena D) {
+
+        D.applyByColumns(this);
+        return (c == null) ? D : D.reorder(L, c, d);
+    }
+
+    // executes the additions and divisions over the octets of the symbols in [pos, pos + length)
+    @Override
+    public void applyToColumns(SymbolArena D, int pos, int length) {
+
+        final byte[] data = D.array();
+        final int[] offsets = D.offsets();
+
+        int member = 0;
+        for (int g = 0; g < groupSrcRows.length; g++) {
+            final int srcRow = groupSrcRows[g];
+            final int end = groupEnds[g];
+            if (srcRow == NO_SOURCE) {
+                for (; member < end; member++) {
+                    final int dstPos = offsets[dstRows[member]] + pos;
+                    OctetOps.valueVectorDivision(values[member], data, dstPos, data, dstPos, length); // in place
+                }
+            }
+            else {
+                OctetOps.vectorBroadcastAddition(values, data, offsets[srcRow], offsets, dstRows, member, end, pos,
+                    length);
+                member = end;
+            }
+        }
+    }
+
+    /**
+     * Writes this schedule as a sequence of operations that can be read with
+     * {@link ISDOps#readOperation(java.nio.channels.ReadableByteChannel)}.
+     */
+    @Override
+    public void serializeToChannel(WritableByteChannel ch) throws IOException {
+
+        int member = 0;
+        for (int g = 0; g < groupSrcRows.length; g++) {
+            for (; member < groupEnds[g]; member++) {
+                final ISDOperation op;
+                if (groupSrcRows[g] == NO_SOURCE) {
+                    op = ISDOps.newPhase5_1Operation(values[member], dstRows[member]);
+                }
+                else {
+                    op = ISDOps.newPhase1Operation(values[member], groupSrcRows[g], dstRows[member]);
+                }
+                op.serializeToChannel(ch);
+            }
+        }
+
+        if (c != null) {
+            ISDOps.newReorderOperation(L, c, d).serializeToChannel(ch);
+        }
+    }
+
+    /**
+     * Writes this schedule in a compact form, which can be read with {@link #readCompact(InputStream)}.
+     * <p>
+     * Every integer is written as an unsigned variable-length quantity (see
+     * {@link SymbolSchedule#writeCompact(OutputStream)}), in this order: L (zero if there is no reordering), the arrays
+     * c and d (L integers each), the number of groups and then each group, as its source row plus one (zero for a
+     * division), its number of members, the destination rows of the members (each one as the difference from the
+     * previous one, the first one as is) and the values of the members (a single byte each).
+     */
+    void writeCompact(OutputStream out) throws IOException {
+
+        SymbolSchedule.writeVarInt(out, L);
+        for (int i = 0; i < L; i++) {
+            SymbolSchedule.writeVarInt(out, c[i]);
+        }
+        for (int i = 0; i < L; i++) {
+            SymbolSchedule.writeVarInt(out, d[i]);
+        }
+
+        SymbolSchedule.writeVarInt(out, groupSrcRows.length);
+        int start = 0;
+        for (int g = 0; g < groupSrcRows.length; g++) {
+            final int end = groupEnds[g];
+            SymbolSchedule.writeVarInt(out, groupSrcRows[g] + 1); // NO_SOURCE is written as zero
+            SymbolSchedule.writeVarInt(out, end - start);
+
+            int prevRow = 0;
+            for (int member = start; member < end; member++) {
+                SymbolSchedule.writeVarInt(out, dstRows[member] - prevRow);
+                prevRow = dstRows[member];
+            }
+            out.write(values, start, end - start);
+
+            start = end;
+        }
+    }
+
+    /**
+     * Reads a schedule written by {@link #writeCompact(OutputStream)}.
+     */
+    static CompiledSchedule readCompact(InputStream in) throws IOException {
+
+        final int L = SymbolSchedule.readVarInt(in);
+        final int[] c = new int[L];
+        final int[] d = new int[L];
+        for (int i = 0; i < L; i++) {
+            c[i] = SymbolSchedule.readVarInt(in);
+        }
+        for (int i = 0; i < L; i++) {
+            d[i] = SymbolSchedule.readVarInt(in);
+        }
+
+        final int numGroups = SymbolSchedule.readVarInt(in);
+        final int[] groupSrcRows = new int[numGroups];
+        final int[] groupEnds = new int[numGroups];
+        int[] dstRows = new int[numGroups];
+        byte[] values = new byte[numGroups];
+
+        int size = 0;
+        for (int g = 0; g < numGroups; g++) {
+            groupSrcRows[g] = SymbolSchedule.readVarInt(in) - 1;
+            final int count = SymbolSchedule.readVarInt(in);
+
+            if (dstRows.length - size < count) {
+                final int newCapacity = Math.max(size + count, 2 * dstRows.length);
+                dstRows = Arrays.copyOf(dstRows, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+
+            int prevRow = 0;
+            for (int member = size; member < size + count; member++) {
+                prevRow += SymbolSchedule.readVarInt(in);
+                dstRows[member] = prevRow;
+            }
+            readFully(in, values, size, count);
+
+            size += count;
+            groupEnds[g] = size;
+        }
+
+        return new CompiledSchedule(
+            groupSrcRows, groupEnds,
+            Arrays.copyOf(dstRows, size), Arrays.copyOf(values, size),
+            L, (L == 0) ? null : c, (L == 0) ? null : d);
+    }
+
+    private static void readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+
+        int n = 0;
+        while (n < len) {
+            final int read = in.read(b, off + n, len - n);
+            if (read == -1) throw new EOFException();
+            n += read;
+        }
+    }
+}
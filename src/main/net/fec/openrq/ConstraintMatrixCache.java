@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.fec.openrq.util.linearalgebra.LinearAlgebra;
+import net.fec.openrq.util.linearalgebra.matrix.sparse.CRSByteMatrix;
+
+
+/**
+ * A thread-safe cache of the constraint matrices (without overhead rows) of the most recently used values of K'.
+ * <p>
+ * The cached matrices are never modified; decoders use copy-on-write copies of them (see
+ * {@link CRSByteMatrix#copyOnWrite(int)}), where only the rows that are replaced or eliminated are copied.
+ */
+final class ConstraintMatrixCache {
+
+    private static final int MAX_CACHED_MATRICES = 8;
+
+    // in access order, so that the least recently used matrix is evicted first
+    private static final Map<Integer, CRSByteMatrix> CACHE =
+        new LinkedHashMap<Integer, CRSByteMatrix>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CRSByteMatrix> eldest) {
+
+                return size() > MAX_CACHED_MATRICES;
+            }
+        };
+
+
+    /**
+     * Returns the constraint matrix for the given value of K'. <b><em>The returned matrix must not be
+     * modified.</em></b>
+     * 
+     * @param Kprime
+     *            The number of source (and padding) symbols in an extended source block
+     * @return the cached constraint matrix for the given value of K'
+     */
+    static CRSByteMatrix get(int Kprime) {
+
+        synchronized (CACHE) {
+            final CRSByteMatrix A = CACHE.get(Kprime);
+            if (A != null) {
+                return A;
+            }
+        }
+
+        // the matrix is generated outside the lock, so that other values of K' are not blocked meanwhile
+        final CRSByteMatrix A = (CRSByteMatrix)LinearSystem.newConstraintMatrix(Kprime, 0, LinearAlgebra.CRS_FACTORY);
+
+        synchronized (CACHE) {
+            // another thread may have cached the same matrix in the meantime
+            final CRSByteMatrix cached = CACHE.get(Kprime);
+            if (cached != null) {
+                return cached;
+            }
+
+            CACHE.put(Kprime, A);
+            return A;
+        }
+    }
+
+    private ConstraintMatrixCache() {
+
+        // not instantiable
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A bucket queue of rows, used in the first phase of the PI decoding for choosing a row with a minimum number of
+ * non-zeros in V (r) and, among those, a minimum original degree.
+ * <p>
+ * Each row is kept in a doubly linked list identified by the pair (r, original degree), and all lists are stored in
+ * primitive arrays indexed by row. Rows only ever move to buckets with a lower r, so the minimum non-empty bucket is
+ * found by advancing a cursor that is only moved back when a row is inserted below it.
+ */
+final class DegreeBucketQueue {
+
+    private static final int NONE = -1;
+
+    private final int maxR;
+    private final int maxDegree;
+
+    // heads of the linked lists, indexed by key (r * (maxDegree + 1) + degree)
+    private final int[] heads;
+    // number of queued rows with a given r
+    private final int[] bucketSizes;
+    // lower bound of the minimum queued degree, for a given r
+    private final int[] degreeCursors;
+
+    // indexed by row
+    private final int[] next;
+    private final int[] prev;
+    private final int[] keys;
+    private final int[] rs;
+    private final int[] degrees;
+
+    private int minR;
+    private int size;
+
+
+    /**
+     * @param numRows
+     *            The number of rows that can be queued (row indexes are in the range [0, numRows))
+     * @param maxR
+     *            The maximum number of non-zeros of a queued row
+     * @param maxDegree
+     *            The maximum original degree of a queued row
+     */
+    DegreeBucketQueue(int numRows, int maxR, int maxDegree) {
+
+        this.maxR = maxR;
+        this.maxDegree = maxDegree;
+
+        this.heads = new int[(maxR + 1) * (maxDegree + 1)];
+        Arrays.fill(heads, NONE);
+        this.bucketSizes = new int[maxR + 1];
+        this.degreeCursors = new int[maxR + 1];
+        Arrays.fill(degreeCursors, maxDegree + 1);
+
+        this.next = new int[numRows];
+        this.prev = new int[numRows];
+        this.keys = new int[numRows];
+        Arrays.fill(keys, NONE);
+        this.rs = new int[numRows];
+        this.degrees = new int[numRows];
+
+        this.minR = maxR + 1;
+        this.size = 0;
+    }
+
+    boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    boolean contains(int row) {
+
+        return keys[row] != NONE;
+    }
+
+    // requires contains(row)
+    int nonZeros(int row) {
+
+        return rs[row];
+    }
+
+    // requires contains(row)
+    int degree(int row) {
+
+        return degrees[row];
+    }
+
+    /**
+     * Returns the number of queued rows with {@code r} non-zeros.
+     */
+    int bucketSize(int r) {
+
+        return (r > maxR) ? 0 : bucketSizes[r];
+    }
+
+    // requires !contains(row) && 0 < r <= maxR && 0 <= degree <= maxDegree
+    void insert(int row, int r, int degree) {
+
+        degrees[row] = degree;
+        link(row, r);
+        size++;
+    }
+
+    // requires contains(row)
+    void remove(int row) {
+
+        unlink(row);
+        size--;
+    }
+
+    /**
+     * Updates the number of non-zeros of a queued row; the row is removed from the queue if the new number is zero.
+     */
+    // requires contains(row) && 0 <= r <= maxR
+    void update(int row, int r) {
+
+        if (r != rs[row]) {
+            unlink(row);
+            if (r == 0) {
+                size--;
+            }
+            else {
+                link(row, r);
+            }
+        }
+    }
+
+    /**
+     * Returns a queued row with the minimum number of non-zeros and, among those, the minimum original degree, or
+     * {@code -1} if the queue is empty.
+     */
+    int minRow() {
+
+        if (size == 0) {
+            return NONE;
+        }
+
+        while (bucketSizes[minR] == 0) {
+            minR++;
+        }
+
+        int deg = degreeCursors[minR];
+        final int base = minR * (maxDegree + 1);
+        while (heads[base + deg] == NONE) {
+            deg++;
+        }
+        degreeCursors[minR] = deg;
+
+        return heads[base + deg];
+    }
+
+    /**
+     * Returns the first queued row with {@code r} non-zeros (in no particular order), or {@code -1} if there is none.
+     */
+    int firstInBucket(int r) {
+
+        if (bucketSize(r) == 0) {
+            return NONE;
+        }
+
+        return firstFromKey(key(r, degreeCursors[r]), r);
+    }
+
+    /**
+     * Returns the queued row that follows the given one in its bucket, or {@code -1} if there is none.
+     */
+    // requires contains(row)
+    int nextInBucket(int row) {
+
+        if (next[row] != NONE) {
+            return next[row];
+        }
+
+        return firstFromKey(keys[row] + 1, rs[row]);
+    }
+
+    private int firstFromKey(int fromKey, int r) {
+
+        final int endKey = key(r + 1, 0);
+        for (int k = fromKey; k < endKey; k++) {
+            if (heads[k] != NONE) {
+                return heads[k];
+            }
+        }
+
+        return NONE;
+    }
+
+    private int key(int r, int degree) {
+
+        return r * (maxDegree + 1) + degree;
+    }
+
+    private void link(int row, int r) {
+
+        final int degree = degrees[row];
+        final int k = key(r, degree);
+        final int head = heads[k];
+
+        next[row] = head;
+        prev[row] = NONE;
+        if (head != NONE) {
+            prev[head] = row;
+        }
+        heads[k] = row;
+
+        keys[row] = k;
+        rs[row] = r;
+        bucketSizes[r]++;
+        if (degree < degreeCursors[r]) {
+            degreeCursors[r] = degree;
+        }
+        if (r < minR) {
+            minR = r;
+        }
+    }
+
+    private void unlink(int row) {
+
+        final int k = keys[row];
+        final int n = next[row];
+        final int p = prev[row];
+
+        if (p == NONE) {
+            heads[k] = n;
+        }
+        else {
+            next[p] = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        }
+
+        bucketSizes[rs[row]]--;
+        keys[row] = NONE;
+    }
+}
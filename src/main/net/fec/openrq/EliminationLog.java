@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A log of the row additions performed in the first phase of the PI decoding, which replaces the matrix X in the third
+ * phase.
+ * <p>
+ * After the first phase, the upper-left i-by-i submatrix of A is diagonal, with the pivots alpha. Its first i rows are
+ * the first i rows of the (permuted) original matrix after adding to each row multiples beta/alpha of the rows above
+ * it, so X (the upper-left i-by-i submatrix of the permuted original matrix) is lower triangular, with X[j, j] equal to
+ * alpha_j and X[k, j] equal to the value beta that was eliminated from row k with pivot j (or zero, if nothing was
+ * eliminated).
+ */
+final class EliminationLog {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // indexed by pivot
+    private final byte[] alphas;
+    private int numPivots;
+
+    // indexed by entry (the pivot, the original index of the row from which beta was eliminated, and beta)
+    private int[] pivots;
+    private int[] rows;
+    private byte[] betas;
+    private int size;
+
+    // the start of the entries of each row position, after grouping
+    private int[] positionOffsets;
+
+
+    /**
+     * @param maxPivots
+     *            The maximum number of pivots
+     */
+    EliminationLog(int maxPivots) {
+
+        this.alphas = new byte[maxPivots];
+        this.numPivots = 0;
+
+        this.pivots = new int[INITIAL_CAPACITY];
+        this.rows = new int[INITIAL_CAPACITY];
+        this.betas = new byte[INITIAL_CAPACITY];
+        this.size = 0;
+
+        this.positionOffsets = null;
+    }
+
+    /**
+     * Records a new pivot; the pivots are numbered in the order they are added, which must be the order of their
+     * positions in the matrix.
+     */
+    void addPivot(byte alpha) {
+
+        alphas[numPivots++] = alpha;
+    }
+
+    /**
+     * Records that the value beta was eliminated from a row using the last added pivot.
+     */
+    void addElimination(int row, byte beta) {
+
+        if (size == pivots.length) {
+            final int newCapacity = 2 * size;
+            pivots = Arrays.copyOf(pivots, newCapacity);
+            rows = Arrays.copyOf(rows, newCapacity);
+            betas = Arrays.copyOf(betas, newCapacity);
+        }
+
+        pivots[size] = numPivots - 1;
+        rows[size] = row;
+        betas[size] = beta;
+        size++;
+    }
+
+    /**
+     * Groups the entries by the final position of their rows, discarding the entries of rows that were not chosen as
+     * pivots (the rows that end up outside the first {@code numPivots} positions).
+     *
+     * @param rowPos
+     *            The final position of each row, indexed by original row index
+     */
+    void groupByRowPosition(int[] rowPos) {
+
+        final int[] offsets = new int[numPivots + 1];
+        for (int n = 0; n < size; n++) {
+            final int pos = rowPos[rows[n]];
+            if (pos < numPivots) {
+                offsets[pos + 1]++;
+            }
+        }
+        for (int pos = 0; pos < numPivots; pos++) {
+            offsets[pos + 1] += offsets[pos];
+        }
+
+        final int groupedSize = offsets[numPivots];
+        final int[] groupedPivots = new int[groupedSize];
+        final byte[] groupedBetas = new byte[groupedSize];
+        final int[] fill = Arrays.copyOf(offsets, numPivots);
+        for (int n = 0; n < size; n++) {
+            final int pos = rowPos[rows[n]];
+            if (pos < numPivots) {
+                groupedPivots[fill[pos]] = pivots[n];
+                groupedBetas[fill[pos]] = betas[n];
+                fill[pos]++;
+            }
+        }
+
+        pivots = groupedPivots;
+        betas = groupedBetas;
+        rows = null;
+        size = groupedSize;
+        positionOffsets = offsets;
+    }
+
+    byte alpha(int pivot) {
+
+        return alphas[pivot];
+    }
+
+    /**
+     * Returns the start (inclusive) of the entries of the row at a position, to be used with {@link #pivot(int)} and
+     * {@link #beta(int)}.
+     */
+    // requires groupByRowPosition to have been called
+    int positionStart(int pos) {
+
+        return positionOffsets[pos];
+    }
+
+    /**
+     * Returns the end (exclusive) of the entries of the row at a position, to be used with {@link #pivot(int)} and
+     * {@link #beta(int)}.
+     */
+    // requires groupByRowPosition to have been called
+    int positionEnd(int pos) {
+
+        return positionOffsets[pos + 1];
+    }
+
+    int pivot(int n) {
+
+        return pivots[n];
+    }
+
+    byte beta(int n) {
+
+        return betas[n];
+    }
+}
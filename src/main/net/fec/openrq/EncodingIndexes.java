@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A thread-safe cache of the indexes of the intermediate symbols that are XORed to encode each symbol (see
+ * {@link LinearSystem#encIndexes(int, Tuple)}), for the most recently used values of K'.
+ * <p>
+ * For each value of K', the indexes of the source symbols and of the first K' repair symbols (the ISIs in the range
+ * [0, 2K')) are cached as they are requested; the indexes of the remaining repair symbols are computed every time.
+ */
+final class EncodingIndexes {
+
+    private static final int MAX_CACHED_KPRIMES = 8;
+
+    // in access order, so that the least recently used table is evicted first
+    private static final Map<Integer, AtomicReferenceArray<int[]>> CACHE =
+        new LinkedHashMap<Integer, AtomicReferenceArray<int[]>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, AtomicReferenceArray<int[]>> eldest) {
+
+                return size() > MAX_CACHED_KPRIMES;
+            }
+        };
+
+    // the last used table, so that the cache is not locked while the same value of K' is being used
+    private static volatile LastTable lastTable = new LastTable(-1, null);
+
+
+    /**
+     * Returns the indexes of the intermediate symbols that are XORed to encode the symbol with the given ISI.
+     * <b><em>The returned array must not be modified.</em></b>
+     *
+     * @param Kprime
+     *            The number of source (and padding) symbols in an extended source block
+     * @param isi
+     *            The internal symbol identifier of the symbol
+     * @return the indexes of the intermediate symbols that are XORed to encode the symbol
+     */
+    static int[] get(int Kprime, int isi) {
+
+        if (isi >= 2 * Kprime) {
+            return LinearSystem.encIndexes(Kprime, new Tuple(Kprime, isi));
+        }
+
+        final AtomicReferenceArray<int[]> table = table(Kprime);
+        int[] indexes = table.get(isi);
+        if (indexes == null) {
+            // concurrent threads may compute the same indexes, but the result is the same
+            indexes = LinearSystem.encIndexes(Kprime, new Tuple(Kprime, isi));
+            table.set(isi, indexes);
+        }
+
+        return indexes;
+    }
+
+    private static AtomicReferenceArray<int[]> table(int Kprime) {
+
+        final LastTable last = lastTable;
+        if (last.Kprime == Kprime) {
+            return last.table;
+        }
+
+        synchronized (CACHE) {
+            AtomicReferenceArray<int[]> table = CACHE.get(Kprime);
+            if (table == null) {
+                table = new AtomicReferenceArray<>(2 * Kprime);
+                CACHE.put(Kprime, table);
+            }
+
+            lastTable = new LastTable(Kprime, table);
+            return table;
+        }
+    }
+
+    private EncodingIndexes() {
+
+        // not instantiable
+    }
+
+
+    private static final class LastTable {
+
+        final int Kprime;
+        final AtomicReferenceArray<int[]> table;
+
+
+        LastTable(int Kprime, AtomicReferenceArray<int[]> table) {
+
+            this.Kprime = Kprime;
+            this.table = table;
+        }
+    }
+}
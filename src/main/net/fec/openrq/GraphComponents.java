@@ -0,0 +1,382 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.Arrays;
+
+
+/**
+ * The connected components of a graph whose edges are added and removed over time, kept in a union-find structure
+ * with primitive arrays that are reused for the lifetime of the object.
+ * <p>
+ * A union-find structure cannot split a component when edges are removed, so removals are handled lazily: the size
+ * of a component is the number of its nodes that still have edges, and a component is marked as stale when a batch of
+ * removals may have disconnected it (that is, when at least two of the nodes that lost edges still have edges). A
+ * stale component is only rebuilt from its remaining edges when it may be the largest one, and every other component
+ * is kept across removals.
+ * <p>
+ * A node gets a new element of the union-find structure whenever it enters the graph (when it gets an edge after
+ * having none), so that the elements of the nodes that left the graph can remain inside the trees without ever being
+ * reused. Since each edge is added at most once, there are at most two elements per edge.
+ */
+final class GraphComponents {
+
+    private static final int NONE = -1;
+
+    // indexed by node
+    private final int[] element; // valid if the node has edges
+    private final int[] degree;
+    private final boolean[] touched;
+
+    // indexed by element (the fields other than parent are only valid for roots)
+    private final int[] parent;
+    private final int[] size;
+    private final boolean[] stale;
+    private final int[] firstEdge;
+    private final int[] lastEdge;
+    private final int[] witness;
+    private int numElements;
+
+    // the roots with nodes, in doubly linked lists indexed by size
+    private final int[] rootsBySize;
+    private final int[] nextRoot;
+    private final int[] prevRoot;
+    private final boolean[] linked;
+    private int maxSize; // an upper bound of the maximum size
+
+    // indexed by edge (each component keeps a linked list of its edges, from which removed edges are dropped lazily)
+    private final int[] edgeNode1;
+    private final int[] edgeNode2;
+    private final int[] nextEdge;
+    private final boolean[] removed;
+    private final int[] splitEdges;
+
+    // the nodes that lost edges in the current batch of removals
+    private final int[] touchedNodes;
+    private int numTouched;
+
+
+    /**
+     * @param numNodes
+     *            The number of nodes (node indexes are in the range [0, numNodes))
+     * @param numEdges
+     *            The number of edges (edge indexes are in the range [0, numEdges))
+     */
+    GraphComponents(int numNodes, int numEdges) {
+
+        this.element = new int[numNodes];
+        this.degree = new int[numNodes];
+        this.touched = new boolean[numNodes];
+
+        final int maxElements = 2 * numEdges;
+        this.parent = new int[maxElements];
+        this.size = new int[maxElements];
+        this.stale = new boolean[maxElements];
+        this.firstEdge = new int[maxElements];
+        this.lastEdge = new int[maxElements];
+        this.witness = new int[maxElements];
+        Arrays.fill(witness, NONE);
+        this.numElements = 0;
+
+        this.rootsBySize = new int[numNodes + 1];
+        Arrays.fill(rootsBySize, NONE);
+        this.nextRoot = new int[maxElements];
+        this.prevRoot = new int[maxElements];
+        this.linked = new boolean[maxElements];
+        this.maxSize = 0;
+
+        this.edgeNode1 = new int[numEdges];
+        this.edgeNode2 = new int[numEdges];
+        this.nextEdge = new int[numEdges];
+        this.removed = new boolean[numEdges];
+        this.splitEdges = new int[numEdges];
+
+        this.touchedNodes = new int[numNodes];
+        this.numTouched = 0;
+    }
+
+    // requires that the edge was never added before
+    void addEdge(int edge, int node1, int node2) {
+
+        edgeNode1[edge] = node1;
+        edgeNode2[edge] = node2;
+        removed[edge] = false;
+
+        final int root1 = find(enter(node1));
+        final int root2 = find(enter(node2));
+
+        unlink(root1);
+        unlink(root2);
+        final int root = union(root1, root2);
+        appendEdge(root, edge);
+        link(root);
+    }
+
+    /**
+     * Removes an edge. The components are only checked for splits when {@link #finishRemovals()} is called, which
+     * must happen before they are queried again.
+     */
+    // requires that the edge was added and not removed
+    void removeEdge(int edge) {
+
+        removed[edge] = true;
+
+        final int node1 = edgeNode1[edge];
+        final int node2 = edgeNode2[edge];
+        final int root = find(element[node1]);
+
+        unlink(root);
+        if (--degree[node1] == 0) {
+            size[root]--;
+        }
+        if (--degree[node2] == 0) {
+            size[root]--;
+        }
+        link(root);
+
+        touch(node1);
+        touch(node2);
+    }
+
+    /**
+     * Marks as stale the components that may have been split by the edges removed since the last call to this method.
+     * <p>
+     * A component is only split if at least two of its nodes that lost edges still have edges, because every part
+     * left after the removals contains at least one of those nodes.
+     */
+    void finishRemovals() {
+
+        for (int n = 0; n < numTouched; n++) {
+            final int node = touchedNodes[n];
+            if (degree[node] != 0) {
+                final int root = find(element[node]);
+                if (witness[root] == NONE) {
+                    witness[root] = node;
+                }
+                else {
+                    stale[root] = true;
+                }
+            }
+        }
+
+        for (int n = 0; n < numTouched; n++) {
+            final int node = touchedNodes[n];
+            touched[node] = false;
+            if (degree[node] != 0) {
+                witness[find(element[node])] = NONE;
+            }
+        }
+        numTouched = 0;
+    }
+
+    /**
+     * Returns an edge of a component with the maximum number of nodes, or {@code -1} if the graph has no edges.
+     */
+    int largestComponentEdge() {
+
+        while (true) {
+            while (maxSize > 0 && rootsBySize[maxSize] == NONE) {
+                maxSize--;
+            }
+            if (maxSize == 0) {
+                return NONE;
+            }
+
+            // prefer a component that is known to be connected
+            for (int root = rootsBySize[maxSize]; root != NONE; root = nextRoot[root]) {
+                if (!stale[root]) {
+                    return remainingEdge(root);
+                }
+            }
+
+            // otherwise, rebuild a stale component, whose parts are no larger than it
+            split(rootsBySize[maxSize]);
+        }
+    }
+
+    // returns the element of the node, which gets a new one if it had no edges
+    private int enter(int node) {
+
+        if (degree[node]++ == 0) {
+            final int elem = numElements++;
+            reset(elem);
+            element[node] = elem;
+        }
+
+        return element[node];
+    }
+
+    private void reset(int elem) {
+
+        parent[elem] = elem;
+        size[elem] = 1;
+        stale[elem] = false;
+        firstEdge[elem] = NONE;
+        lastEdge[elem] = NONE;
+    }
+
+    // requires root1 and root2 to be unlinked roots
+    private int union(int root1, int root2) {
+
+        if (root1 == root2) {
+            return root1;
+        }
+
+        // union by size
+        final int root, child;
+        if (size[root1] < size[root2]) {
+            root = root2;
+            child = root1;
+        }
+        else {
+            root = root1;
+            child = root2;
+        }
+
+        parent[child] = root;
+        size[root] += size[child];
+        stale[root] |= stale[child];
+        if (firstEdge[child] != NONE) {
+            if (firstEdge[root] == NONE) {
+                firstEdge[root] = firstEdge[child];
+            }
+            else {
+                nextEdge[lastEdge[root]] = firstEdge[child];
+            }
+            lastEdge[root] = lastEdge[child];
+        }
+
+        return root;
+    }
+
+    private void appendEdge(int root, int edge) {
+
+        nextEdge[edge] = NONE;
+        if (firstEdge[root] == NONE) {
+            firstEdge[root] = edge;
+        }
+        else {
+            nextEdge[lastEdge[root]] = edge;
+        }
+        lastEdge[root] = edge;
+    }
+
+    // requires a root with nodes
+    private int remainingEdge(int root) {
+
+        int edge = firstEdge[root];
+        while (removed[edge]) {
+            edge = nextEdge[edge];
+        }
+        firstEdge[root] = edge; // drop the removed edges before it
+
+        return edge;
+    }
+
+    // rebuilds a component from its remaining edges, reusing the elements of its nodes
+    private void split(int root) {
+
+        unlink(root);
+
+        int numEdges = 0;
+        for (int edge = firstEdge[root]; edge != NONE; edge = nextEdge[edge]) {
+            if (!removed[edge]) {
+                splitEdges[numEdges++] = edge;
+                reset(element[edgeNode1[edge]]);
+                reset(element[edgeNode2[edge]]);
+            }
+        }
+
+        for (int n = 0; n < numEdges; n++) {
+            final int edge = splitEdges[n];
+            final int newRoot = union(find(element[edgeNode1[edge]]), find(element[edgeNode2[edge]]));
+            appendEdge(newRoot, edge);
+        }
+
+        for (int n = 0; n < numEdges; n++) {
+            link(find(element[edgeNode1[splitEdges[n]]]));
+        }
+    }
+
+    private void touch(int node) {
+
+        if (!touched[node]) {
+            touched[node] = true;
+            touchedNodes[numTouched++] = node;
+        }
+    }
+
+    // does nothing if the root is already linked, or has no nodes
+    private void link(int root) {
+
+        final int s = size[root];
+        if (linked[root] || s == 0) {
+            return;
+        }
+
+        final int head = rootsBySize[s];
+        nextRoot[root] = head;
+        prevRoot[root] = NONE;
+        if (head != NONE) {
+            prevRoot[head] = root;
+        }
+        rootsBySize[s] = root;
+        linked[root] = true;
+
+        if (s > maxSize) {
+            maxSize = s;
+        }
+    }
+
+    // does nothing if the root is not linked
+    private void unlink(int root) {
+
+        if (!linked[root]) {
+            return;
+        }
+
+        final int next = nextRoot[root];
+        final int prev = prevRoot[root];
+        if (prev == NONE) {
+            rootsBySize[size[root]] = next;
+        }
+        else {
+            nextRoot[prev] = next;
+        }
+        if (next != NONE) {
+            prevRoot[next] = prev;
+        }
+        linked[root] = false;
+    }
+
+    private int find(int elem) {
+
+        int root = elem;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+
+        // path compression
+        while (parent[elem] != root) {
+            final int next = parent[elem];
+            parent[elem] = root;
+            elem = next;
+        }
+
+        return root;
+    }
+}
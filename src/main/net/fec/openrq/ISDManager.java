@@ -23,12 +23,18 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import net.fec.openrq.util.io.Resources;
-import net.fec.openrq.util.io.UncheckedIOException;
 import net.fec.openrq.util.rq.IntermediateSymbolsDecoder;
 import net.fec.openrq.util.rq.SystematicIndices;
 
@@ -41,10 +47,17 @@ final class ISDManager {
     private static final int MAX_K_PRIME_CHARS = "56403".length();
     private static final String K_PRIME_FORMAT = "[0-9]+";
     private static final String ISD_PREFIX = "ISD_";
+    private static final String ISD_STORE_NAME = "ISDs.store";
+
+    // the maximum (estimated) heap footprint of the loaded decoders that are kept in memory; the most recently used
+    // decoder is always kept, even if it is larger
+    private static final long MAX_CACHE_FOOTPRINT =
+        Long.getLong("net.fec.openrq.isdCacheSize", 64L * 1024 * 1024);
 
     private static final ISDManager INSTANCE;
     static {
-        final List<IntermediateSymbolsDecoder> isdsList = new ArrayList<>();
+        // only the values of K' are read here, the decoders are loaded when they are first requested
+        final Set<Integer> listedKPrimes = new HashSet<>();
 
         final InputStream in = ISDManager.class.getResourceAsStream("ISDs");
         if (in == null) {
@@ -59,7 +72,7 @@ final class ISDManager {
                     if (isValidKPrimeLine(line)) {
                         final int Kprime = Integer.parseInt(line); // should always succeed
                         if (SystematicIndices.containsKPrime(Kprime)) {
-                            isdsList.add(new ISD(Kprime));
+                            listedKPrimes.add(Kprime);
                         }
                         else {
                             System.err.printf(
@@ -71,17 +84,22 @@ final class ISDManager {
                     lineNumber++;
                 }
             }
-            catch (UncheckedIOException e) {
-                System.err.println("Error while reading \"Intermediate Symbols Decoders\" file:");
-                e.getCause().printStackTrace(System.err);
-            }
             catch (IOException e) {
                 System.err.println("Error while reading \"Intermediate Symbols Decoders\" file:");
                 e.printStackTrace(System.err);
             }
         }
 
-        INSTANCE = new ISDManager(isdsList);
+        ISDStore store = null;
+        try {
+            store = ISDStore.fromResource(ISDManager.class, ISD_STORE_NAME);
+        }
+        catch (IOException e) {
+            System.err.println("Error while opening \"Intermediate Symbols Decoders\" store:");
+            e.printStackTrace(System.err);
+        }
+
+        INSTANCE = new ISDManager(new ResourceLoader(listedKPrimes, store), MAX_CACHE_FOOTPRINT);
     }
 
 
@@ -97,48 +115,216 @@ final class ISDManager {
     /**
      * Returns an optimized decoder for the given value of K' (see RFC 6330), or {@code null} if there is none
      * registered for the given value.
+     * <p>
+     * The decoder is loaded if it is not in memory; concurrent requests for the same value of K' wait for a single
+     * loading.
      * 
      * @param Kprime
      *            The number of source (and padding) symbols in an extended source block
      * @return an optimized decoder for the given value of K', or {@code null} if there is none registered for the given
      *         value
      */
-    static IntermediateSymbolsDecoder get(int Kprime) {
+    static LoadedISD get(int Kprime) {
 
         return INSTANCE.getDecoder(Kprime);
     }
 
+    /**
+     * Loads the optimized decoder for the given value of K' (see RFC 6330), if there is one registered for the given
+     * value and it is not already in memory.
+     * 
+     * @param Kprime
+     *            The number of source (and padding) symbols in an extended source block
+     * @return {@code true} if there is an optimized decoder for the given value of K'
+     */
+    static boolean preload(int Kprime) {
+
+        return INSTANCE.getDecoder(Kprime) != null;
+    }
+
+
+    private final Loader loader;
+    private final long maxCacheFootprint;
 
-    private final Map<Integer, IntermediateSymbolsDecoder> map;
+    // in access order, so that the least recently used decoder is evicted first
+    private final LinkedHashMap<Integer, LoadedISD> cache;
+    private long cacheFootprint; // guarded by cache
 
+    // a loading that failed is kept here, so that it is not repeated
+    private final ConcurrentMap<Integer, FutureTask<LoadedISD>> loadings;
 
-    private ISDManager(Iterable<IntermediateSymbolsDecoder> decoders) {
 
-        this.map = new HashMap<>();
-        for (IntermediateSymbolsDecoder dec : decoders) {
-            map.put(dec.supportedKPrime(), dec);
+    ISDManager(Loader loader, long maxCacheFootprint) {
+
+        this.loader = loader;
+        this.maxCacheFootprint = maxCacheFootprint;
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.cacheFootprint = 0;
+
+        this.loadings = new ConcurrentHashMap<>();
+    }
+
+    LoadedISD getDecoder(final int Kprime) {
+
+        synchronized (cache) {
+            final LoadedISD dec = cache.get(Kprime);
+            if (dec != null) {
+                return dec;
+            }
+        }
+
+        if (!loader.contains(Kprime)) {
+            return null;
+        }
+
+        // single-flight loading: the first thread loads the decoder and the others wait for it
+        final FutureTask<LoadedISD> newLoading = new FutureTask<>(new Callable<LoadedISD>() {
+
+            @Override
+            public LoadedISD call() throws IOException {
+
+                final LoadedISD dec = loader.load(Kprime);
+                putInCache(dec);
+                return dec;
+            }
+        });
+
+        final FutureTask<LoadedISD> loading = loadings.putIfAbsent(Kprime, newLoading);
+        if (loading == null) {
+            newLoading.run();
+            try {
+                final LoadedISD dec = newLoading.get();
+                loadings.remove(Kprime, newLoading);
+                return dec;
+            }
+            catch (ExecutionException e) {
+                System.err.printf("Error while loading \"Intermediate Symbols Decoder\" for K' = %d:%n", Kprime);
+                e.getCause().printStackTrace(System.err);
+                return null;
+            }
+            catch (InterruptedException e) {
+                throw new AssertionError("the task has already run");
+            }
+        }
+        else {
+            try {
+                return loading.get();
+            }
+            catch (ExecutionException e) {
+                return null; // already reported by the loading thread
+            }
+            catch (InterruptedException e) {
+                // fall back to the standard decoding process
+                Thread.currentThread().interrupt();
+                return null;
+            }
         }
     }
 
-    private IntermediateSymbolsDecoder getDecoder(int Kprime) {
+    private void putInCache(LoadedISD dec) {
+
+        synchronized (cache) {
+            final LoadedISD previous = cache.put(dec.supportedKPrime(), dec);
+            if (previous != null) {
+                cacheFootprint -= previous.footprint();
+            }
+            cacheFootprint += dec.footprint();
 
-        return map.get(Kprime);
+            // the least recently used decoders are evicted, but not the new one
+            final Iterator<LoadedISD> it = cache.values().iterator();
+            while (cacheFootprint > maxCacheFootprint && cache.size() > 1) {
+                cacheFootprint -= it.next().footprint();
+                it.remove();
+            }
+        }
     }
 
 
-    private static final class ISD implements IntermediateSymbolsDecoder {
+    /**
+     * Loads the optimized decoders that are not in memory.
+     */
+    static interface Loader {
+
+        /**
+         * Returns {@code true} if there is an optimized decoder for the given value of K'.
+         */
+        boolean contains(int Kprime);
+
+        /**
+         * Loads the optimized decoder for the given value of K', which must be {@linkplain #contains(int) contained}
+         * by this loader.
+         */
+        LoadedISD load(int Kprime) throws IOException;
+    }
 
-        private final int Kprime;
-        private final List<ISDOperation> ops;
+    // loads the decoders listed in the "Intermediate Symbols Decoders" file, or else from the store
+    private static final class ResourceLoader implements Loader {
 
+        private final Set<Integer> listedKPrimes;
+        private final ISDStore store; // may be null
 
-        ISD(int Kprime) throws IOException {
 
-            this.Kprime = Kprime;
-            this.ops = new ArrayList<>();
+        ResourceLoader(Set<Integer> listedKPrimes, ISDStore store) {
+
+            this.listedKPrimes = listedKPrimes;
+            this.store = store;
+        }
+
+        @Override
+        public boolean contains(int Kprime) {
+
+            return listedKPrimes.contains(Kprime) || (store != null && store.contains(Kprime));
+        }
+
+        @Override
+        public LoadedISD load(int Kprime) throws IOException {
+
+            if (listedKPrimes.contains(Kprime)) {
+                final List<ISDOperation> ops = ISD.readOperations(Kprime);
+
+                // the operations are compiled into a single schedule, if possible
+                final SymbolSchedule schedule = ISDOps.toSchedule(ops);
+                if (schedule != null) {
+                    return new CompiledISD(Kprime, schedule.compile());
+                }
+                else {
+                    return new ISD(Kprime, ops);
+                }
+            }
+            else {
+                return new CompiledISD(Kprime, store.schedule(Kprime));
+            }
+        }
+    }
+
+    /**
+     * An optimized decoder, as kept in memory by this class.
+     */
+    static interface LoadedISD extends IntermediateSymbolsDecoder {
+
+        /**
+         * Returns an estimate of the number of bytes of heap used by this decoder.
+         */
+        long footprint();
+
+        /**
+         * Decodes intermediate symbols from a set of source symbols of an extended source block, in place.
+         * 
+         * @param D
+         * @return the intermediate symbols, which share the array of D
+         */
+        SymbolArena decode(SymbolArena D);
+    }
+
+    private static final class ISD implements LoadedISD {
+
+        static List<ISDOperation> readOperations(int Kprime) throws IOException {
+
+            final List<ISDOperation> ops = new ArrayList<>();
 
             // try-with-resources (channel is automatically closed at the end)
-            try (ReadableByteChannel ch = Resources.openResourceChannel(getClass(), resourceName(Kprime))) {
+            try (ReadableByteChannel ch = Resources.openResourceChannel(ISD.class, resourceName(Kprime))) {
                 while (true) {
                     ops.add(ISDOps.readOperation(ch));
                 }
@@ -146,6 +332,8 @@ final class ISDManager {
             catch (EOFException e) {
                 // do nothing, we expect this exception to occur
             }
+
+            return ops;
         }
 
         private static String resourceName(int Kprime) {
@@ -153,6 +341,24 @@ final class ISDManager {
             return ISD_PREFIX + Kprime + ".dat";
         }
 
+
+        private final int Kprime;
+        private final List<ISDOperation> ops;
+
+
+        ISD(int Kprime, List<ISDOperation> ops) {
+
+            this.Kprime = Kprime;
+            this.ops = ops;
+        }
+
+        @Override
+        public long footprint() {
+
+            // most operations are symbol additions, with a header, a byte and two integers
+            return 32L * ops.size();
+        }
+
         @Override
         public final int supportedKPrime() {
 
@@ -168,5 +374,52 @@ final class ISDManager {
             }
             return symbols;
         }
+
+        @Override
+        public final SymbolArena decode(SymbolArena D) {
+
+            SymbolArena symbols = D;
+            for (ISDOperation op : ops) {
+                symbols = op.apply(symbols);
+            }
+            return symbols;
+        }
+    }
+
+    private static final class CompiledISD implements LoadedISD {
+
+        private final int Kprime;
+        private final CompiledSchedule schedule;
+
+
+        CompiledISD(int Kprime, CompiledSchedule schedule) {
+
+            this.Kprime = Kprime;
+            this.schedule = schedule;
+        }
+
+        @Override
+        public long footprint() {
+
+            return schedule.footprint();
+        }
+
+        @Override
+        public final int supportedKPrime() {
+
+            return Kprime;
+        }
+
+        @Override
+        public final byte[][] decode(byte[][] D) {
+
+            return schedule.apply(D);
+        }
+
+        @Override
+        public final SymbolArena decode(SymbolArena D) {
+
+            return schedule.apply(D);
+        }
     }
 }
@@ -27,5 +27,7 @@ interface ISDOperation {
 
     byte[][] apply(byte[][] D);
 
+    SymbolArena apply(SymbolArena D);
+
     void serializeToChannel(WritableByteChannel ch) throws IOException;
 }
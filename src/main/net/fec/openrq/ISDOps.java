@@ -104,6 +104,55 @@ final class ISDOps {
     }
 
 
+    /**
+     * Returns a symbol schedule with the same effect as the given sequence of operations, or {@code null} if some
+     * operation cannot be expressed as symbol additions and divisions.
+     * <p>
+     * The row reductions are replayed over the stored matrices, recording the row operations instead of executing
+     * them; the matrix-vector multiplications are expressed as symbol additions if the matrices are triangular, so that
+     * the rows can be updated in place.
+     */
+    static SymbolSchedule toSchedule(Iterable<ISDOperation> ops) {
+
+        final SymbolSchedule schedule = new SymbolSchedule();
+        boolean reordered = false;
+        for (ISDOperation op : ops) {
+            // the operations after a reordering refer to the reordered rows
+            if (reordered) {
+                return null;
+            }
+
+            if (op instanceof SymbolAddition) {
+                final SymbolAddition add = (SymbolAddition)op;
+                schedule.addSymbolAddition(add.srcMult, add.srcRow, add.dstRow);
+            }
+            else if (op instanceof SymbolBetaDivision) {
+                final SymbolBetaDivision div = (SymbolBetaDivision)op;
+                schedule.addSymbolBetaDivision(div.beta, div.row);
+            }
+            else if (op instanceof ReduceMatrixToRowEchelon) {
+                final ReduceMatrixToRowEchelon red = (ReduceMatrixToRowEchelon)op;
+                MatrixUtilities.reduceToRowEchelonForm(
+                    red.AMatrix(), red.fromRow, red.toRow, red.fromCol, red.toCol, red.dArray(), schedule);
+            }
+            else if (op instanceof MatrixVectorMultiplication) {
+                if (!((MatrixVectorMultiplication)op).addToSchedule(schedule)) {
+                    return null;
+                }
+            }
+            else if (op instanceof SymbolReordering) {
+                final SymbolReordering reo = (SymbolReordering)op;
+                schedule.setSymbolReordering(reo.L, reo.c, reo.d);
+                reordered = true;
+            }
+            else {
+                return null;
+            }
+        }
+
+        return schedule;
+    }
+
     private static enum OpID {
 
         SYMBOL_ADDITION,
@@ -159,6 +208,15 @@ final class ISDOps {
             return D;
         }
 
+        @Override
+        public SymbolArena apply(SymbolArena D) {
+
+            final byte[] data = D.array();
+            final int dstPos = D.offset(dstRow);
+            OctetOps.vectorVectorAddition(srcMult, data, D.offset(srcRow), data, dstPos, data, dstPos, D.symbolSize());
+            return D;
+        }
+
         @Override
         public void serializeToChannel(WritableByteChannel ch) throws IOException {
 
@@ -215,6 +273,14 @@ final class ISDOps {
             return D;
         }
 
+        @Override
+        public SymbolArena apply(SymbolArena D) {
+
+            final int pos = D.offset(row);
+            OctetOps.valueVectorDivision(beta, D.array(), pos, D.array(), pos, D.symbolSize()); // in place division
+            return D;
+        }
+
         @Override
         public void serializeToChannel(WritableByteChannel ch) throws IOException {
 
@@ -291,6 +357,14 @@ final class ISDOps {
             return D;
         }
 
+        @Override
+        public SymbolArena apply(SymbolArena D) {
+
+            final SymbolSchedule schedule = new SymbolSchedule();
+            MatrixUtilities.reduceToRowEchelonForm(AMatrix(), fromRow, toRow, fromCol, toCol, dArray(), schedule);
+            return schedule.apply(D);
+        }
+
         @Override
         public void serializeToChannel(WritableByteChannel ch) throws IOException {
 
@@ -363,6 +437,86 @@ final class ISDOps {
             return D;
         }
 
+        @Override
+        public SymbolArena apply(SymbolArena D) {
+
+            final byte[] data = D.array();
+            final int T = D.symbolSize();
+
+            // every product is computed before D is updated, as in the multiplication of the rows of D
+            final int[] cols = new int[Xcols];
+            final byte[] multipliers = new byte[Xcols];
+            final byte[][] products = new byte[Xrows][T];
+            for (int row = 0; row < Xrows; row++) {
+                int numCols = 0;
+                for (int col = 0; col < Xcols; col++) {
+                    if (!X.isZeroAt(row, col)) {
+                        cols[numCols] = d[col];
+                        multipliers[numCols] = X.get(row, col);
+                        numCols++;
+                    }
+                }
+                OctetOps.vectorGatherAddition(multipliers, data, D.offsets(), cols, 0, numCols, products[row], 0, T);
+            }
+
+            for (int row = 0; row < Xrows; row++) {
+                System.arraycopy(products[row], 0, data, D.offset(d[row]), T);
+            }
+
+            return D;
+        }
+
+        // D[d[row]] = X[row] * D[d], for each row, in place; only possible if X is triangular, with a non-zero diagonal
+        boolean addToSchedule(SymbolSchedule schedule) {
+
+            if (Xrows > Xcols) {
+                return false;
+            }
+
+            boolean lower = true;
+            boolean upper = true;
+            for (int row = 0; row < Xrows; row++) {
+                if (X.isZeroAt(row, row)) {
+                    return false;
+                }
+                for (int col = 0; col < Xrows; col++) {
+                    if (!X.isZeroAt(row, col)) {
+                        lower &= col <= row;
+                        upper &= col >= row;
+                    }
+                }
+            }
+
+            if (lower) {
+                // each row only depends on the previous ones, which are updated later
+                for (int row = Xrows - 1; row >= 0; row--) {
+                    addRowToSchedule(row, schedule);
+                }
+                return true;
+            }
+            else if (upper) {
+                // each row only depends on the next ones, which are updated later
+                for (int row = 0; row < Xrows; row++) {
+                    addRowToSchedule(row, schedule);
+                }
+                return true;
+            }
+            else {
+                return false;
+            }
+        }
+
+        private void addRowToSchedule(int row, SymbolSchedule schedule) {
+
+            // D[d[row]] * X[row][row] == D[d[row]] / (1 / X[row][row])
+            schedule.addSymbolBetaDivision(OctetOps.aDividedByB((byte)1, X.get(row, row)), d[row]);
+            for (int col = 0; col < Xcols; col++) {
+                if (col != row) {
+                    schedule.addSymbolAddition(X.get(row, col), d[col], d[row]);
+                }
+            }
+        }
+
         private int Dcols(byte[][] D) {
 
             return (D.length == 0) ? 0 : D[0].length;
@@ -443,6 +597,12 @@ final class ISDOps {
             return C;
         }
 
+        @Override
+        public SymbolArena apply(SymbolArena D) {
+
+            return D.reorder(L, c, d);
+        }
+
         @Override
         public void serializeToChannel(WritableByteChannel ch) throws IOException {
 
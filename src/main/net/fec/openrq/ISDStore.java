@@ -0,0 +1,321 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * A store of intermediate symbols decoding schedules (see {@link CompiledSchedule}) for many values of K', kept in a
+ * single indexed file that is memory-mapped (when possible) and decoded on demand.
+ * <p>
+ * The file has the following layout, with every fixed-size integer in big-endian order:
+ * <ol>
+ * <li>a header with the magic number "ISDS" and the version of the format (4 bytes each);</li>
+ * <li>the payloads, each one a schedule in compact form (see {@link CompiledSchedule#writeCompact(OutputStream)})
+ * compressed with DEFLATE;</li>
+ * <li>the index, with an entry per payload sorted by K', each entry containing K' (4 bytes), the offset of the
+ * payload in the file (8 bytes) and its length (4 bytes);</li>
+ * <li>a footer with the offset of the index (8 bytes) and the number of entries (4 bytes).</li>
+ * </ol>
+ */
+final class ISDStore {
+
+    private static final int MAGIC = 0x49534453; // "ISDS"
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 16;
+    private static final int FOOTER_SIZE = 12;
+
+
+    /**
+     * Opens a store from a buffer with the contents of a store file.
+     */
+    static ISDStore open(ByteBuffer buffer) throws IOException {
+
+        final ByteBuffer buf = buffer.duplicate();
+        if (buf.remaining() < HEADER_SIZE + FOOTER_SIZE) throw new IOException("truncated ISD store");
+        if (buf.getInt(0) != MAGIC) throw new IOException("invalid ISD store magic number");
+        if (buf.getInt(4) != VERSION) throw new IOException("unsupported ISD store version");
+
+        final long indexOffset = buf.getLong(buf.limit() - FOOTER_SIZE);
+        final int numEntries = buf.getInt(buf.limit() - FOOTER_SIZE + 8);
+        if (indexOffset < HEADER_SIZE || numEntries < 0 ||
+            indexOffset + (long)numEntries * ENTRY_SIZE != buf.limit() - FOOTER_SIZE)
+        {
+            throw new IOException("invalid ISD store index");
+        }
+
+        return new ISDStore(buf, (int)indexOffset, numEntries);
+    }
+
+    /**
+     * Opens a store file by memory-mapping it.
+     */
+    static ISDStore map(Path file) throws IOException {
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("ISD store is too large");
+
+            // the mapping remains valid after the channel is closed
+            return open(ch.map(MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Opens a store from a resource, which is memory-mapped if it is a regular file, and is otherwise read into memory
+     * (e.g., if it is inside a Jar file).
+     *
+     * @return a store, or {@code null} if there is no such resource
+     */
+    static ISDStore fromResource(Class<?> clazz, String resourceName) throws IOException {
+
+        final URL url = clazz.getResource(resourceName);
+        if (url == null) {
+            return null;
+        }
+
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return map(Paths.get(url.toURI()));
+            }
+            catch (URISyntaxException e) {
+                // read it as a stream, then
+            }
+        }
+
+        try (InputStream in = url.openStream()) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                bytes.write(buf, 0, read);
+            }
+
+            return open(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+    }
+
+
+    private final ByteBuffer buffer;
+    private final int indexOffset;
+    private final int numEntries;
+
+
+    private ISDStore(ByteBuffer buffer, int indexOffset, int numEntries) {
+
+        this.buffer = buffer;
+        this.indexOffset = indexOffset;
+        this.numEntries = numEntries;
+    }
+
+    /**
+     * Returns the number of schedules in this store.
+     */
+    int numEntries() {
+
+        return numEntries;
+    }
+
+    /**
+     * Returns the value of K' of an entry of this store, with entries sorted by K'.
+     */
+    int entryKPrime(int entry) {
+
+        return buffer.getInt(indexOffset + entry * ENTRY_SIZE);
+    }
+
+    /**
+     * Returns {@code true} if this store has a schedule for the given value of K'.
+     */
+    boolean contains(int Kprime) {
+
+        return findEntry(Kprime) >= 0;
+    }
+
+    /**
+     * Decodes the schedule for the given value of K'.
+     *
+     * @return a schedule, or {@code null} if this store does not have one for the given value of K'
+     */
+    CompiledSchedule schedule(int Kprime) throws IOException {
+
+        final int entry = findEntry(Kprime);
+        if (entry < 0) {
+            return null;
+        }
+
+        final int entryOffset = indexOffset + entry * ENTRY_SIZE;
+        final long offset = buffer.getLong(entryOffset + 4);
+        final int length = buffer.getInt(entryOffset + 12);
+        if (offset < HEADER_SIZE || offset + length > indexOffset) throw new IOException("invalid ISD store entry");
+
+        final ByteBuffer payload = buffer.duplicate();
+        payload.limit((int)offset + length).position((int)offset);
+
+        try (InputStream in = new BufferedInputStream(new InflaterInputStream(new ByteBufferInputStream(payload)))) {
+            return CompiledSchedule.readCompact(in);
+        }
+    }
+
+    // binary search in the index
+    private int findEntry(int Kprime) {
+
+        int low = 0;
+        int high = numEntries - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midKPrime = entryKPrime(mid);
+            if (midKPrime < Kprime) {
+                low = mid + 1;
+            }
+            else if (midKPrime > Kprime) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Writes a store file, with schedules added by increasing K'.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel ch;
+        private final ByteArrayOutputStream index;
+        private int numEntries;
+        private int lastKPrime;
+
+
+        Writer(Path file) throws IOException {
+
+            this.ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.index = new ByteArrayOutputStream();
+            this.numEntries = 0;
+            this.lastKPrime = 0;
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(header);
+        }
+
+        /**
+         * Adds the schedule of a value of K' greater than the previous ones.
+         */
+        void add(int Kprime, CompiledSchedule schedule) throws IOException {
+
+            if (Kprime <= lastKPrime) throw new IllegalArgumentException("K' values must be added in increasing order");
+
+            final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (OutputStream out = new DeflaterOutputStream(payload, deflater, 8192)) {
+                schedule.writeCompact(out);
+            }
+            finally {
+                deflater.end();
+            }
+
+            final long offset = ch.position();
+            writeFully(ByteBuffer.wrap(payload.toByteArray()));
+
+            final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+            entry.putInt(Kprime).putLong(offset).putInt(payload.size());
+            index.write(entry.array());
+
+            numEntries++;
+            lastKPrime = Kprime;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+                final long indexOffset = ch.position();
+                writeFully(ByteBuffer.wrap(index.toByteArray()));
+
+                final ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+                footer.putLong(indexOffset).putInt(numEntries).flip();
+                writeFully(footer);
+            }
+            finally {
+                ch.close();
+            }
+        }
+
+        private void writeFully(ByteBuffer buf) throws IOException {
+
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buf;
+
+
+        ByteBufferInputStream(ByteBuffer buf) {
+
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+
+            return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+
+            final int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
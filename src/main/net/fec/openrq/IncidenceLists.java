@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+
+
+/**
+ * The positions of the non-zeros inside a region of a matrix, as compressed lists of the columns of each row and of
+ * the rows of each column.
+ * <p>
+ * In the first phase of the PI decoding the entries of V never change while their columns remain in V (a row
+ * addition only touches the columns of the chosen row, which leave V in that same step), so the lists of the initial
+ * V are enough to know which rows are affected whenever columns leave V.
+ */
+final class IncidenceLists {
+
+    /**
+     * Returns the incidence lists of the region of the matrix with rows in the range [0, rows) and columns in the
+     * range [fromCol, toCol). Column indexes in the lists are relative to the matrix (not to the region).
+     */
+    static IncidenceLists fromMatrix(ByteMatrix A, int rows, int fromCol, int toCol) {
+
+        final int cols = toCol - fromCol;
+
+        final int[] rowOffsets = new int[rows + 1];
+        for (int row = 0; row < rows; row++) {
+            rowOffsets[row + 1] = rowOffsets[row] + A.nonZerosInRow(row, fromCol, toCol);
+        }
+
+        final int nonZeros = rowOffsets[rows];
+        final int[] rowColumns = new int[nonZeros];
+        final int[] colOffsets = new int[cols + 1];
+        for (int row = 0, n = 0; row < rows; row++) {
+            final ByteVectorIterator it = A.readOnlyNonZeroRowIterator(row, fromCol, toCol);
+            while (it.hasNext()) {
+                it.next();
+                rowColumns[n++] = it.index();
+                colOffsets[it.index() - fromCol + 1]++;
+            }
+        }
+
+        for (int col = 0; col < cols; col++) {
+            colOffsets[col + 1] += colOffsets[col];
+        }
+
+        final int[] colRows = new int[nonZeros];
+        final int[] fill = new int[cols];
+        for (int row = 0; row < rows; row++) {
+            for (int n = rowOffsets[row]; n < rowOffsets[row + 1]; n++) {
+                final int col = rowColumns[n] - fromCol;
+                colRows[colOffsets[col] + fill[col]++] = row;
+            }
+        }
+
+        return new IncidenceLists(fromCol, rowOffsets, rowColumns, colOffsets, colRows);
+    }
+
+
+    private final int fromCol;
+
+    private final int[] rowOffsets;
+    private final int[] rowColumns;
+    private final int[] colOffsets;
+    private final int[] colRows;
+
+
+    private IncidenceLists(int fromCol, int[] rowOffsets, int[] rowColumns, int[] colOffsets, int[] colRows) {
+
+        this.fromCol = fromCol;
+
+        this.rowOffsets = rowOffsets;
+        this.rowColumns = rowColumns;
+        this.colOffsets = colOffsets;
+        this.colRows = colRows;
+    }
+
+    /**
+     * Returns the number of non-zeros in a row.
+     */
+    int rowLength(int row) {
+
+        return rowOffsets[row + 1] - rowOffsets[row];
+    }
+
+    /**
+     * Returns the start (inclusive) of the columns of a row, to be used with {@link #rowColumn(int)}.
+     */
+    int rowStart(int row) {
+
+        return rowOffsets[row];
+    }
+
+    /**
+     * Returns the end (exclusive) of the columns of a row, to be used with {@link #rowColumn(int)}.
+     */
+    int rowEnd(int row) {
+
+        return rowOffsets[row + 1];
+    }
+
+    int rowColumn(int n) {
+
+        return rowColumns[n];
+    }
+
+    /**
+     * Returns the start (inclusive) of the rows of a column, to be used with {@link #columnRow(int)}.
+     */
+    int columnStart(int col) {
+
+        return colOffsets[col - fromCol];
+    }
+
+    /**
+     * Returns the end (exclusive) of the rows of a column, to be used with {@link #columnRow(int)}.
+     */
+    int columnEnd(int col) {
+
+        return colOffsets[col - fromCol + 1];
+    }
+
+    int columnRow(int n) {
+
+        return colRows[n];
+    }
+}
@@ -18,13 +18,6 @@ package net.fec.openrq;
 
 import java.io.PrintStream;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import net.fec.openrq.util.array.ArrayUtils;
@@ -32,8 +25,6 @@ import net.fec.openrq.util.linearalgebra.LinearAlgebra;
 import net.fec.openrq.util.linearalgebra.factory.Factory;
 import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
 import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
-import net.fec.openrq.util.linearalgebra.matrix.dense.RowIndirected2DByteMatrix;
-import net.fec.openrq.util.linearalgebra.vector.dense.BasicByteVector;
 import net.fec.openrq.util.math.OctetOps;
 import net.fec.openrq.util.rq.Rand;
 import net.fec.openrq.util.rq.SystematicIndices;
@@ -50,7 +41,6 @@ final class LinearSystem {
 
     // there is no benefit for a dense matrix in all values of K
     private static final long A_SPARSE_THRESHOLD = 0L;
-    private static final long MT_SPARSE_THRESHOLD = 0L;
 
     private static final boolean PRINTING_CODE_ENABLED = false; // DEBUG
     private static final PrintStream TIMER_PRINTABLE = System.out; // DEBUG
@@ -87,16 +77,6 @@ final class LinearSystem {
         }
     }
 
-    private static Factory getMatrixMTfactory(int H, int Kprime, int S) {
-
-        if ((long)H * (Kprime + S) < MT_SPARSE_THRESHOLD) {
-            return DENSE_FACTORY;
-        }
-        else {
-            return SPARSE_FACTORY;
-        }
-    }
-
     /**
      * Initializes the G_LDPC1 submatrix.
      * 
@@ -192,61 +172,70 @@ final class LinearSystem {
     }
 
     /**
-     * Generates the MT matrix that is used to generate G_HDPC submatrix.
+     * Initializes the G_HDPC submatrix, which is the product of the matrices MT and GAMMA.
+     * <p>
+     * Each row of G_HDPC is computed from the respective row of MT with a recurrence over the columns, from the last
+     * to the first, so that GAMMA is never materialized.
      * 
+     * @param A
+     * @param S
      * @param H
      * @param Kprime
-     * @param S
-     * @return MT
      */
-    private static ByteMatrix generateMT(int H, int Kprime, int S)
+    private static void initializeG_HDPC(ByteMatrix A, int S, int H, int Kprime)
     {
 
-        ByteMatrix MT = getMatrixMTfactory(H, Kprime, S).createMatrix(H, Kprime + S);
+        final int cols = Kprime + S;
 
-        for (int row = 0; row < H; row++)
-        {
-            for (int col = 0; col < Kprime + S - 1; col++)
-            {
-                if (row == (int)Rand.rand(col + 1, 6, H) ||
-                    row == (((int)Rand.rand(col + 1, 6, H) + (int)Rand.rand(col + 1, 7, H - 1) + 1) % H))
-                {
-                    MT.set(row, col, (byte)1);
-                }
-            }
+        /*
+         * MT is a H x (K'+S) matrix where each of the first K'+S-1 columns has two ones, and the last column has
+         * alpha^^i in row i
+         */
+        final byte[][] MT = new byte[H][cols];
+        for (int col = 0; col < cols - 1; col++) {
+            final int row1 = (int)Rand.rand(col + 1, 6, H);
+            final int row2 = (row1 + (int)Rand.rand(col + 1, 7, H - 1) + 1) % H;
+            MT[row1][col] = 1;
+            MT[row2][col] = 1;
         }
-
         for (int row = 0; row < H; row++) {
-            MT.set(row, Kprime + S - 1, OctetOps.alphaPower(row));
+            MT[row][cols - 1] = OctetOps.alphaPower(row);
         }
 
-        return MT;
-    }
-
-    /**
-     * Generates the GAMMA matrix that is used to generate G_HDPC submatrix.
-     * 
-     * @param Kprime
-     * @param S
-     * @return GAMMA
-     */
-    private static ByteMatrix generateGAMMA(int Kprime, int S)
-    {
+        /*
+         * GAMMA[r, c] is alpha^^((r-c) mod 256) for r >= c, so each entry of G_HDPC is
+         * 
+         * G_HDPC[h, c] = MT[h, c] + alpha * G_HDPC[h, c+1] + (1 + alpha) * (MT[h, c+256] + MT[h, c+512] + ...)
+         * 
+         * where the last term corrects the exponents that wrap around to zero (alpha^^255 is one, but the exponent 256
+         * gives alpha^^0 instead of alpha); the sums of MT[h, c+256k] are kept in MT itself, by accumulating them
+         * from the last column to the first
+         */
+        final byte alpha = OctetOps.alphaPower(1);
+        final byte wrapCorrection = OctetOps.aPlusB((byte)1, alpha);
+        final byte[] G_HDPC = new byte[cols];
+        for (int row = 0; row < H; row++) {
+            final byte[] mt = MT[row];
+            byte prev = 0;
+            for (int col = cols - 1; col >= 0; col--) {
+                byte value = OctetOps.aPlusB(mt[col], OctetOps.aTimesB(alpha, prev));
+                if (col + 256 < cols) {
+                    final byte wrapped = mt[col + 256]; // the sum of MT[h, c+256k] for k >= 1
+                    value = OctetOps.aPlusB(value, OctetOps.aTimesB(wrapCorrection, wrapped));
+                    mt[col] = OctetOps.aPlusB(mt[col], wrapped); // the sum of MT[h, c+256k] for k >= 0
+                }
 
-        // FIXME this needs a more efficient representation since it is a lower triangular matrix
-        ByteMatrix GAMMA = DENSE_FACTORY.createMatrix(Kprime + S, Kprime + S);
+                G_HDPC[col] = value;
+                prev = value;
+            }
 
-        for (int row = 0; row < Kprime + S; row++)
-        {
-            for (int col = 0; col < Kprime + S; col++)
-            {
-                if (row >= col) {
-                    GAMMA.set(row, col, OctetOps.alphaPower((row - col) % 256));
+            // set the values by increasing column, which is the cheapest order for sparse rows
+            for (int col = 0; col < cols; col++) {
+                if (G_HDPC[col] != 0) {
+                    A.set(S + row, col, G_HDPC[col]);
                 }
             }
         }
-
-        return GAMMA;
     }
 
     /**
@@ -263,11 +252,7 @@ final class LinearSystem {
 
         for (int row = S + H; row < L; row++)
         {
-            Tuple tuple = new Tuple(Kprime, row - S - H);
-
-            Set<Integer> indexes = encIndexes(Kprime, tuple);
-
-            for (Integer j : indexes)
+            for (int j : EncodingIndexes.get(Kprime, row - S - H))
             {
                 A.set(row, j, (byte)1);
             }
@@ -286,7 +271,8 @@ final class LinearSystem {
     }
 
     /**
-     * Generates the constraint matrix.
+     * Generates the constraint matrix. The first L rows only depend on K', so a sparse constraint matrix shares them
+     * with a cached matrix, and only copies each one when it is first modified.
      * 
      * @param Kprime
      * @param overheadRows
@@ -294,6 +280,28 @@ final class LinearSystem {
      */
     static ByteMatrix generateConstraintMatrix(int Kprime, int overheadRows) {
 
+        final int Ki = SystematicIndices.getKIndex(Kprime);
+        final int L = Kprime + SystematicIndices.S(Ki) + SystematicIndices.H(Ki);
+
+        final Factory factory = getMatrixAfactory(L, overheadRows);
+        if (factory == SPARSE_FACTORY) {
+            return ConstraintMatrixCache.get(Kprime).copyOnWrite(L + overheadRows);
+        }
+        else {
+            return newConstraintMatrix(Kprime, overheadRows, factory);
+        }
+    }
+
+    /**
+     * Generates a new constraint matrix, using the given factory.
+     * 
+     * @param Kprime
+     * @param overheadRows
+     * @param factory
+     * @return a constraint matrix
+     */
+    static ByteMatrix newConstraintMatrix(int Kprime, int overheadRows, Factory factory) {
+
         // calculate necessary parameters
         final int Ki = SystematicIndices.getKIndex(Kprime);
         final int S = SystematicIndices.S(Ki);
@@ -307,7 +315,7 @@ final class LinearSystem {
         TimerUtils.beginTimer(); // DEBUG
 
         // allocate memory for the constraint matrix
-        ByteMatrix A = getMatrixAfactory(L, overheadRows).createMatrix(L + overheadRows, L);
+        ByteMatrix A = factory.createMatrix(L + overheadRows, L);
 
         /*
          * upper half
@@ -330,22 +338,7 @@ final class LinearSystem {
         initializeIh(A, W, U, H, S);
 
         // initialize G_HDPC
-
-        // MT
-        ByteMatrix MT = generateMT(H, Kprime, S);
-
-        // GAMMA
-        ByteMatrix GAMMA = generateGAMMA(Kprime, S);
-
-        // G_HDPC = MT * GAMMA
-        ByteMatrix G_HDPC = MT.multiply(GAMMA);
-
-        // initialize G_HDPC
-        for (int row = S; row < S + H; row++) {
-            for (int col = 0; col < W + U; col++) {
-                A.set(row, col, G_HDPC.get(row - S, col));
-            }
-        }
+        initializeG_HDPC(A, S, H, Kprime);
 
         // initialize G_ENC
         initializeG_ENC(A, S, H, L, Kprime);
@@ -361,18 +354,15 @@ final class LinearSystem {
 
     /**
      * Returns the indexes of the intermediate symbols that should be XORed to encode
-     * the symbol for the given tuple.
+     * the symbol for the given tuple. The indexes are distinct, and are not sorted.
      * 
      * @param Kprime
      * @param tuple
-     * @return Set of indexes.
+     * @return Array of indexes.
      */
-    static Set<Integer> encIndexes(int Kprime, Tuple tuple)
+    static int[] encIndexes(int Kprime, Tuple tuple)
     {
 
-        // allocate memory for the indexes
-        final Set<Integer> indexes = new HashSet<>(Kprime);
-
         // parameters
         final int Ki = SystematicIndices.getKIndex(Kprime);
         final int S = SystematicIndices.S(Ki);
@@ -380,7 +370,7 @@ final class LinearSystem {
         final int W = SystematicIndices.W(Ki);
         final long L = Kprime + S + H;
         final long P = L - W;
-        final long P1 = MatrixUtilities.ceilPrime(P);
+        final long P1 = tuple.getP1();
 
         // tuple parameters
         final long d = tuple.getD();
@@ -393,16 +383,20 @@ final class LinearSystem {
 
         long b1 = tuple.getB1();
 
+        // allocate memory for the indexes
+        final int[] indexes = new int[(int)(d + d1)];
+        int n = 0;
+
         /*
          * simulated encoding -- refer to section 5.3.3.3 of RFC 6330
          */
 
-        indexes.add((int)b);
+        indexes[n++] = (int)b;
 
         for (long j = 1; j < d; j++)
         {
             b = (b + a) % W;
-            indexes.add((int)b);
+            indexes[n++] = (int)b;
         }
 
         while (b1 >= P)
@@ -410,7 +404,7 @@ final class LinearSystem {
             b1 = (b1 + a1) % P1;
         }
 
-        indexes.add((int)(W + b1));
+        indexes[n++] = (int)(W + b1);
 
         for (long j = 1; j < d1; j++)
         {
@@ -418,69 +412,114 @@ final class LinearSystem {
                 b1 = (b1 + a1) % P1;
             while (b1 >= P);
 
-            indexes.add((int)(W + b1));
+            indexes[n++] = (int)(W + b1);
         }
 
         return indexes;
     }
 
     /**
-     * Encodes a source symbol.
+     * Encodes a symbol.
      * 
      * @param Kprime
      * @param C
-     * @param tuple
+     * @param isi
      * @param T
      * @return an encoding symbol
      */
-    static byte[] enc(int Kprime, byte[][] C, Tuple tuple, int T) {
+    static byte[] enc(int Kprime, byte[][] C, int isi, int T) {
 
-        // necessary parameters
-        final int Ki = SystematicIndices.getKIndex(Kprime);
-        final int S = SystematicIndices.S(Ki);
-        final int H = SystematicIndices.H(Ki);
-        final int W = SystematicIndices.W(Ki);
-        final long L = Kprime + S + H;
-        final long P = L - W;
-        final int P1 = (int)MatrixUtilities.ceilPrime(P);
-        final long d = tuple.getD();
-        final int a = (int)tuple.getA();
+        /*
+         * encoding -- refer to section 5.3.5.3 of RFC 6330
+         */
 
-        int b = (int)tuple.getB();
+        final int[] indexes = EncodingIndexes.get(Kprime, isi);
 
-        final long d1 = tuple.getD1();
-        final int a1 = (int)tuple.getA1();
+        // allocate memory and initialize the encoding symbol
+        final byte[] result = Arrays.copyOf(C[indexes[0]], T);
+        OctetOps.vectorGatherAddition(C, indexes, 1, indexes.length, result, T);
 
-        int b1 = (int)tuple.getB1();
+        return result;
+    }
 
-        // allocate memory and initialize the encoding symbol
-        final byte[] result = Arrays.copyOf(C[b], T);
+    /**
+     * Encodes a symbol from the intermediate symbols in an arena.
+     * 
+     * @param Kprime
+     * @param C
+     * @param isi
+     * @return an encoding symbol
+     */
+    static byte[] enc(int Kprime, SymbolArena C, int isi) {
+
+        final byte[] result = new byte[C.symbolSize()];
+        enc(Kprime, C, isi, result, 0);
+
+        return result;
+    }
+
+    /**
+     * Encodes a symbol from the intermediate symbols in an arena, into a position of an array.
+     * 
+     * @param Kprime
+     * @param C
+     * @param isi
+     * @param result
+     *            The array where the encoding symbol is written
+     * @param resPos
+     *            The position in the array of the encoding symbol
+     */
+    static void enc(int Kprime, SymbolArena C, int isi, byte[] result, int resPos) {
 
         /*
          * encoding -- refer to section 5.3.5.3 of RFC 6330
          */
 
-        for (long j = 1; j < d; j++)
-        {
-            b = (b + a) % W;
-            OctetOps.vectorVectorAddition(C[b], result, result);
-        }
+        final int[] indexes = EncodingIndexes.get(Kprime, isi);
+        final int T = C.symbolSize();
 
-        while (b1 >= P)
-            b1 = (b1 + a1) % P1;
+        // initialize the encoding symbol
+        System.arraycopy(C.array(), C.offset(indexes[0]), result, resPos, T);
+        OctetOps.vectorGatherAddition(C.array(), C.offsets(), indexes, 1, indexes.length, result, resPos, T);
+    }
 
-        OctetOps.vectorVectorAddition(C[W + b1], result, result);
+    /**
+     * Encodes multiple symbols from the intermediate symbols in an arena, into consecutive positions of an array.
+     * <p>
+     * The indexes of the intermediate symbols of every encoded symbol are computed first, and each encoded symbol is
+     * then accumulated directly in its position of the array, without any intermediate copies.
+     *
+     * @param Kprime
+     * @param C
+     * @param isis
+     *            The internal symbol identifiers of the encoded symbols
+     * @param result
+     *            The array where the encoded symbols are written, one after the other
+     * @param resPos
+     *            The position in the array of the first encoded symbol
+     */
+    static void enc(int Kprime, SymbolArena C, int[] isis, byte[] result, int resPos) {
 
-        for (long j = 1; j < d1; j++)
-        {
-            do
-                b1 = (b1 + a1) % P1;
-            while (b1 >= P);
+        /*
+         * encoding -- refer to section 5.3.5.3 of RFC 6330
+         */
+
+        final int T = C.symbolSize();
+        final byte[] data = C.array();
+        final int[] offsets = C.offsets();
 
-            OctetOps.vectorVectorAddition(C[W + b1], result, result);
+        final int[][] indexes = new int[isis.length][];
+        for (int n = 0; n < isis.length; n++) {
+            indexes[n] = EncodingIndexes.get(Kprime, isis[n]);
         }
 
-        return result;
+        for (int n = 0, symPos = resPos; n < isis.length; n++, symPos += T) {
+            final int[] symIndexes = indexes[n];
+
+            // initialize the encoding symbol with the first intermediate symbol, and add the remaining ones
+            System.arraycopy(data, offsets[symIndexes[0]], result, symPos, T);
+            OctetOps.vectorGatherAddition(data, offsets, symIndexes, 1, symIndexes.length, result, symPos, T);
+        }
     }
 
     /**
@@ -500,6 +539,49 @@ final class LinearSystem {
         throws SingularMatrixException
     {
 
+        // the symbols are only touched after the matrix is successfully eliminated
+        return PInactivationSchedule(A, Kprime).apply(D);
+    }
+
+    /**
+     * Solves the decoding system of linear equations using the permanent inactivation technique, over symbols in an
+     * arena.
+     * 
+     * @param A
+     *            The constraint matrix
+     * @param D
+     *            The arena with available symbols (modified in place)
+     * @param Kprime
+     *            The total number of source symbols for decoding
+     * @return the intermediate symbols, which share the array of D
+     * @throws SingularMatrixException
+     *             If the decoding fails
+     */
+    static SymbolArena PInactivationDecoding(ByteMatrix A, SymbolArena D, int Kprime)
+        throws SingularMatrixException
+    {
+
+        // the symbols are only touched after the matrix is successfully eliminated
+        return PInactivationSchedule(A, Kprime).apply(D);
+    }
+
+    /**
+     * Eliminates the constraint matrix using the permanent inactivation technique, and returns the schedule of
+     * operations that, when applied to the vector with available symbols, produces the intermediate symbols. The cost
+     * of this method does not depend on the size of the symbols.
+     * 
+     * @param A
+     *            The constraint matrix
+     * @param Kprime
+     *            The total number of source symbols for decoding
+     * @return the schedule of operations over the available symbols
+     * @throws SingularMatrixException
+     *             If the decoding fails
+     */
+    static SymbolSchedule PInactivationSchedule(ByteMatrix A, int Kprime)
+        throws SingularMatrixException
+    {
+
         // decoding parameters
         int Ki = SystematicIndices.getKIndex(Kprime);
         int S = SystematicIndices.S(Ki);
@@ -512,18 +594,76 @@ final class LinearSystem {
         // ISDCodeWriter.instance().prepare(); // DEBUG
         // ISDCodeWriter.instance().writeKprimeCode(Kprime); // DEBUG
 
-        return pidPhase1(A, D, Kprime, S, H, L, P, M);
+        return pidPhase1(A, Kprime, S, H, L, P, M, null);
     }
 
-    private static byte[][] pidPhase1(
-        final ByteMatrix A,
-        final byte[][] D,
+    /**
+     * Same as {@link #PInactivationSchedule(ByteMatrix, int)}, but instead of failing when the rank of the constraint
+     * matrix is too low, the elimination is suspended and returned as an incomplete schedule, to which more rows can be
+     * added.
+     * 
+     * @param A
+     *            The constraint matrix
+     * @param Kprime
+     *            The total number of source symbols for decoding
+     * @return a complete or incomplete schedule of operations over the available symbols
+     */
+    static ResumableSchedule resumablePInactivationSchedule(ByteMatrix A, int Kprime) {
+
+        // decoding parameters
+        int Ki = SystematicIndices.getKIndex(Kprime);
+        int S = SystematicIndices.S(Ki);
+        int H = SystematicIndices.H(Ki);
+        int W = SystematicIndices.W(Ki);
+        int L = Kprime + S + H;
+        int P = L - W;
+        int M = A.rows();
+
+        final ResumableSchedule resumable = new ResumableSchedule();
+        try {
+            final SymbolSchedule schedule = pidPhase1(A, Kprime, S, H, L, P, M, resumable);
+            if (schedule != null) {
+                resumable.setComplete(schedule);
+            }
+        }
+        catch (SingularMatrixException e) {
+            throw new AssertionError("resumable decoding cannot fail");
+        }
+
+        return resumable;
+    }
+
+    /*
+     * Performs the last three phases of the PI decoding, after U_lower became the identity matrix.
+     */
+    static SymbolSchedule resumePInactivationSchedule(
+        ByteMatrix A,
+        EliminationLog X,
+        SymbolSchedule schedule,
+        int[] d,
+        int[] c,
+        int L,
+        int i)
+    {
+
+        return pidPhase3(A, X, schedule, d, c, L, i);
+    }
+
+    // rows are identified by their original index in the constraint matrix
+    private static boolean isHDPCRow(int row, int S, int H) {
+
+        return row >= S && row < S + H;
+    }
+
+    private static SymbolSchedule pidPhase1(
+        ByteMatrix A,
         final int Kprime,
         final int S,
         final int H,
         final int L,
         final int P,
-        final int M)
+        final int M,
+        final ResumableSchedule resumable)
         throws SingularMatrixException
     {
 
@@ -552,7 +692,11 @@ final class LinearSystem {
             d[i] = i;
         }
 
-        final ByteMatrix X = A.copy();
+        // the row additions, from which the matrix X is obtained in the third phase
+        final EliminationLog log = new EliminationLog(L);
+
+        // the operations over the symbols
+        final SymbolSchedule schedule = new SymbolSchedule();
 
         // initialize i and u parameters, for the submatrices sizes
         int i = 0, u = P;
@@ -564,92 +708,127 @@ final class LinearSystem {
         // (these should be chosen first)
         int nonHDPCRows = S + Kprime;
 
-        // maps the index of a row to an object Row (which stores that row's characteristics)
-        final Map<Integer, Row> rows = new HashMap<>(M + 1, 1.0f);
+        /*
+         * the characteristics of each row are indexed by the original index of the row, which is also the index of
+         * the row inside D (the current position of a row is kept in rowPos, whose inverse is d)
+         */
+        final int[] rowPos = new int[M];
+        final int[] nonZeros = new int[M];
+        final int[] originalDegree = new int[M];
+
+        /*
+         * columns are identified by their original index in the constraint matrix (the current position of a column
+         * is kept in colPos, whose inverse is c); the columns of A are not physically swapped during this phase, so
+         * the column at position j is read from index c[j] of A
+         */
+        final int[] colPos = new int[L];
+        final boolean[] inV = new boolean[L];
+        for (int col = 0; col < L; col++) {
+            colPos[col] = col;
+            inV[col] = col < L - u;
+        }
+
+        // the rows of each column of V and the columns of V of each row (exclude last u columns)
+        final IncidenceLists incidence = IncidenceLists.fromMatrix(A, M, 0, L - u);
+
+        int maxR = 0;
+        int maxDegree = 0;
         for (int row = 0; row < M; row++) {
+            rowPos[row] = row;
+
             // retrieve the number of non-zeros in the row
-            final int nonZeros = A.nonZerosInRow(row, 0, L - u); // exclude last u columns
-            // is this a HDPC row?
-            final boolean isHDPC = (row >= S && row < S + H);
-
-            // this is an optimization
-            if (nonZeros == 2 && !isHDPC) {
-                int originalDegree = 0;
-                final Set<Integer> nodes = new HashSet<>(2 + 1, 1.0f); // we already know there are only 2 non zeros
-
-                ByteVectorIterator it = A.nonZeroRowIterator(row, 0, L - u);
-                while (it.hasNext()) {
-                    it.next();
-                    originalDegree += OctetOps.UNSIGN(it.get()); // add to the degree of this row
-                    nodes.add(it.index()); // add the column index to the nodes
-                }
+            nonZeros[row] = incidence.rowLength(row);
 
-                rows.put(row, new Row(row, nonZeros, originalDegree, isHDPC, nodes));
+            ByteVectorIterator it = A.readOnlyNonZeroRowIterator(row, 0, L - u);
+            while (it.hasNext()) {
+                it.next();
+                originalDegree[row] += OctetOps.UNSIGN(it.get()); // add to the degree of this row
             }
-            else {
-                int originalDegree = 0;
 
-                ByteVectorIterator it = A.nonZeroRowIterator(row, 0, L - u);
-                while (it.hasNext()) {
-                    it.next();
-                    originalDegree += OctetOps.UNSIGN(it.get()); // add to the degree of this row
-                }
+            if (!isHDPCRow(row, S, H)) {
+                maxR = Math.max(maxR, nonZeros[row]);
+                maxDegree = Math.max(maxDegree, originalDegree[row]);
+            }
+        }
 
-                rows.put(row, new Row(row, nonZeros, originalDegree, isHDPC));
+        // the non-HDPC rows with non-zeros in V, by number of non-zeros and original degree
+        final DegreeBucketQueue queue = new DegreeBucketQueue(M, maxR, maxDegree);
+        for (int row = 0; row < M; row++) {
+            if (!isHDPCRow(row, S, H) && nonZeros[row] != 0) {
+                queue.insert(row, nonZeros[row], originalDegree[row]);
             }
         }
 
+        /*
+         * the graph used when r is 2, which has the columns of V as nodes and the non-HDPC rows with exactly two
+         * non-zeros in V as edges; it is only built when first needed, and from then on its components are kept
+         * across steps, as edges appear and disappear
+         */
+        final GraphComponents graph = new GraphComponents(L, M);
+        boolean graphBuilt = false;
+
+        // the queued rows whose number of non-zeros changed in the current step, and that number at its beginning
+        final int[] changedRows = new int[M];
+        final int[] stepNonZeros = new int[M];
+        final int[] lastChangedStep = new int[M];
+        Arrays.fill(lastChangedStep, -1);
+
+        // the HDPC rows that were not chosen yet (these are at most 16, so they are simply scanned)
+        final int[] hdpcRows = new int[H];
+        int numHDPCRows = H;
+        for (int h = 0; h < H; h++) {
+            hdpcRows[h] = S + h;
+        }
+
         TimerUtils.markTimestamp(); // DEBUG
         initNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
 
         // at most L steps
         while (i + u != L)
         {
-            // the degree of the 'currently chosen' row
-            int minDegree = 256 * L;
-
-            // number of non-zeros in the 'currently chosen' row
-            int r = L + 1;
-
-            // currently chosen row
-            Row chosenRow = null;
-
-            // decoding failure?
-            boolean allZeros = true;
-
-            // there is a row with exactly two ones
-            boolean two1s = false;
-
             /*
              * find r
              */
 
             TimerUtils.beginTimer(); // DEBUG
 
-            for (Row row : rows.values()) {
-                if (row.nonZeros != 0) allZeros = false;
-                if (row.isHDPC && chosenRowsCounter < nonHDPCRows) continue;
-
-                // if it's an edge, then it must have exactly two 1's
-                if (row.nodes != null) two1s = true;
+            // currently chosen row (original index)
+            int chosenRow = queue.minRow();
 
-                if (row.nonZeros < r && row.nonZeros > 0) {
-                    chosenRow = row;
-                    r = chosenRow.nonZeros;
-                    minDegree = chosenRow.originalDegree;
-                }
-                else if (row.nonZeros == r && row.originalDegree < minDegree) {
-                    chosenRow = row;
-                    minDegree = chosenRow.originalDegree;
+            // number of non-zeros in the 'currently chosen' row
+            int r = (chosenRow == -1) ? L + 1 : queue.nonZeros(chosenRow);
+
+            // HDPC rows are only chosen after all non-HDPC rows (or if no other row intersects V)
+            int chosenHDPC = -1;
+            if (chosenRowsCounter >= nonHDPCRows || chosenRow == -1) {
+                int minDegree = (chosenRow == -1) ? Integer.MAX_VALUE : queue.degree(chosenRow);
+                for (int h = 0; h < numHDPCRows; h++) {
+                    final int row = hdpcRows[h];
+                    final int rowNonZeros = nonZeros[row];
+                    if (rowNonZeros > 0 &&
+                        (rowNonZeros < r || (rowNonZeros == r && originalDegree[row] < minDegree)))
+                    {
+                        chosenRow = row;
+                        chosenHDPC = h;
+                        r = rowNonZeros;
+                        minDegree = originalDegree[row];
+                    }
                 }
             }
 
             TimerUtils.markTimestamp(); // DEBUG
             findRNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
 
-            if (allZeros) {// DECODING FAILURE
-                throw new SingularMatrixException(
-                    "Decoding Failure - PI Decoding @ Phase 1: All entries in V are zero.");
+            if (chosenRow == -1) {// DECODING FAILURE
+                if (resumable == null) {
+                    throw new SingularMatrixException(
+                        "Decoding Failure - PI Decoding @ Phase 1: All entries in V are zero.");
+                }
+                else {
+                    // inactivate the remaining columns of V, so that the rows added later can be reduced in U_lower
+                    u = L - i;
+                    break;
+                }
             }
 
             /*
@@ -658,191 +837,34 @@ final class LinearSystem {
 
             TimerUtils.beginTimer(); // DEBUG
 
-            if (r == 2 && two1s) {
-
-                /*
-                 * create graph
-                 */
-
-                // allocate memory
-                Map<Integer, Set<Integer>> graph = new HashMap<>(L - u - i + 1, 1.0f);
-
-                // lets go through all the rows... (yet again!)
-                for (Row row : rows.values())
-                {
-                    // is this row an edge?
-                    if (row.nodes != null)
-                    {
-                        // get the nodes connected through this edge
-                        Integer[] edge = row.nodes.toArray(new Integer[2]);
-                        int node1 = edge[0];
-                        int node2 = edge[1];
-
-                        // node1 already in graph?
-                        if (graph.keySet().contains(node1))
-                        { // it is
-
-                            // then lets add node 2 to its neighbours
-                            graph.get(node1).add(node2);
-                        }
-                        else
-                        { // it isn't
-
-                            // allocate memory for its neighbours
-                            Set<Integer> edges = new HashSet<>(L - u - i + 1, 1.0f);
-
-                            // add node 2 to its neighbours
-                            edges.add(node2);
-
-                            // finally, add node 1 to the graph along with its neighbours
-                            graph.put(node1, edges);
-                        }
-
-                        // node2 already in graph?
-                        if (graph.keySet().contains(node2))
-                        { // it is
-
-                            // then lets add node 1 to its neighbours
-                            graph.get(node2).add(node1);
-                        }
-                        else
-                        { // it isn't
-
-                            // allocate memory for its neighbours
-                            Set<Integer> edges = new HashSet<>(L - u - i + 1, 1.0f);
-
-                            // add node 1 to its neighbours
-                            edges.add(node1);
-
-                            // finally, add node 2 to the graph along with its neighbours
-                            graph.put(node2, edges);
-                        }
-                    }
-                    else continue;
-                }
-
-                /*
-                 * the graph is complete, now we must
-                 * find the maximum size component
-                 */
-
-                // set of visited nodes
-                Set<Integer> visited = null;
-
-                /*
-                 * TODO Optimization: I already searched, and there are optimized algorithms to find connected
-                 * components. Then we just find and use the best one available...
-                 */
-
-                // what is the size of the largest component we've already found
-                int maximumSize = 0;
-
-                // the maximum size component
-                Set<Integer> greatestComponent = null;
-
-                // which nodes have already been used (either in visited or in toVisit)
-                Set<Integer> used = new HashSet<>(L - u - i + 1, 1.0f);
-
-                // iterates the nodes in the graph
-                Iterator<Map.Entry<Integer, Set<Integer>>> it = graph.entrySet().iterator();
-
-                // let's iterate through the nodes in the graph, looking for the maximum
-                // size component. we will be doing a breadth first search // TODO optimize this with a better
-                // algorithm?
-                while (it.hasNext())
-                {
-                    // get our initial node
-                    Map.Entry<Integer, Set<Integer>> node = it.next();
-                    int initialNode = node.getKey();
-
-                    // we can't have used it before!
-                    if (used.contains(initialNode)) continue;
-
-                    // what are the edges of our initial node?
-                    Integer[] edges = node.getValue().toArray(new Integer[node.getValue().size()]);
-
-                    // allocate memory for the set of visited nodes
-                    visited = new HashSet<>(L - u - i + 1, 1.0f);
-
-                    // the set of nodes we must still visit
-                    List<Integer> toVisit = new LinkedList<>();
-
-                    // add the initial node to the set of used and visited nodes
-                    visited.add(initialNode);
-                    used.add(initialNode);
-
-                    // add my edges to the set of nodes we must visit
-                    // and also put them in the used set
-                    for (Integer edge : edges)
-                    {
-                        toVisit.add(edge);
-                        used.add(edge);
-                    }
-
-                    // start the search!
-                    while (toVisit.size() != 0)
-                    {
-                        // the node we are visiting
-                        int no = toVisit.remove(0);
-
-                        // add node to visited set
-                        visited.add(no);
-
-                        // queue edges to be visited (if they haven't been already
-                        for (Integer edge : graph.get(no))
-                            if (!visited.contains(edge)) toVisit.add(edge);
-                    }
-
-                    // is the number of visited nodes, greater than the 'currently' largest component?
-                    if (visited.size() > maximumSize)
-                    { // it is! we've found a greater component then...
-
-                        // update the maximum size
-                        maximumSize = visited.size();
-
-                        // update our greatest component
-                        greatestComponent = visited;
-                    }
-                    else continue;
-                }
-
-                /*
-                 * we've found the maximum size connected component -- 'greatestComponent'
-                 */
-
-                // let's choose the row
-                for (Row row : rows.values())
-                {
-                    // is it a node in the graph?
-                    if (row.nodes != null)
-                    { // it is
-
-                        // get the nodes connected through this edge
-                        Integer[] edge = row.nodes.toArray(new Integer[2]);
-                        int node1 = edge[0];
-                        int node2 = edge[1];
-
-                        // is this row an edge in the maximum size component?
-                        if (greatestComponent.contains(node1) && greatestComponent.contains(node2))
-                        {
-                            chosenRow = row;
-                            break;
-                        }
-                        else continue;
+            // if it's an edge, then it must have exactly two 1's
+            final boolean chosenEdge = r == 2 && queue.bucketSize(2) != 0;
+            if (chosenEdge) {
+                if (!graphBuilt) {
+                    for (int row = queue.firstInBucket(2); row != -1; row = queue.nextInBucket(row)) {
+                        addEdge(graph, incidence, inV, row);
                     }
-                    else continue;
+                    graphBuilt = true;
                 }
 
-                chosenRowsCounter++;
+                // let's choose the row (an edge in a maximum size component)
+                chosenRow = graph.largestComponentEdge();
+                chosenHDPC = -1;
 
                 TimerUtils.markTimestamp(); // DEBUG
                 chooseRowNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
             }
-            else {
 
-                // already chosen (in 'find r')
-                chosenRowsCounter++;
+            chosenRowsCounter++;
+
+            // the chosen row no longer intersects V
+            if (chosenHDPC == -1) {
+                queue.remove(chosenRow);
+            }
+            else {
+                hdpcRows[chosenHDPC] = hdpcRows[--numHDPCRows];
             }
+            nonZeros[chosenRow] = 0;
 
             /*
              * a row has been chosen! -- 'chosenRow'
@@ -853,7 +875,7 @@ final class LinearSystem {
              * with the chosen row so that the chosen row is the first row that intersects V."
              */
 
-            final int chosenRowPos = chosenRow.position;
+            final int chosenRowPos = rowPos[chosenRow];
 
             // if the chosen row is not 'i' already
             if (chosenRowPos != i) {
@@ -862,18 +884,13 @@ final class LinearSystem {
                 // swap in A
                 A.swapRows(i, chosenRowPos);
 
-                // swap in X
-                X.swapRows(i, chosenRowPos);
+                // update the positions of both rows
+                rowPos[d[i]] = chosenRowPos;
+                rowPos[chosenRow] = i;
 
                 // decoding process - swap in d
                 ArrayUtils.swapInts(d, i, chosenRowPos);
 
-                // update values in 'rows' map
-                Row other = rows.remove(i);
-                rows.put(chosenRowPos, other);
-                other.position = chosenRowPos;
-                chosenRow.position = i;
-
                 TimerUtils.markTimestamp(); // DEBUG
                 swapRowsNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
             }
@@ -886,8 +903,21 @@ final class LinearSystem {
 
             TimerUtils.beginTimer(); // DEBUG
 
+            // the columns of V with the non-zeros of the chosen row
+            final int[] nonZeroCols = new int[r];
+            for (int n = incidence.rowStart(chosenRow), nz = 0; nz < r; n++) {
+                final int col = incidence.rowColumn(n);
+                if (inV[col]) {
+                    nonZeroCols[nz++] = col;
+                }
+            }
+
             // an array with the positions (column indices) of the non-zeros
-            final int[] nonZeroPos = A.nonZeroPositionsInRow(i, i, L - u);
+            final int[] nonZeroPos = new int[r];
+            for (int nz = 0; nz < r; nz++) {
+                nonZeroPos[nz] = colPos[nonZeroCols[nz]];
+            }
+            Arrays.sort(nonZeroPos);
 
             /*
              * lets start swapping columns!
@@ -897,13 +927,7 @@ final class LinearSystem {
             final int firstNZpos = nonZeroPos[0]; // the chosen row always has at least one non-zero
             if (i != firstNZpos) {
                 // no, so swap the first column in V (i) with the first non-zero column
-
-                // swap columns
-                A.swapColumns(i, firstNZpos);
-                X.swapColumns(i, firstNZpos);
-
-                // decoding process - swap in c
-                ArrayUtils.swapInts(c, i, firstNZpos);
+                swapColumns(c, colPos, i, firstNZpos);
             }
 
             // swap the remaining non-zeros' columns so that they're the last columns in V
@@ -912,13 +936,7 @@ final class LinearSystem {
                 final int currNZpos = nonZeroPos[nzp];
                 if (currCol != currNZpos) {
                     // no, so swap the current column in V with the current non-zero column
-
-                    // swap columns
-                    A.swapColumns(currCol, currNZpos);
-                    X.swapColumns(currCol, currNZpos);
-
-                    // decoding process - swap in c
-                    ArrayUtils.swapInts(c, currCol, currNZpos);
+                    swapColumns(c, colPos, currCol, currNZpos);
                 }
             }
 
@@ -934,14 +952,21 @@ final class LinearSystem {
             TimerUtils.beginTimer(); // DEBUG
 
             // "the chosen row has entry alpha in the first column of V"
-            final byte alpha = A.get(i, i);
+            final int firstCol = c[i];
+            final byte alpha = A.get(i, firstCol);
+            log.addPivot(alpha);
 
-            // let's look at all rows below the chosen one
-            for (int row = i + 1; row < M; row++)
+            // let's look at all rows below the chosen one (only those that have a non-zero in the first column of V)
+            for (int n = incidence.columnStart(firstCol); n < incidence.columnEnd(firstCol); n++)
             // Page35@RFC6330 1st Par.
             {
+                final int row = rowPos[incidence.columnRow(n)];
+                if (row <= i) {
+                    continue;
+                }
+
                 // "if a row below the chosen row has entry beta in the first column of V"
-                final byte beta = A.get(row, i);
+                final byte beta = A.get(row, firstCol);
 
                 // if it's already 0, no problem
                 if (beta == 0) {
@@ -961,7 +986,10 @@ final class LinearSystem {
                     A.addRowsInPlace(betaOverAlpha, i, row);
 
                     // decoding process - D[d[row]] + (betaOverAlpha * D[d[i]])
-                    OctetOps.vectorVectorAddition(betaOverAlpha, D[d[i]], D[d[row]], D[d[row]]);
+                    schedule.addSymbolAddition(betaOverAlpha, d[i], d[row]);
+
+                    // "beta" is the entry of X in this row and in the column of the chosen row
+                    log.addElimination(d[row], beta);
 
                     // ISDCodeWriter.instance().writePhase1Code(betaOverAlpha, d[i], d[row]); // DEBUG
                 }
@@ -970,34 +998,61 @@ final class LinearSystem {
             TimerUtils.markTimestamp(); // DEBUG
             addMultiplyNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
 
-            /*
-             * "Finally, i is incremented by 1 and u is incremented by r-1, which completes the step."
-             */
-            i++;
-            u += r - 1;
-
             TimerUtils.beginTimer(); // DEBUG
 
             // update nonZeros
-            for (Row row : rows.values()) {
-                // update the non zero count
-                row.nonZeros = A.nonZerosInRow(row.position, i, L - u);
+            int numChangedRows = 0;
+            // the columns of the chosen row leave V, and only the rows with non-zeros in those columns change
+            for (int col : nonZeroCols) {
+                inV[col] = false;
+
+                for (int n = incidence.columnStart(col); n < incidence.columnEnd(col); n++) {
+                    final int row = incidence.columnRow(n);
+                    if (rowPos[row] > i) {
+                        if (queue.contains(row)) {
+                            if (lastChangedStep[row] != i) {
+                                lastChangedStep[row] = i;
+                                changedRows[numChangedRows++] = row;
+                                stepNonZeros[row] = nonZeros[row];
+                            }
+
+                            // update the non zero count
+                            queue.update(row, --nonZeros[row]);
+                        }
+                        else {
+                            // update the non zero count
+                            nonZeros[row]--;
+                        }
+                    }
+                }
+            }
 
-                if (row.nonZeros != 2 || row.isHDPC) {
-                    row.nodes = null;
+            // update the graph with the edges that were removed or added in this step
+            if (graphBuilt) {
+                if (chosenEdge) {
+                    graph.removeEdge(chosenRow);
                 }
-                else {
-                    final Set<Integer> nodes = new HashSet<>(2 + 1, 1.0f); // we know there will only be two non zeros
-                    ByteVectorIterator it = A.nonZeroRowIterator(row.position, i, L - u);
-                    while (it.hasNext()) {
-                        it.next();
-                        nodes.add(it.index()); // add node to this edge (column index)
+                for (int n = 0; n < numChangedRows; n++) {
+                    final int row = changedRows[n];
+                    if (stepNonZeros[row] == 2) {
+                        graph.removeEdge(row);
+                    }
+                }
+                graph.finishRemovals();
+                for (int n = 0; n < numChangedRows; n++) {
+                    final int row = changedRows[n];
+                    if (nonZeros[row] == 2 && stepNonZeros[row] != 2) {
+                        addEdge(graph, incidence, inV, row);
                     }
-
-                    row.nodes = nodes;
                 }
             }
 
+            /*
+             * "Finally, i is incremented by 1 and u is incremented by r-1, which completes the step."
+             */
+            i++;
+            u += r - 1;
+
             TimerUtils.markTimestamp(); // DEBUG
             countNonZerosNanos += TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS);
         }
@@ -1013,19 +1068,59 @@ final class LinearSystem {
         debugPrintlnMillis("  add/mult row", addMultiplyNanos);
         debugPrintlnMillis("  count nonzeros", countNonZerosNanos);
 
-        return pidPhase2(A, X, D, d, c, L, M, i, u);
+        TimerUtils.beginTimer(); // DEBUG
+
+        // apply the column permutation to A, and keep only the entries of X in the first i rows
+        final int[] allRows = new int[M];
+        for (int row = 0; row < M; row++) {
+            allRows[row] = row;
+        }
+        A = A.select(allRows, c);
+        log.groupByRowPosition(rowPos);
+
+        TimerUtils.markTimestamp(); // DEBUG
+        debugPrintlnMillis("  permute columns", TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS));
+
+        return pidPhase2(A, log, schedule, d, c, L, M, i, u, resumable);
+    }
+
+    // requires the row to have exactly two non-zeros in V
+    private static void addEdge(GraphComponents graph, IncidenceLists incidence, boolean[] inV, int row) {
+
+        int node1 = -1;
+        for (int n = incidence.rowStart(row);; n++) {
+            final int col = incidence.rowColumn(n);
+            if (inV[col]) {
+                if (node1 == -1) {
+                    node1 = col;
+                }
+                else {
+                    graph.addEdge(row, node1, col);
+                    return;
+                }
+            }
+        }
     }
 
-    private static byte[][] pidPhase2(
+    private static void swapColumns(int[] c, int[] colPos, int a, int b) {
+
+        // decoding process - swap in c
+        ArrayUtils.swapInts(c, a, b);
+        colPos[c[a]] = a;
+        colPos[c[b]] = b;
+    }
+
+    private static SymbolSchedule pidPhase2(
         final ByteMatrix A,
-        final ByteMatrix X,
-        final byte[][] D,
+        final EliminationLog X,
+        final SymbolSchedule schedule,
         final int[] d,
         final int[] c,
         final int L,
         final int M,
         final int i,
-        final int u)
+        final int u,
+        final ResumableSchedule resumable)
         throws SingularMatrixException
     {
 
@@ -1046,12 +1141,19 @@ final class LinearSystem {
          */
 
         // reduce U_lower to row echelon form
-        MatrixUtilities.reduceToRowEchelonForm(A, i, M, L - u, L, d, D);
+        MatrixUtilities.reduceToRowEchelonForm(A, i, M, L - u, L, d, schedule);
 
         // check U_lower's rank, if it's less than 'u' we've got a decoding failure
         if (MatrixUtilities.nonZeroRows(A, i, M, i, L) < u) {
-            throw new SingularMatrixException(
-                "Decoding Failure - PI Decoding @ Phase 2: U_lower's rank is less than u.");
+            if (resumable == null) {
+                throw new SingularMatrixException(
+                    "Decoding Failure - PI Decoding @ Phase 2: U_lower's rank is less than u.");
+            }
+            else {
+                // keep the elimination so far, to be resumed when more rows are available
+                resumable.setIncomplete(A, X, schedule, d, c, L, M, i, u);
+                return null;
+            }
         }
 
         /*
@@ -1062,13 +1164,13 @@ final class LinearSystem {
         TimerUtils.markTimestamp();
         debugPrintlnMillis("2nd", TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS));
 
-        return pidPhase3(A, X, D, d, c, L, i);
+        return pidPhase3(A, X, schedule, d, c, L, i);
     }
 
-    private static byte[][] pidPhase3(
-        ByteMatrix A,
-        final ByteMatrix X,
-        final byte[][] D,
+    private static SymbolSchedule pidPhase3(
+        final ByteMatrix A,
+        final EliminationLog X,
+        final SymbolSchedule schedule,
         final int[] d,
         final int[] c,
         final int L,
@@ -1081,38 +1183,43 @@ final class LinearSystem {
          * "... the matrix X is multiplied with the submatrix of A consisting of the first i rows of A."
          */
 
-        final int Arows = i;
-        final int Acols = L;
-        final int Xrows = Arows;
-        final int Xcols = Arows;
+        /*
+         * X is lower triangular, so each of the first i rows of A and D can be replaced in place by its product with
+         * the respective row of X, as long as the rows are visited from the last to the first (each product only
+         * depends on the current row and on the rows above it)
+         */
+        for (int row = i - 1; row >= 0; row--) {
+            // X[row, row] is the pivot alpha
+            final byte alpha = X.alpha(row);
+            if (alpha != 1) {
+                A.divideRowInPlace(row, OctetOps.aDividedByB((byte)1, alpha));
+
+                // decoding process - alpha * D[d[row]] (the same as D[d[row]] / (1 / alpha))
+                schedule.addSymbolBetaDivision(OctetOps.aDividedByB((byte)1, alpha), d[row]);
+            }
 
-        // A can be safely re-assigned because the product matrix has the same dimensions of A
-        A = X.multiply(A, 0, Xrows, 0, Xcols, 0, Arows, 0, Acols);
+            // the remaining non-zeros of X[row] are the values beta below the pivots of the previous rows
+            for (int n = X.positionStart(row); n < X.positionEnd(row); n++) {
+                final int pivot = X.pivot(n);
+                final byte beta = X.beta(n);
 
-        // decoding process
-        final int Drows = Xrows;
-        final int Dcols = (D.length == 0) ? 0 : D[0].length;
-        final byte[][] DShallowCopy = Arrays.copyOf(D, D.length);
-        final ByteMatrix DM = new RowIndirected2DByteMatrix(Drows, Dcols, DShallowCopy, d);
+                A.addRowsInPlace(beta, pivot, row);
 
-        for (int row = 0; row < Xrows; row++) {
-            // multiply X[row] by D
-            BasicByteVector prod = (BasicByteVector)X.multiplyRow(row, DM, 0, Xcols, LinearAlgebra.BASIC2D_FACTORY);
-            D[d[row]] = prod.getInternalArray();
+                // decoding process - (beta * D[d[pivot]]) + D[d[row]]
+                schedule.addSymbolAddition(beta, d[pivot], d[row]);
+            }
         }
 
-        // ISDCodeWriter.instance().writePhase3Code(X, Xrows, Xcols, d); // DEBUG
-
         // DEBUG
         TimerUtils.markTimestamp();
         debugPrintlnMillis("3rd", TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS));
 
-        return pidPhase4(A, D, d, c, L, i);
+        return pidPhase4(A, schedule, d, c, L, i);
     }
 
-    private static byte[][] pidPhase4(
+    private static SymbolSchedule pidPhase4(
         final ByteMatrix A,
-        final byte[][] D,
+        final SymbolSchedule schedule,
         final int[] d,
         final int[] c,
         final int L,
@@ -1145,7 +1252,7 @@ final class LinearSystem {
                 // ISDCodeWriter.instance().writePhase4Code(b, d[j], d[row]); // DEBUG
 
                 // decoding process - (beta * D[d[j]]) + D[d[row]]
-                OctetOps.vectorVectorAddition(b, D[d[j]], D[d[row]], D[d[row]]);
+                schedule.addSymbolAddition(b, d[j], d[row]);
             }
         }
 
@@ -1153,12 +1260,12 @@ final class LinearSystem {
         TimerUtils.markTimestamp();
         debugPrintlnMillis("4th", TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS));
 
-        return pidPhase5(A, D, d, c, L, i);
+        return pidPhase5(A, schedule, d, c, L, i);
     }
 
-    private static byte[][] pidPhase5(
+    private static SymbolSchedule pidPhase5(
         final ByteMatrix A,
-        final byte[][] D,
+        final SymbolSchedule schedule,
         final int[] d,
         final int[] c,
         final int L,
@@ -1178,7 +1285,7 @@ final class LinearSystem {
                 // ISDCodeWriter.instance().writePhase5Code_1(beta, d[j]); // DEBUG
 
                 // decoding process - D[d[j]] / beta
-                OctetOps.valueVectorDivision(beta, D[d[j]], D[d[j]]); // in place division
+                schedule.addSymbolBetaDivision(beta, d[j]);
             }
 
             // "For eL from 1 to j-1"
@@ -1197,7 +1304,7 @@ final class LinearSystem {
                 // ISDCodeWriter.instance().writePhase5Code_2(beta, d[eL], d[j]); // DEBUG
 
                 // decoding process - (beta * D[d[eL]]) + D[d[j]]
-                OctetOps.vectorVectorAddition(beta, D[d[eL]], D[d[j]], D[d[j]]);
+                schedule.addSymbolAddition(beta, d[eL], d[j]);
             }
         }
 
@@ -1205,17 +1312,13 @@ final class LinearSystem {
         TimerUtils.markTimestamp();
         debugPrintlnMillis("5th", TimerUtils.getEllapsedTimeLong(TimeUnit.NANOSECONDS));
 
-        final byte[][] C = new byte[L][];
-
         // reorder C
-        for (int index = 0; index < L; index++) {
-            C[c[index]] = D[d[index]];
-        }
+        schedule.setSymbolReordering(L, c, d);
 
         // ISDCodeWriter.instance().writeReorderCode(L, c, d); // DEBUG
         // ISDCodeWriter.instance().generateCode(); // DEBUG
 
-        return C;
+        return schedule;
     }
 
     private LinearSystem() {
@@ -219,6 +219,20 @@ final class MatrixUtilities {
         int[] d,
         byte[][] D) {
 
+        final SymbolSchedule schedule = new SymbolSchedule();
+        reduceToRowEchelonForm(A, fromRow, toRow, fromCol, toCol, d, schedule);
+        schedule.apply(D);
+    }
+
+    static void reduceToRowEchelonForm(
+        ByteMatrix A,
+        final int fromRow,
+        final int toRow,
+        final int fromCol,
+        final int toCol,
+        int[] d,
+        SymbolSchedule schedule) {
+
         int lead = fromCol;
         for (int r = fromRow; r < toRow; r++) {
             if (lead >= toCol) {
@@ -248,8 +262,7 @@ final class MatrixUtilities {
                 A.divideRowInPlace(r, beta);
                 // decoding process - divide D[d[r]] by U_lower[r][lead]
                 // byte[] / beta
-                final int dIndex = d[r];
-                OctetOps.valueVectorDivision(beta, D[dIndex], D[dIndex]); // in place division
+                schedule.addSymbolBetaDivision(beta, d[r]);
             }
 
             for (i = fromRow; i < toRow; i++) {
@@ -260,7 +273,7 @@ final class MatrixUtilities {
                     // NOTE: here, subtraction is the same as addition
                     A.addRowsInPlace(beta, r, i);
                     // decoding process - D[d[i]] - (U_lower[i][lead] * D[d[r]])
-                    OctetOps.vectorVectorAddition(beta, D[d[r]], D[d[i]], D[d[i]]);
+                    schedule.addSymbolAddition(beta, d[r], d[i]);
                 }
             }
 
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import net.fec.openrq.util.math.OctetOps;
+
+
+/**
+ * An incremental ("on the fly") Gaussian elimination of a decoding system, where each row (along with its symbol) is
+ * reduced as soon as it is added, so that the intermediate symbols are available right after the system reaches full
+ * rank.
+ * <p>
+ * The rows that increased the rank (the pivot rows) are kept in row echelon form: each one is the pivot of its first
+ * non-zero column. A new row is reduced by the pivot of its first non-zero column until it finds a column without a
+ * pivot, or until it has no non-zeros left (being redundant). When the new row has fewer non-zeros than the pivot in the
+ * first LT columns, the two rows are swapped and the former pivot is reduced instead, so that the pivots stay sparse.
+ * <p>
+ * The first {@code W} columns (the LT symbols) are stored sparsely, since the LT and LDPC rows only have a few
+ * non-zeros in them; the rows with many non-zeros in those columns (such as the HDPC rows) are stored densely instead.
+ * The last {@code L - W} columns (the permanently inactivated symbols) are always stored densely, since the elimination
+ * fills them in. The pivots are only solved for the intermediate symbols, by back substitution, once the system reaches
+ * full rank.
+ */
+final class OnlineEliminator {
+
+    private static final int NONE = -1;
+
+    // the minimum number of non-zeros in the LT columns from which rows are stored densely
+    private static final int MIN_DENSE_WEIGHT = 32;
+
+
+    private final int L;
+    private final int W;
+    private final int P;
+    private final int denseWeight;
+
+    // indexed by column
+    private final Row[] pivots;
+
+    // the merged non-zeros of two sparse rows
+    private int[] mergeCols;
+    private byte[] mergeVals;
+
+    private int rank;
+
+
+    /**
+     * @param L
+     *            The number of intermediate symbols (the number of columns of the system)
+     * @param W
+     *            The number of LT symbols (the first {@code W} columns of the system)
+     */
+    OnlineEliminator(int L, int W) {
+
+        this.L = L;
+        this.W = W;
+        this.P = L - W;
+        this.denseWeight = Math.max(MIN_DENSE_WEIGHT, W / 16);
+
+        this.pivots = new Row[L];
+
+        this.mergeCols = new int[2 * denseWeight + 2];
+        this.mergeVals = new byte[2 * denseWeight + 2];
+
+        this.rank = 0;
+    }
+
+    /**
+     * Returns the rank of the rows added so far.
+     */
+    int rank() {
+
+        return rank;
+    }
+
+    /**
+     * Returns {@code true} if the system has full rank, and the intermediate symbols are available.
+     */
+    boolean isComplete() {
+
+        return rank == L;
+    }
+
+    /**
+     * Adds a row and its symbol to the system; the symbol array is modified and kept by this object.
+     *
+     * @param columns
+     *            The distinct columns of the non-zeros of the row, in any order
+     * @param values
+     *            The non-zeros of the row, in the same order as the columns
+     * @param symbol
+     *            The symbol of the row
+     * @return {@code true} if the row increased the rank of the system, or {@code false} if it was discarded for
+     *         being a linear combination of the previous rows
+     */
+    boolean addRow(int[] columns, byte[] values, byte[] symbol) {
+
+        Row row = newRow(columns, values, symbol);
+
+        // reduce the LT columns, keeping the sparser row as pivot
+        int col;
+        while ((col = ltLeader(row)) != NONE) {
+            Row pivot = pivots[col];
+            if (pivot == null) {
+                setPivot(col, row);
+                return true;
+            }
+
+            if (row.weight < pivot.weight) {
+                setPivot(col, row);
+                final Row swapped = pivot;
+                pivot = row;
+                row = swapped;
+            }
+            eliminate(row, ltCoefficient(row, col), pivot, ltCoefficient(pivot, col));
+        }
+
+        // reduce the permanently inactivated columns
+        while ((col = piLeader(row)) != NONE) {
+            final Row pivot = pivots[col];
+            if (pivot == null) {
+                setPivot(col, row);
+                return true;
+            }
+
+            eliminate(row, row.piCoefs[col - W], pivot, pivot.piCoefs[col - W]);
+        }
+
+        // no non-zeros left, so the row is redundant
+        return false;
+    }
+
+    /**
+     * Returns the intermediate symbols, indexed by column.
+     */
+    // requires isComplete(); the pivots are solved in place, so this method can only be called once
+    byte[][] intermediateSymbols() {
+
+        final byte[][] C = new byte[L][];
+
+        // the non-zeros of the current pivot after its pivot column
+        final int[] opRows = new int[L];
+        final byte[] opValues = new byte[L];
+
+        // every pivot only depends on the symbols of the columns after its own
+        for (int col = L - 1; col >= 0; col--) {
+            final Row pivot = pivots[col];
+
+            int numOps = 0;
+            final byte alpha;
+            if (col < W) {
+                alpha = ltCoefficient(pivot, col);
+                if (pivot.isSparse()) {
+                    for (int n = 1; n < pivot.size; n++) {
+                        opRows[numOps] = pivot.cols[n];
+                        opValues[numOps] = pivot.vals[n];
+                        numOps++;
+                    }
+                }
+                else {
+                    for (int c = col + 1; c < W; c++) {
+                        if (pivot.coefs[c] != 0) {
+                            opRows[numOps] = c;
+                            opValues[numOps] = pivot.coefs[c];
+                            numOps++;
+                        }
+                    }
+                }
+            }
+            else {
+                alpha = pivot.piCoefs[col - W];
+            }
+
+            for (int j = Math.max(0, col + 1 - W); j < P; j++) {
+                if (pivot.piCoefs[j] != 0) {
+                    opRows[numOps] = W + j;
+                    opValues[numOps] = pivot.piCoefs[j];
+                    numOps++;
+                }
+            }
+
+            final byte[] symbol = pivot.symbol;
+            OctetOps.vectorGatherAddition(opValues, C, opRows, 0, numOps, symbol, symbol.length);
+            if (alpha != 1) {
+                OctetOps.valueVectorDivision(alpha, symbol, symbol); // in place division
+            }
+            C[col] = symbol;
+        }
+
+        return C;
+    }
+
+    private Row newRow(int[] columns, byte[] values, byte[] symbol) {
+
+        final Row row = new Row(P, symbol);
+
+        int ltWeight = 0;
+        for (int col : columns) {
+            if (col < W) ltWeight++;
+        }
+
+        if (ltWeight > denseWeight) {
+            row.coefs = new byte[W];
+            row.first = W;
+        }
+        else {
+            row.cols = new int[ltWeight];
+            row.vals = new byte[ltWeight];
+        }
+
+        for (int n = 0; n < columns.length; n++) {
+            final int col = columns[n];
+            if (col >= W) {
+                row.piCoefs[col - W] = values[n];
+            }
+            else if (row.isSparse()) {
+                // insertion sort, which is linear for the (usual) sorted columns
+                int pos = row.size++;
+                while (pos > 0 && row.cols[pos - 1] > col) {
+                    row.cols[pos] = row.cols[pos - 1];
+                    row.vals[pos] = row.vals[pos - 1];
+                    pos--;
+                }
+                row.cols[pos] = col;
+                row.vals[pos] = values[n];
+            }
+            else {
+                row.coefs[col] = values[n];
+                row.first = Math.min(row.first, col);
+            }
+        }
+        row.weight = ltWeight;
+
+        return row;
+    }
+
+    private void setPivot(int col, Row row) {
+
+        if (!row.isSparse() && row.weight <= denseWeight) {
+            toSparse(row);
+        }
+        if (pivots[col] == null) {
+            rank++;
+        }
+        pivots[col] = row;
+    }
+
+    // the first non-zero LT column of the row, or NONE
+    private static int ltLeader(Row row) {
+
+        if (row.weight == 0) {
+            return NONE;
+        }
+        else if (row.isSparse()) {
+            return row.cols[0];
+        }
+        else {
+            while (row.coefs[row.first] == 0) {
+                row.first++;
+            }
+            return row.first;
+        }
+    }
+
+    // the first non-zero permanently inactivated column of the row, or NONE
+    private int piLeader(Row row) {
+
+        for (int j = 0; j < P; j++) {
+            if (row.piCoefs[j] != 0) {
+                return W + j;
+            }
+        }
+        return NONE;
+    }
+
+    // requires col to be the first non-zero LT column of the row
+    private static byte ltCoefficient(Row row, int col) {
+
+        return row.isSparse() ? row.vals[0] : row.coefs[col];
+    }
+
+    // row = row - (rowCoef / pivotCoef) * pivot, which zeroes the pivot column of the row
+    private void eliminate(Row row, byte rowCoef, Row pivot, byte pivotCoef) {
+
+        final byte beta = OctetOps.aDividedByB(rowCoef, pivotCoef);
+
+        if (pivot.weight > 0) {
+            if (!pivot.isSparse()) {
+                if (row.isSparse()) {
+                    toDense(row);
+                }
+                for (int c = pivot.first; c < W; c++) {
+                    if (pivot.coefs[c] != 0) {
+                        addToDense(row, c, OctetOps.aTimesB(beta, pivot.coefs[c]));
+                    }
+                }
+            }
+            else if (!row.isSparse()) {
+                for (int n = 0; n < pivot.size; n++) {
+                    addToDense(row, pivot.cols[n], OctetOps.aTimesB(beta, pivot.vals[n]));
+                }
+            }
+            else {
+                merge(row, beta, pivot);
+                if (row.weight > denseWeight) {
+                    toDense(row);
+                }
+            }
+        }
+
+        OctetOps.vectorVectorAddition(beta, pivot.piCoefs, row.piCoefs, row.piCoefs);
+        OctetOps.vectorVectorAddition(beta, pivot.symbol, row.symbol, row.symbol);
+    }
+
+    private static void addToDense(Row row, int col, byte value) {
+
+        final byte old = row.coefs[col];
+        final byte sum = OctetOps.aPlusB(old, value);
+        row.coefs[col] = sum;
+
+        if (old == 0) {
+            row.weight++;
+            row.first = Math.min(row.first, col);
+        }
+        else if (sum == 0) {
+            row.weight--;
+        }
+    }
+
+    // row = row + beta * pivot, for sparse rows
+    private void merge(Row row, byte beta, Row pivot) {
+
+        final int maxSize = row.size + pivot.size;
+        if (mergeCols.length < maxSize) {
+            mergeCols = new int[maxSize];
+            mergeVals = new byte[maxSize];
+        }
+
+        int size = 0;
+        int r = 0, p = 0;
+        while (r < row.size || p < pivot.size) {
+            final int rowCol = (r < row.size) ? row.cols[r] : W;
+            final int pivotCol = (p < pivot.size) ? pivot.cols[p] : W;
+            if (rowCol < pivotCol) {
+                mergeCols[size] = rowCol;
+                mergeVals[size] = row.vals[r++];
+                size++;
+            }
+            else {
+                final byte product = OctetOps.aTimesB(beta, pivot.vals[p++]);
+                final byte sum;
+                if (rowCol == pivotCol) {
+                    sum = OctetOps.aPlusB(row.vals[r++], product);
+                }
+                else {
+                    sum = product;
+                }
+
+                if (sum != 0) {
+                    mergeCols[size] = pivotCol;
+                    mergeVals[size] = sum;
+                    size++;
+                }
+            }
+        }
+
+        if (row.cols.length < size) {
+            row.cols = new int[maxSize];
+            row.vals = new byte[maxSize];
+        }
+        System.arraycopy(mergeCols, 0, row.cols, 0, size);
+        System.arraycopy(mergeVals, 0, row.vals, 0, size);
+        row.size = size;
+        row.weight = size;
+    }
+
+    private void toDense(Row row) {
+
+        row.coefs = new byte[W];
+        row.first = (row.size > 0) ? row.cols[0] : W;
+        for (int n = 0; n < row.size; n++) {
+            row.coefs[row.cols[n]] = row.vals[n];
+        }
+
+        row.cols = null;
+        row.vals = null;
+        row.size = 0;
+    }
+
+    private void toSparse(Row row) {
+
+        row.cols = new int[row.weight];
+        row.vals = new byte[row.weight];
+        row.size = 0;
+        for (int c = row.first; row.size < row.weight; c++) {
+            if (row.coefs[c] != 0) {
+                row.cols[row.size] = c;
+                row.vals[row.size] = row.coefs[c];
+                row.size++;
+            }
+        }
+
+        row.coefs = null;
+    }
+
+
+    private static final class Row {
+
+        // if sparse, the non-zeros of the LT columns, in increasing order of column
+        int[] cols;
+        byte[] vals;
+        int size;
+
+        // if dense, the coefficients of the LT columns, which are all zero before the first position
+        byte[] coefs;
+        int first;
+
+        // the number of non-zeros in the LT columns
+        int weight;
+
+        final byte[] piCoefs;
+        final byte[] symbol;
+
+
+        Row(int P, byte[] symbol) {
+
+            this.piCoefs = new byte[P];
+            this.symbol = symbol;
+        }
+
+        boolean isSparse() {
+
+            return coefs == null;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import net.fec.openrq.decoder.SourceBlockDecoder;
 import net.fec.openrq.encoder.DataEncoder;
 import net.fec.openrq.parameters.FECParameters;
 import net.fec.openrq.parameters.ParameterChecker;
+import net.fec.openrq.util.rq.SystematicIndices;
 
 
 /**
@@ -183,6 +184,51 @@ public final class OpenRQ {
         return newDecoder(fecParams, 2);
     }
 
+    /**
+     * Loads in advance the optimized data used to encode the source blocks defined by the provided FEC parameters, so
+     * that the first encoding of each source block does not have to wait for it to be loaded.
+     * <p>
+     * The optimized data (if available) is otherwise loaded when first needed, and is kept in memory up to a limit of
+     * heap usage.
+     * 
+     * @param fecParams
+     *            FEC parameters that define the source blocks to be encoded
+     * @exception NullPointerException
+     *                If {@code fecParams} is {@code null}
+     */
+    public static void preloadEncodingData(FECParameters fecParams) {
+
+        // (KL, KS, ZL, ZS) = Partition[Kt, Z]
+        final Partition KZ = new Partition(fecParams.totalSymbols(), fecParams.numberOfSourceBlocks());
+        if (KZ.get(3) > 0) { // ZL > 0
+            preloadEncodingData(KZ.get(1));
+        }
+        if (KZ.get(4) > 0) { // ZS > 0
+            preloadEncodingData(KZ.get(2));
+        }
+    }
+
+    /**
+     * Loads in advance the optimized data used to encode source blocks with the given number of source symbols, so
+     * that the first encoding of such source blocks does not have to wait for it to be loaded.
+     * <p>
+     * The optimized data (if available) is otherwise loaded when first needed, and is kept in memory up to a limit of
+     * heap usage.
+     * 
+     * @param numSourceSymbols
+     *            The number of source symbols in the source blocks (must be between 1 and 56_403)
+     * @exception IllegalArgumentException
+     *                If {@code numSourceSymbols} is out of bounds
+     */
+    public static void preloadEncodingData(int numSourceSymbols) {
+
+        if (numSourceSymbols < 1 || numSourceSymbols > ParameterChecker.maxNumSourceSymbolsPerBlock()) {
+            throw new IllegalArgumentException("invalid number of source symbols");
+        }
+
+        ISDManager.preload(SystematicIndices.ceil(numSourceSymbols));
+    }
+
     /**
      * Calculates the minimum number of repair symbols from a source block to be transmitted for a given network loss
      * rate.
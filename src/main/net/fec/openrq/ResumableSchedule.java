@@ -0,0 +1,261 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+import net.fec.openrq.util.math.OctetOps;
+
+
+/**
+ * The schedule of a PI decoding that may be incomplete, because the rank of the decoding system was too low; new rows
+ * can be added to an incomplete schedule until the system reaches full rank, without repeating the elimination of the
+ * previous rows.
+ * <p>
+ * An incomplete schedule keeps the state of a decoding that failed in its second phase. The first i rows of A are the
+ * pivots of the first phase (the upper-left i-by-i submatrix of A is diagonal), and U_lower is kept in reduced row
+ * echelon form, as left by the second phase. A new row is reduced against the first i rows and then against the rows
+ * of U_lower; if something is left, the row increases the rank of U_lower. Once U_lower has rank u, the remaining
+ * phases of the decoding are performed and the schedule becomes complete.
+ * <p>
+ * Rows are identified by their index in the vector with available symbols D: the rows of the constraint matrix come
+ * first, followed by the added rows, in the order they were added.
+ */
+final class ResumableSchedule {
+
+    // the complete schedule, or null if incomplete
+    private SymbolSchedule completeSchedule;
+
+    // the state of an incomplete schedule
+    private ByteMatrix A;
+    private EliminationLog X;
+    private SymbolSchedule schedule;
+    private int[] d;
+    private int[] c;
+    private int[] colPos;
+    private int L;
+    private int i;
+    private int u;
+    private int numRows;
+
+    // the rows of U_lower (only the last u columns) and their indices in D, indexed by the column of their leading one
+    // (stored densely, like the second phase does, since the u-by-u submatrix is dense after the first phase)
+    private byte[][] uRows;
+    private int[] uRowsD;
+    private int rank;
+
+
+    ResumableSchedule() {
+
+        this.completeSchedule = null;
+    }
+
+    /**
+     * Completes this schedule.
+     */
+    void setComplete(SymbolSchedule schedule) {
+
+        this.completeSchedule = schedule;
+        clearState();
+    }
+
+    /**
+     * Makes this schedule incomplete, with the state of a decoding after its second phase, when the rank of U_lower is
+     * less than u.
+     */
+    void setIncomplete(
+        ByteMatrix A,
+        EliminationLog X,
+        SymbolSchedule schedule,
+        int[] d,
+        int[] c,
+        int L,
+        int M,
+        int i,
+        int u)
+    {
+
+        this.completeSchedule = null;
+
+        this.A = A;
+        this.X = X;
+        this.schedule = schedule;
+        this.d = d;
+        this.c = c;
+        this.L = L;
+        this.i = i;
+        this.u = u;
+        this.numRows = M;
+
+        this.colPos = new int[L];
+        for (int pos = 0; pos < L; pos++) {
+            colPos[c[pos]] = pos;
+        }
+
+        // U_lower is in reduced row echelon form, and its non-zero rows have distinct leading ones
+        this.uRows = new byte[u][];
+        this.uRowsD = new int[u];
+        this.rank = 0;
+        for (int row = i; row < M; row++) {
+            final ByteVectorIterator it = A.nonZeroRowIterator(row, i, L);
+            if (it.hasNext()) {
+                final byte[] uRow = new byte[u];
+                while (it.hasNext()) {
+                    it.next();
+                    uRow[it.index() - i] = it.get();
+                }
+
+                int lead = 0;
+                while (uRow[lead] == 0) {
+                    lead++;
+                }
+
+                uRows[lead] = uRow;
+                uRowsD[lead] = d[row];
+                rank++;
+            }
+        }
+    }
+
+    private void clearState() {
+
+        A = null;
+        X = null;
+        schedule = null;
+        d = null;
+        c = null;
+        colPos = null;
+        uRows = null;
+        uRowsD = null;
+    }
+
+    /**
+     * Returns {@code true} if the decoding system has full rank, and the schedule is available.
+     */
+    boolean isComplete() {
+
+        return completeSchedule != null;
+    }
+
+    /**
+     * Returns the complete schedule.
+     */
+    // requires isComplete()
+    SymbolSchedule schedule() {
+
+        return completeSchedule;
+    }
+
+    /**
+     * Returns the number of rows of the decoding system, which is the index in D of the next added row.
+     */
+    // requires !isComplete()
+    int numRows() {
+
+        return numRows;
+    }
+
+    /**
+     * Adds an encoding row to the decoding system, and completes the schedule if the row gives the system full rank.
+     *
+     * @param columns
+     *            The distinct columns of the ones of the row (the other coefficients are zeros), indexed by the original
+     *            columns of the constraint matrix
+     */
+    // requires !isComplete()
+    void addRow(int[] columns) {
+
+        final int rowD = numRows++;
+
+        // each of the first i rows only has non-zeros in its own column and in the last u columns, so a single pass
+        // over the ones of the new row leaves only non-zeros in the last u columns
+        final byte[] uRow = new byte[u];
+        for (int col : columns) {
+            final int j = colPos[col];
+            if (j >= i) {
+                uRow[j - i] = OctetOps.aPlusB(uRow[j - i], (byte)1);
+            }
+            else {
+                final byte mult = OctetOps.aDividedByB((byte)1, A.get(j, j));
+
+                final ByteVectorIterator it = A.nonZeroRowIterator(j, i, L);
+                while (it.hasNext()) {
+                    it.next();
+                    uRow[it.index() - i] = OctetOps.aPlusB(uRow[it.index() - i], OctetOps.aTimesB(mult, it.get()));
+                }
+
+                // decoding process - (mult * D[d[j]]) + D[rowD]
+                schedule.addSymbolAddition(mult, d[j], rowD);
+            }
+        }
+
+        // the rows of U_lower only have zeros in the columns of the other leading ones
+        for (int lead = 0; lead < u; lead++) {
+            final byte beta = uRow[lead];
+            if (beta != 0 && uRows[lead] != null) {
+                OctetOps.vectorVectorAddition(beta, uRows[lead], uRow, uRow);
+
+                // decoding process - (beta * D[uRowsD[lead]]) + D[rowD]
+                schedule.addSymbolAddition(beta, uRowsD[lead], rowD);
+            }
+        }
+
+        int newLead = 0;
+        while (newLead < u && uRow[newLead] == 0) {
+            newLead++;
+        }
+
+        // the row is a linear combination of the previous rows
+        if (newLead == u) {
+            return;
+        }
+
+        final byte alpha = uRow[newLead];
+        if (alpha != 1) {
+            OctetOps.valueVectorDivision(alpha, uRow, uRow); // in place division
+
+            // decoding process - D[rowD] / alpha
+            schedule.addSymbolBetaDivision(alpha, rowD);
+        }
+
+        // keep U_lower in reduced row echelon form
+        for (int lead = 0; lead < u; lead++) {
+            if (uRows[lead] != null) {
+                final byte beta = uRows[lead][newLead];
+                if (beta != 0) {
+                    OctetOps.vectorVectorAddition(beta, uRow, uRows[lead], uRows[lead]);
+
+                    // decoding process - (beta * D[rowD]) + D[uRowsD[lead]]
+                    schedule.addSymbolAddition(beta, rowD, uRowsD[lead]);
+                }
+            }
+        }
+
+        uRows[newLead] = uRow;
+        uRowsD[newLead] = rowD;
+        rank++;
+
+        if (rank == u) {
+            // U_lower is now the identity matrix, with its rows ordered by the column of their leading one
+            for (int lead = 0; lead < u; lead++) {
+                d[i + lead] = uRowsD[lead];
+            }
+
+            setComplete(LinearSystem.resumePInactivationSchedule(A, X, schedule, d, c, L, i));
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.Arrays;
+
+import net.fec.openrq.util.math.OctetOps;
+
+
+/**
+ * An optimization pass that compiles the operations of a {@link SymbolSchedule} into a {@link CompiledSchedule}.
+ * <p>
+ * The pass does the following:
+ * <ol>
+ * <li>removes the operations whose results never reach the output of the schedule (the rows selected by the final
+ * reordering), such as the elimination of the rows that end up unused in a decoding with overhead;</li>
+ * <li>moves each symbol addition back to the latest previous group with the same source row, if the addition commutes
+ * with every operation in between, so that a source row is loaded once for many destination rows;</li>
+ * <li>merges the additions with the same source and destination rows in a group (and removes them if the values
+ * cancel out);</li>
+ * <li>sorts the destination rows of each group.</li>
+ * </ol>
+ * Two symbol additions commute if neither one writes the source row of the other; a symbol addition and a division
+ * commute if they do not share any row.
+ */
+final class ScheduleCompiler {
+
+    private static final int NONE = -1;
+    private static final int NO_SOURCE = CompiledSchedule.NO_SOURCE;
+
+
+    /**
+     * Compiles the given operations, where each operation is a symbol addition (a source row multiplied by a value is
+     * added to a destination row) or a symbol division (if the source row is -1, the destination row is divided by the
+     * value), followed by an optional final reordering (if {@code c} is {@code null} there is no reordering).
+     */
+    static CompiledSchedule compile(
+        int[] srcRows,
+        int[] dstRows,
+        byte[] values,
+        int size,
+        int L,
+        int[] c,
+        int[] d)
+    {
+
+        int numRows = 0;
+        for (int n = 0; n < size; n++) {
+            numRows = Math.max(numRows, Math.max(srcRows[n], dstRows[n]) + 1);
+        }
+        if (c != null) {
+            for (int i = 0; i < L; i++) {
+                numRows = Math.max(numRows, d[i] + 1);
+            }
+        }
+
+        final boolean[] live = liveOperations(srcRows, dstRows, size, numRows, L, c, d);
+        return new ScheduleCompiler(numRows, size).group(srcRows, dstRows, values, size, live).build(L, c, d);
+    }
+
+    /*
+     * Backwards pass: an operation is live if its destination row is read by a later live operation or is part of the
+     * output. Since every operation reads its own destination row, a live row stays live before being written.
+     */
+    private static boolean[] liveOperations(
+        int[] srcRows,
+        int[] dstRows,
+        int size,
+        int numRows,
+        int L,
+        int[] c,
+        int[] d)
+    {
+
+        final boolean[] liveOps = new boolean[size];
+        if (c == null) {
+            // every row is part of the output
+            Arrays.fill(liveOps, true);
+            return liveOps;
+        }
+
+        final boolean[] liveRows = new boolean[numRows];
+        for (int i = 0; i < L; i++) {
+            liveRows[d[i]] = true;
+        }
+
+        for (int n = size - 1; n >= 0; n--) {
+            if (liveRows[dstRows[n]]) {
+                liveOps[n] = true;
+                if (srcRows[n] != NO_SOURCE) {
+                    liveRows[srcRows[n]] = true;
+                }
+            }
+        }
+
+        return liveOps;
+    }
+
+
+    // indexed by group
+    private int[] groupSrcRows;
+    private int[] groupHeads;
+    private int[] groupTails;
+    private int numGroups;
+
+    // indexed by member (a member is an operation in a group)
+    private final int[] memberDstRows;
+    private final byte[] memberValues;
+    private final int[] memberNexts;
+    private final int[] memberGroups;
+    private int numMembers;
+
+    // indexed by row, the last group where the row was written, read as a source and divided, and the last group with
+    // the row as source
+    private final int[] lastWrite;
+    private final int[] lastRead;
+    private final int[] lastDiv;
+    private final int[] openGroup;
+
+    // indexed by row, the last member with the row as destination
+    private final int[] lastMember;
+
+
+    private ScheduleCompiler(int numRows, int maxOps) {
+
+        this.groupSrcRows = new int[16];
+        this.groupHeads = new int[16];
+        this.groupTails = new int[16];
+        this.numGroups = 0;
+
+        this.memberDstRows = new int[maxOps];
+        this.memberValues = new byte[maxOps];
+        this.memberNexts = new int[maxOps];
+        this.memberGroups = new int[maxOps];
+        this.numMembers = 0;
+
+        this.lastWrite = newRowArray(numRows);
+        this.lastRead = newRowArray(numRows);
+        this.lastDiv = newRowArray(numRows);
+        this.openGroup = newRowArray(numRows);
+        this.lastMember = newRowArray(numRows);
+    }
+
+    private static int[] newRowArray(int numRows) {
+
+        final int[] array = new int[numRows];
+        Arrays.fill(array, NONE);
+        return array;
+    }
+
+    private ScheduleCompiler group(int[] srcRows, int[] dstRows, byte[] values, int size, boolean[] live) {
+
+        for (int n = 0; n < size; n++) {
+            if (!live[n]) {
+                continue;
+            }
+
+            final int srcRow = srcRows[n];
+            final int dstRow = dstRows[n];
+            if (srcRow == NO_SOURCE) {
+                final int g = newGroup(NO_SOURCE);
+                addMember(g, dstRow, values[n]);
+                lastWrite[dstRow] = g;
+                lastDiv[dstRow] = g;
+            }
+            else {
+                final int g = openGroup[srcRow];
+                if (g != NONE && srcRow != dstRow &&
+                    lastWrite[srcRow] < g && lastRead[dstRow] < g && lastDiv[dstRow] < g)
+                {
+                    // the addition commutes with every operation after group g
+                    final int member = lastMember[dstRow];
+                    if (member != NONE && memberGroups[member] == g) {
+                        memberValues[member] = OctetOps.aPlusB(memberValues[member], values[n]);
+                    }
+                    else {
+                        addMember(g, dstRow, values[n]);
+                    }
+                    lastWrite[dstRow] = Math.max(lastWrite[dstRow], g);
+                }
+                else {
+                    final int newG = newGroup(srcRow);
+                    addMember(newG, dstRow, values[n]);
+                    openGroup[srcRow] = newG;
+                    lastRead[srcRow] = newG;
+                    lastWrite[dstRow] = newG;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    private int newGroup(int srcRow) {
+
+        if (numGroups == groupSrcRows.length) {
+            final int newCapacity = 2 * numGroups;
+            groupSrcRows = Arrays.copyOf(groupSrcRows, newCapacity);
+            groupHeads = Arrays.copyOf(groupHeads, newCapacity);
+            groupTails = Arrays.copyOf(groupTails, newCapacity);
+        }
+
+        groupSrcRows[numGroups] = srcRow;
+        groupHeads[numGroups] = NONE;
+        groupTails[numGroups] = NONE;
+        return numGroups++;
+    }
+
+    private void addMember(int g, int dstRow, byte value) {
+
+        final int member = numMembers++;
+        memberDstRows[member] = dstRow;
+        memberValues[member] = value;
+        memberNexts[member] = NONE;
+        memberGroups[member] = g;
+
+        if (groupTails[g] == NONE) {
+            groupHeads[g] = member;
+        }
+        else {
+            memberNexts[groupTails[g]] = member;
+        }
+        groupTails[g] = member;
+        lastMember[dstRow] = member;
+    }
+
+    private CompiledSchedule build(int L, int[] c, int[] d) {
+
+        final int[] outSrcRows = new int[numGroups];
+        final int[] outEnds = new int[numGroups];
+        final int[] outDstRows = new int[numMembers];
+        final byte[] outValues = new byte[numMembers];
+
+        final long[] sortBuffer = new long[numMembers];
+
+        int outGroups = 0;
+        int size = 0;
+        for (int g = 0; g < numGroups; g++) {
+            // sort the members by destination row, with the member index to keep their relative order
+            int count = 0;
+            for (int m = groupHeads[g]; m != NONE; m = memberNexts[m]) {
+                if (memberValues[m] != 0) {
+                    sortBuffer[count++] = ((long)memberDstRows[m] << 32) | m;
+                }
+            }
+            Arrays.sort(sortBuffer, 0, count);
+
+            final int start = size;
+            for (int k = 0; k < count; k++) {
+                final int m = (int)sortBuffer[k];
+                final int dstRow = memberDstRows[m];
+                if (groupSrcRows[g] != NO_SOURCE && size > start && outDstRows[size - 1] == dstRow) {
+                    // additions from the same source row to the same destination row
+                    outValues[size - 1] = OctetOps.aPlusB(outValues[size - 1], memberValues[m]);
+                    if (outValues[size - 1] == 0) {
+                        size--;
+                    }
+                }
+                else {
+                    outDstRows[size] = dstRow;
+                    outValues[size] = memberValues[m];
+                    size++;
+                }
+            }
+
+            if (size > start) {
+                outSrcRows[outGroups] = groupSrcRows[g];
+                outEnds[outGroups] = size;
+                outGroups++;
+            }
+        }
+
+        return new CompiledSchedule(
+            Arrays.copyOf(outSrcRows, outGroups), Arrays.copyOf(outEnds, outGroups),
+            Arrays.copyOf(outDstRows, size), Arrays.copyOf(outValues, size),
+            L, c, d);
+    }
+}
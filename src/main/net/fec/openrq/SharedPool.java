@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * The fork/join pool where the library runs its parallel work, when no other pool is given (the common pool of newer
+ * JVMs is not available in Java 7).
+ * <p>
+ * The pool is only created when it is first used, with a parallelism equal to the number of available processors.
+ * Its threads are daemon threads, so the pool never prevents the JVM from exiting.
+ */
+final class SharedPool {
+
+    /**
+     * Returns the shared pool.
+     */
+    static ForkJoinPool get() {
+
+        return Holder.POOL;
+    }
+
+
+    private static final class Holder {
+
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+
+    private SharedPool() {
+
+        // not instantiable
+    }
+}
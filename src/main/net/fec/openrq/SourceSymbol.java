@@ -117,6 +117,30 @@ interface SourceSymbol {
      */
     ByteBuffer transportData();
 
+    /**
+     * Copies the data of this source symbol for transport purposes to the provided buffer, advancing its position by
+     * {@link #transportSize()} bytes.
+     * 
+     * @param dst
+     *            The destination buffer of copied data
+     * @exception BufferOverflowException
+     *                If the destination buffer does not have at least {@code transportSize()} number of bytes
+     *                {@link Buffer#remaining() available}
+     */
+    void getTransportData(ByteBuffer dst);
+
+    /**
+     * Copies the data of this source symbol for transport purposes to the provided array, starting at the given index.
+     * 
+     * @param dst
+     *            The destination array of copied data
+     * @param off
+     *            The index in the array where the data is copied
+     * @exception IndexOutOfBoundsException
+     *                If the array does not have at least {@code transportSize()} number of bytes after the index
+     */
+    void getTransportData(byte[] dst, int off);
+
     /**
      * Copies symbol data from the provided transport buffer to this symbol.
      * <p>
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import net.fec.openrq.util.math.ExtraMath;
+
+
+/**
+ * The symbols of the vector D of a decoding process (or of the intermediate symbols), stored in a single contiguous
+ * array.
+ * <p>
+ * The symbols are stored at a fixed stride. The stride is the symbol size rounded up to a multiple of
+ * {@value #ALIGNMENT} octets, so that every symbol has the same alignment in the array, unless the padding would take
+ * more than an eighth of the symbol size (or the padded symbols would not fit in an array), in which case the symbols
+ * are not padded. Each row of the arena is mapped to the offset of its symbol in the array, so that the symbols can be
+ * reordered without moving their data; a reordered arena shares the array of the original one.
+ * <p>
+ * An arena can be {@linkplain #reuse(SymbolArena, int, int) reused} by a later process whose symbols fit in its array,
+ * as long as the symbols of the previous process (and of any reordering of them) are no longer needed.
+ * <p>
+ * The operations over the symbols of an arena may be executed one column tile at a time (see {@link #tileLength()}),
+ * since every octet of a symbol only depends on the octets in the same column of the other symbols. For the same
+ * reason, disjoint column slices of the symbols may be processed in parallel (see
+ * {@link #applyByColumns(ColumnOperation)}), with the same results as a sequential execution.
+ */
+final class SymbolArena {
+
+    /**
+     * The alignment of each symbol, in octets, relative to the start of the array.
+     */
+    static final int ALIGNMENT = 64;
+
+    // the symbols are only padded if the padding takes at most this fraction of the symbol size
+    private static final int MAX_PADDING_DIVISOR = 8;
+
+    // the largest array length that every virtual machine supports
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    // the size of the cache where a column tile of every symbol should fit (zero disables the tiling); the default is
+    // the size of a typical second level cache
+    private static final int TILE_CACHE_SIZE = Integer.getInteger("net.fec.openrq.tileCacheSize", 1024 * 1024);
+
+    // tiles are not made narrower than this, to limit the cost of the calls over each tile
+    private static final int MIN_TILE_LENGTH = 512;
+
+    // the maximum number of column slices processed in parallel (one disables the parallel execution); the default
+    // is to process the symbols in a single thread
+    private static final int COLUMN_PARALLELISM =
+        Math.max(1, Integer.getInteger("net.fec.openrq.columnParallelism", 1));
+
+    // slices are not made narrower than this, to limit the cost of the parallel tasks
+    private static final int MIN_SLICE_LENGTH = 1024;
+
+
+    /**
+     * An operation over a range of columns of the symbols of an arena.
+     */
+    interface ColumnOperation {
+
+        /**
+         * Executes this operation over the octets of the symbols of D in the range [pos, pos + length).
+         */
+        void applyToColumns(SymbolArena D, int pos, int length);
+    }
+
+
+    /**
+     * Returns a new arena with the given number of zeroed symbols.
+     *
+     * @param numRows
+     *            The number of symbols
+     * @param symbolSize
+     *            The size of each symbol
+     * @return a new arena
+     * @exception ArithmeticException
+     *                If the symbols do not fit in a single array
+     */
+    static SymbolArena allocate(int numRows, int symbolSize) {
+
+        final int stride = stride(numRows, symbolSize);
+        return new SymbolArena(
+            new byte[ExtraMath.multiplyExact(numRows, stride)], symbolSize, defaultOffsets(numRows, stride));
+    }
+
+    /**
+     * Returns the given arena with the given number of zeroed symbols, if its array is large enough, or else a new
+     * arena.
+     *
+     * @param arena
+     *            An arena whose symbols are no longer needed (may be {@code null})
+     * @param numRows
+     *            The number of symbols
+     * @param symbolSize
+     *            The size of each symbol
+     * @return an arena with the given number of zeroed symbols
+     * @exception ArithmeticException
+     *                If the symbols do not fit in a single array
+     */
+    static SymbolArena reuse(SymbolArena arena, int numRows, int symbolSize) {
+
+        final int stride = stride(numRows, symbolSize);
+        final int length = ExtraMath.multiplyExact(numRows, stride);
+        if (arena == null || arena.data.length < length) {
+            return allocate(numRows, symbolSize);
+        }
+        else {
+            Arrays.fill(arena.data, 0, length, (byte)0);
+            return new SymbolArena(arena.data, symbolSize, defaultOffsets(numRows, stride));
+        }
+    }
+
+    /**
+     * Returns a new arena with a copy of the given symbols.
+     *
+     * @param symbols
+     *            The symbols, all of the same size
+     * @param symbolSize
+     *            The size of each symbol
+     * @return a new arena
+     */
+    static SymbolArena copyOf(byte[][] symbols, int symbolSize) {
+
+        final SymbolArena arena = allocate(symbols.length, symbolSize);
+        for (int row = 0; row < symbols.length; row++) {
+            System.arraycopy(symbols[row], 0, arena.data, arena.offsets[row], symbolSize);
+        }
+        return arena;
+    }
+
+    private static int stride(int numRows, int symbolSize) {
+
+        final int aligned = alignUp(symbolSize);
+        if (aligned - symbolSize > symbolSize / MAX_PADDING_DIVISOR || (long)numRows * aligned > Integer.MAX_VALUE) {
+            return symbolSize;
+        }
+        else {
+            return aligned;
+        }
+    }
+
+    private static int alignUp(int length) {
+
+        return ((length + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+    }
+
+    // requires numRows * stride to fit in an int
+    private static int[] defaultOffsets(int numRows, int stride) {
+
+        final int[] offsets = new int[numRows];
+        for (int row = 0, offset = 0; row < numRows; row++, offset += stride) {
+            offsets[row] = offset;
+        }
+        return offsets;
+    }
+
+
+    private final byte[] data;
+    private final int symbolSize;
+
+    // indexed by row
+    private final int[] offsets;
+
+
+    private SymbolArena(byte[] data, int symbolSize, int[] offsets) {
+
+        this.data = data;
+        this.symbolSize = symbolSize;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the number of symbols in this arena.
+     */
+    int numRows() {
+
+        return offsets.length;
+    }
+
+    /**
+     * Returns the size of each symbol.
+     */
+    int symbolSize() {
+
+        return symbolSize;
+    }
+
+    /**
+     * Returns the array where the symbols are stored.
+     */
+    byte[] array() {
+
+        return data;
+    }
+
+    /**
+     * Returns the offsets of the symbols in the array, indexed by row. The returned array must not be modified.
+     */
+    int[] offsets() {
+
+        return offsets;
+    }
+
+    /**
+     * Returns the offset of the symbol of the given row in the array.
+     */
+    int offset(int row) {
+
+        return offsets[row];
+    }
+
+    /**
+     * Returns the length of the column tiles in which the operations over the symbols of this arena should be executed,
+     * so that a tile of every symbol fits in the second level cache. The length is a multiple of {@value #ALIGNMENT},
+     * or the symbol size if the symbols are not to be tiled.
+     */
+    int tileLength() {
+
+        if (TILE_CACHE_SIZE <= 0 || offsets.length == 0) {
+            return symbolSize;
+        }
+
+        final int length = (TILE_CACHE_SIZE / offsets.length / ALIGNMENT) * ALIGNMENT;
+        return Math.min(symbolSize, Math.max(MIN_TILE_LENGTH, length));
+    }
+
+    /**
+     * Executes the given operation over the columns of every symbol, one column tile at a time. If the parallel
+     * execution is enabled (system property {@code net.fec.openrq.columnParallelism}), the columns are split into
+     * slices that are processed in parallel, each one tile at a time.
+     */
+    void applyByColumns(ColumnOperation op) {
+
+        applyByColumns(op, COLUMN_PARALLELISM);
+    }
+
+    /**
+     * Same as {@link #applyByColumns(ColumnOperation)}, but with the given maximum number of column slices.
+     */
+    void applyByColumns(ColumnOperation op, int maxSlices) {
+
+        final int numSlices = Math.min(maxSlices, symbolSize / MIN_SLICE_LENGTH);
+        if (numSlices <= 1) {
+            applyToTiles(op, 0, symbolSize);
+        }
+        else {
+            // slices start at aligned positions, so that no two threads write to the same cache line
+            final int sliceLength = alignUp((symbolSize + numSlices - 1) / numSlices);
+            final int actualSlices = (symbolSize + sliceLength - 1) / sliceLength;
+            final SliceTask task = new SliceTask(this, op, sliceLength, 0, actualSlices);
+
+            if (ForkJoinTask.inForkJoinPool()) {
+                task.invoke(); // in the pool of the current task
+            }
+            else {
+                SharedPool.get().invoke(task);
+            }
+        }
+    }
+
+    // executes the operation over the columns in [from, to), one tile at a time
+    private void applyToTiles(ColumnOperation op, int from, int to) {
+
+        final int tileLength = tileLength();
+        for (int pos = from; pos < to; pos += tileLength) {
+            op.applyToColumns(this, pos, Math.min(tileLength, to - pos));
+        }
+    }
+
+
+    private static final class SliceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SymbolArena D;
+        private final ColumnOperation op;
+        private final int sliceLength;
+        private final int fromSlice;
+        private final int toSlice;
+
+
+        SliceTask(SymbolArena D, ColumnOperation op, int sliceLength, int fromSlice, int toSlice) {
+
+            this.D = D;
+            this.op = op;
+            this.sliceLength = sliceLength;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (toSlice - fromSlice == 1) {
+                final int from = fromSlice * sliceLength;
+                D.applyToTiles(op, from, Math.min(D.symbolSize, from + sliceLength));
+            }
+            else {
+                final int mid = (fromSlice + toSlice) >>> 1;
+                invokeAll(
+                    new SliceTask(D, op, sliceLength, fromSlice, mid),
+                    new SliceTask(D, op, sliceLength, mid, toSlice));
+            }
+        }
+    }
+
+    /**
+     * Copies the remaining data of the given buffer (at most a symbol) into the symbol of the given row. The position of
+     * the buffer is advanced.
+     */
+    void put(int row, ByteBuffer src) {
+
+        src.get(data, offsets[row], Math.min(src.remaining(), symbolSize));
+    }
+
+    /**
+     * Returns a new buffer that wraps the symbol of the given row, with the position at the start of the symbol and the
+     * limit at its end.
+     */
+    ByteBuffer rowBuffer(int row) {
+
+        return ByteBuffer.wrap(data, offsets[row], symbolSize);
+    }
+
+    /**
+     * Returns a copy of the symbol of the given row.
+     */
+    byte[] copyOfRow(int row) {
+
+        return Arrays.copyOfRange(data, offsets[row], offsets[row] + symbolSize);
+    }
+
+    /**
+     * Returns a copy of every symbol, indexed by row.
+     */
+    byte[][] toArrays() {
+
+        final byte[][] symbols = new byte[offsets.length][];
+        for (int row = 0; row < offsets.length; row++) {
+            symbols[row] = copyOfRow(row);
+        }
+        return symbols;
+    }
+
+    /**
+     * Returns an arena with the symbols of this arena followed by the given number of zeroed symbols. The new symbols
+     * are stored in the array of this arena if there is room for them after the last symbol, or else every symbol is
+     * copied to a new array with room for twice as many symbols, so that appending symbols one at a time takes
+     * amortized constant time per symbol.
+     * <p>
+     * The symbols of this arena (and of any reordering of it) must no longer be accessed through this arena.
+     *
+     * @param numNewRows
+     *            The number of zeroed symbols to append
+     * @return an arena with the symbols of this arena followed by the new symbols
+     * @exception ArithmeticException
+     *                If the symbols do not fit in a single array
+     */
+    // requires an arena that is not a reordering of another one (its symbols are at the default offsets)
+    SymbolArena append(int numNewRows) {
+
+        final int numRows = ExtraMath.addExact(offsets.length, numNewRows);
+        final int stride = stride(numRows, symbolSize);
+        final int length = ExtraMath.multiplyExact(numRows, stride);
+
+        // the symbols are kept in place, unless the new symbols make the padded symbols too large for an array (which
+        // changes the stride)
+        final int last = offsets.length - 1;
+        if (data.length >= length && (last < 0 || offsets[last] == last * stride)) {
+            Arrays.fill(data, offsets.length * stride, length, (byte)0);
+            return new SymbolArena(data, symbolSize, defaultOffsets(numRows, stride));
+        }
+        else {
+            final byte[] newData = new byte[Math.max(length, (int)Math.min(2L * length, MAX_ARRAY_LENGTH))];
+            for (int row = 0; row < offsets.length; row++) {
+                System.arraycopy(data, offsets[row], newData, row * stride, symbolSize);
+            }
+            return new SymbolArena(newData, symbolSize, defaultOffsets(numRows, stride));
+        }
+    }
+
+    /**
+     * Returns an arena with the reordered symbols, where C[c[i]] = D[d[i]] for each i in the range [0, L), sharing the
+     * array of this arena (D).
+     */
+    SymbolArena reorder(int L, int[] c, int[] d) {
+
+        final int[] reordered = new int[L];
+        for (int i = 0; i < L; i++) {
+            reordered[c[i]] = offsets[d[i]];
+        }
+        return new SymbolArena(data, symbolSize, reordered);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import net.fec.openrq.util.math.OctetOps;
+
+
+/**
+ * A schedule of operations over the rows of the symbols vector D, as produced by the symbolic stage of the decoding
+ * (the elimination of the constraint matrix) and executed by the numeric stage.
+ * <p>
+ * The operations are those of {@link ISDOps}: symbol additions (a source row multiplied by a value is added to a
+ * destination row), symbol divisions (a row is divided by a value) and a final symbol reordering. They are kept in
+ * flat primitive arrays, with rows identified by their index in D; a division is stored as an operation without a
+ * source row.
+ */
+final class SymbolSchedule implements ISDOperation, SymbolArena.ColumnOperation {
+
+    private static final int NO_SOURCE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // indexed by operation
+    private int[] srcRows;
+    private int[] dstRows;
+    private byte[] values;
+    private int size;
+
+    // the final reordering, if any
+    private int L;
+    private int[] c;
+    private int[] d;
+
+
+    SymbolSchedule() {
+
+        this(INITIAL_CAPACITY);
+    }
+
+    private SymbolSchedule(int capacity) {
+
+        this.srcRows = new int[capacity];
+        this.dstRows = new int[capacity];
+        this.values = new byte[capacity];
+        this.size = 0;
+
+        this.L = 0;
+        this.c = null;
+        this.d = null;
+    }
+
+    /**
+     * Adds the operation D[dstRow] = D[dstRow] + (srcMult * D[srcRow]), unless the multiplier is zero.
+     */
+    void addSymbolAddition(byte srcMult, int srcRow, int dstRow) {
+
+        if (srcMult != 0) {
+            add(srcMult, srcRow, dstRow);
+        }
+    }
+
+    /**
+     * Adds the operation D[row] = D[row] / beta, unless beta is one.
+     */
+    void addSymbolBetaDivision(byte beta, int row) {
+
+        if (beta != 1) {
+            add(beta, NO_SOURCE, row);
+        }
+    }
+
+    /**
+     * Sets the final reordering of the symbols, where C[c[i]] = D[d[i]] for each i in the range [0, L). The arrays are
+     * copied.
+     */
+    void setSymbolReordering(int L, int[] c, int[] d) {
+
+        this.L = L;
+        this.c = Arrays.copyOf(c, L);
+        this.d = Arrays.copyOf(d, L);
+    }
+
+    /**
+     * Returns the number of additions and divisions in this schedule.
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns an optimized copy of this schedule (see {@link ScheduleCompiler}).
+     */
+    CompiledSchedule compile() {
+
+        return ScheduleCompiler.compile(srcRows, dstRows, values, size, L, c, d);
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of heap used by this schedule.
+     */
+    long footprint() {
+
+        return 9L * srcRows.length + 8L * L;
+    }
+
+    private void add(byte value, int srcRow, int dstRow) {
+
+        if (size == srcRows.length) {
+            final int newCapacity = Math.max(1, 2 * size);
+            srcRows = Arrays.copyOf(srcRows, newCapacity);
+            dstRows = Arrays.copyOf(dstRows, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        srcRows[size] = srcRow;
+        dstRows[size] = dstRow;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Executes this schedule over the rows of D, which are modified in place, and returns the reordered symbols (or D
+     * itself, if there is no reordering).
+     */
+    @Override
+    public byte[][] apply(byte[][] D) {
+
+        int n = 0;
+        while (n < size) {
+            final int srcRow = srcRows[n];
+            if (srcRow == NO_SOURCE) {
+                final int dstRow = dstRows[n];
+                OctetOps.valueVectorDivision(values[n], D[dstRow], D[dstRow]); // in place division
+                n++;
+            }
+            else {
+                // consecutive additions from the same source row are done together
+                int end = n + 1;
+                while (end < size && srcRows[end] == srcRow) {
+                    end++;
+                }
+                OctetOps.vectorBroadcastAddition(values, D[srcRow], D, dstRows, n, end, D[srcRow].length);
+                n = end;
+            }
+        }
+
+        if (c == null) {
+            return D;
+        }
+        else {
+            final byte[][] C = new byte[L][];
+            for (int i = 0; i < L; i++) {
+                C[c[i]] = D[d[i]];
+            }
+
+            return C;
+        }
+    }
+
+    /**
+     * Executes this schedule over the symbols of D, which are modified in place, and returns the reordered symbols (or
+     * D itself, if there is no reordering). The operations are executed one column tile of the symbols at a time, and
+     * possibly over parallel column slices (see {@link SymbolArena#applyByColumns(SymbolArena.ColumnOperation)}).
+     */
+    @Override
+    public SymbolArena apply(SymbolArena D) {
+
+        D.applyByColumns(this);
+        return (c == null) ? D : D.reorder(L, c, d);
+    }
+
+    // executes the additions and divisions over the octets of the symbols in [pos, pos + length)
+    @Override
+    public void applyToColumns(SymbolArena D, int pos, int length) {
+
+        final byte[] data = D.array();
+        final int[] offsets = D.offsets();
+
+        int n = 0;
+        while (n < size) {
+            final int srcRow = srcRows[n];
+            if (srcRow == NO_SOURCE) {
+                final int dstPos = offsets[dstRows[n]] + pos;
+                OctetOps.valueVectorDivision(values[n], data, dstPos, data, dstPos, length); // in place division
+                n++;
+            }
+            else {
+                // consecutive additions from the same source row are done together
+                int end = n + 1;
+                while (end < size && srcRows[end] == srcRow) {
+                    end++;
+                }
+                OctetOps.vectorBroadcastAddition(values, data, offsets[srcRow], offsets, dstRows, n, end, pos, length);
+                n = end;
+            }
+        }
+    }
+
+    /**
+     * Writes this schedule as a sequence of operations that can be read with
+     * {@link ISDOps#readOperation(java.nio.channels.ReadableByteChannel)}.
+     */
+    @Override
+    public void serializeToChannel(WritableByteChannel ch) throws IOException {
+
+        for (int n = 0; n < size; n++) {
+            final ISDOperation op;
+            if (srcRows[n] == NO_SOURCE) {
+                op = ISDOps.newPhase5_1Operation(values[n], dstRows[n]);
+            }
+            else {
+                op = ISDOps.newPhase1Operation(values[n], srcRows[n], dstRows[n]);
+            }
+            op.serializeToChannel(ch);
+        }
+
+        if (c != null) {
+            ISDOps.newReorderOperation(L, c, d).serializeToChannel(ch);
+        }
+    }
+
+    /**
+     * Writes this schedule in a compact form, which can be read with {@link #readCompact(InputStream)}.
+     * <p>
+     * Every integer is written as an unsigned variable-length quantity (7 bits per byte, least significant first),
+     * in this order: L (zero if there is no reordering), the arrays c and d (L integers each), the number of operations
+     * and then each operation, as its source row plus one (zero for a division), its destination row and its value
+     * (a single byte).
+     */
+    void writeCompact(OutputStream out) throws IOException {
+
+        writeVarInt(out, L);
+        for (int i = 0; i < L; i++) {
+            writeVarInt(out, c[i]);
+        }
+        for (int i = 0; i < L; i++) {
+            writeVarInt(out, d[i]);
+        }
+
+        writeVarInt(out, size);
+        for (int n = 0; n < size; n++) {
+            writeVarInt(out, srcRows[n] + 1); // NO_SOURCE is written as zero
+            writeVarInt(out, dstRows[n]);
+            out.write(values[n]);
+        }
+    }
+
+    /**
+     * Reads a schedule written by {@link #writeCompact(OutputStream)}.
+     */
+    static SymbolSchedule readCompact(InputStream in) throws IOException {
+
+        final int L = readVarInt(in);
+        final int[] c = new int[L];
+        final int[] d = new int[L];
+        for (int i = 0; i < L; i++) {
+            c[i] = readVarInt(in);
+        }
+        for (int i = 0; i < L; i++) {
+            d[i] = readVarInt(in);
+        }
+
+        final int size = readVarInt(in);
+        final SymbolSchedule schedule = new SymbolSchedule(size);
+        if (L != 0) {
+            schedule.setSymbolReordering(L, c, d);
+        }
+
+        for (int n = 0; n < size; n++) {
+            final int srcRow = readVarInt(in) - 1;
+            final int dstRow = readVarInt(in);
+            final int value = in.read();
+            if (value == -1) throw new EOFException();
+            schedule.add((byte)value, srcRow, dstRow);
+        }
+
+        return schedule;
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final int b = in.read();
+            if (b == -1) throw new EOFException();
+
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("malformed variable-length integer");
+    }
+}
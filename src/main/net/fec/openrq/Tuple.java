@@ -27,6 +27,7 @@ import net.fec.openrq.util.rq.SystematicIndices;
 final class Tuple {
 
     private final long d, a, b, d1, a1, b1;
+    private final long P1;
 
 
     Tuple(int Kprime, long X) {
@@ -38,7 +39,7 @@ final class Tuple {
         int L = Kprime + S + H;
         int J = SystematicIndices.J(Ki);
         int P = L - W;
-        long P1 = MatrixUtilities.ceilPrime(P);
+        this.P1 = MatrixUtilities.ceilPrime(P);
 
         long A = 53591 + J * 997;
         if (A % 2 == 0) A++;
@@ -87,4 +88,9 @@ final class Tuple {
 
         return b1;
     }
+
+    long getP1() {
+
+        return P1;
+    }
 }
@@ -90,6 +90,21 @@ import net.fec.openrq.parameters.ParameterChecker;
  * <td><code>2</code></td>
  * <td><code>K + 2</code></td>
  * <td>99.9999% <em>(one in a million chance of failure)</em> </td> </tr> </table> </blockquote>
+ * <p>
+ * <a name="online-decoding">
+ * <h5>Online decoding</h5></a>
+ * <p>
+ * By default, a decoding operation only takes place once enough encoding symbols are received, so the encoding packet
+ * that completes the source block pays for the whole decoding. When <b>online decoding</b> is enabled, each received
+ * encoding symbol is instead reduced against the previously received ones as soon as it arrives, which spreads the
+ * decoding cost over the reception of the source block. In this mode, the source block is decoded as soon as the
+ * received symbols are enough to recover it (regardless of the symbol overhead), and a decoding failure never occurs.
+ * The method {@link #decodingRank()} returns the number of independent equations available so far.
+ * <p>
+ * Online decoding usually takes more processing time in total than the default decoding, since the received symbols
+ * are reduced before knowing which ones are needed, but the encoding packet that completes the source block only pays
+ * for solving the already reduced equations. The method {@link #isOnlineDecoding()} indicates if online decoding is
+ * enabled, and the method {@link #setOnlineDecoding(boolean)} enables or disables it.
  */
 public interface SourceBlockDecoder {
 
@@ -265,4 +280,37 @@ public interface SourceBlockDecoder {
      * @see #symbolOverhead()
      */
     public void setSymbolOverhead(int symbOver);
+
+    /**
+     * Returns {@code true} if online decoding is enabled. For information on this mode, refer to the section on
+     * <a href="#online-decoding"><em>Online decoding</em></a> in the class header.
+     * 
+     * @return {@code true} if online decoding is enabled
+     * @see #setOnlineDecoding(boolean)
+     */
+    public boolean isOnlineDecoding();
+
+    /**
+     * Enables or disables online decoding. For information on this mode, refer to the section on
+     * <a href="#online-decoding"><em>Online decoding</em></a> in the class header.
+     * <p>
+     * When enabled, every encoding symbol received so far is immediately reduced (which may decode the source block).
+     * 
+     * @param online
+     *            Whether online decoding should be enabled
+     * @see #isOnlineDecoding()
+     */
+    public void setOnlineDecoding(boolean online);
+
+    /**
+     * Returns the rank of the decoding system, which is the number of independent equations available for recovering
+     * the intermediate symbols of the source block. For information on this value, refer to the section on
+     * <a href="#online-decoding"><em>Online decoding</em></a> in the class header.
+     * <p>
+     * The rank is only known if online decoding is enabled or if the source block is already decoded (in which case
+     * the rank is the total number of intermediate symbols).
+     * 
+     * @return the rank of the decoding system, or {@code -1} if it is not known
+     */
+    public int decodingRank();
 }
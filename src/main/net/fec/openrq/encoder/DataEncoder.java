@@ -17,6 +17,10 @@
 package net.fec.openrq.encoder;
 
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import net.fec.openrq.parameters.FECParameters;
 
 
@@ -93,5 +97,77 @@ public interface DataEncoder {
      * @return a new iterable over all source block encoders
      */
     public Iterable<SourceBlockEncoder> sourceBlockIterable();
+
+    /**
+     * Starts preparing every source block encoder for the production of repair symbols, in a thread pool shared by the
+     * library (see {@link SourceBlockEncoder#prepare()}).
+     *
+     * @return a future that is completed (with this encoder) when every source block encoder is prepared
+     */
+    public Future<DataEncoder> prepare();
+
+    /**
+     * Starts preparing every source block encoder for the production of repair symbols, in the given executor (see
+     * {@link SourceBlockEncoder#prepare(Executor)}).
+     * <p>
+     * The source blocks are prepared independently, so they are prepared in parallel if the executor has multiple
+     * threads, such as a {@link ForkJoinPool}.
+     *
+     * @param executor
+     *            The executor where the source block encoders are prepared
+     * @return a future that is completed (with this encoder) when every source block encoder is prepared
+     * @exception NullPointerException
+     *                If the executor is {@code null}
+     * @exception java.util.concurrent.RejectedExecutionException
+     *                If the executor rejects the preparation of a source block encoder
+     */
+    public Future<DataEncoder> prepare(Executor executor);
+
+    /**
+     * Produces the encoding packets of every source block in parallel, in a thread pool shared by the library, and
+     * passes each one to the given handler.
+     * <p>
+     * Calling this method is the same as calling {@link #forEachPacket(int, EncodingPacketHandler, ForkJoinPool)} with
+     * the shared pool (see {@link SourceBlockEncoder#prepare()}).
+     *
+     * @param numRepairPackets
+     *            The number of repair packets produced for each source block
+     * @param handler
+     *            The handler of the encoding packets
+     * @exception NullPointerException
+     *                If the handler is {@code null}
+     * @exception IllegalArgumentException
+     *                If the number of repair packets is invalid for some source block
+     */
+    public void forEachPacket(int numRepairPackets, EncodingPacketHandler handler);
+
+    /**
+     * Produces the encoding packets of every source block in parallel, in the given pool, and passes each one to the
+     * given handler. This method returns when every packet has been handled.
+     * <p>
+     * For each source block, a packet is produced for every source symbol and for the first {@code numRepairPackets}
+     * repair symbols, each packet with a single symbol. The source blocks, and ranges of packets within each source
+     * block, are processed in parallel, so the handler may be called concurrently by multiple threads and the packets
+     * are handled in no particular order. If the handler throws an exception, then it is rethrown by this method, and
+     * some packets may not be handled.
+     * <p>
+     * <b><em>Bounds checking</em></b> - If we have {@code K} as the number of source symbols of a source block, then
+     * {@code numRepairPackets} must be non-negative and at most
+     * {@link net.fec.openrq.parameters.ParameterChecker#numRepairSymbolsPerBlock(int)
+     * ParameterChecker.numRepairSymbolsPerBlock(K)} for every source block, otherwise an
+     * {@code IllegalArgumentException} is thrown.
+     *
+     * @param numRepairPackets
+     *            The number of repair packets produced for each source block
+     * @param handler
+     *            The handler of the encoding packets
+     * @param pool
+     *            The pool where the packets are produced
+     * @exception NullPointerException
+     *                If the handler or the pool are {@code null}
+     * @exception IllegalArgumentException
+     *                If the number of repair packets is invalid for some source block
+     */
+    public void forEachPacket(int numRepairPackets, EncodingPacketHandler handler, ForkJoinPool pool);
 }
 
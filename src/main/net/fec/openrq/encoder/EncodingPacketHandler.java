@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fec.openrq.encoder;
+
+
+import net.fec.openrq.EncodingPacket;
+
+
+/**
+ * A handler of the encoding packets produced by a {@link DataEncoder} (see
+ * {@link DataEncoder#forEachPacket(int, EncodingPacketHandler)}).
+ * <p>
+ * The packets may be produced in parallel, so a handler may be called concurrently by multiple threads, and the order
+ * in which the packets are handled is unspecified.
+ */
+public interface EncodingPacketHandler {
+
+    /**
+     * Handles an encoding packet, for example, by sending it.
+     *
+     * @param packet
+     *            An encoding packet
+     */
+    public void handlePacket(EncodingPacket packet);
+}
@@ -17,6 +17,10 @@
 package net.fec.openrq.encoder;
 
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
 import net.fec.openrq.EncodingPacket;
 import net.fec.openrq.parameters.ParameterChecker;
 
@@ -293,6 +297,148 @@ public interface SourceBlockEncoder {
      */
     public EncodingPacket repairPacket(int esi, int numSymbols);
 
+    /**
+     * Writes the data of multiple repair symbols from the source block being encoded into the given buffer, one symbol
+     * after the other, starting at the current position of the buffer.
+     * <p>
+     * The repair symbols are identified by <code>&lt;sbn, esi&gt;</code>, <code>&lt;sbn, esi+1&gt;</code>, etc., and
+     * are the same as the ones in the packet returned by {@link #repairPacket(int, int) repairPacket(esi, numSymbols)}.
+     * The symbols are encoded together, which is faster than encoding one symbol at a time. The position of the buffer
+     * is advanced by {@code numSymbols * T} bytes, where {@code T} is the symbol size.
+     * <p>
+     * <b><em>Bounds checking</em></b> - The same as in method {@link #repairPacket(int, int)}.
+     *
+     * @param esi
+     *            The encoding symbol identifier of the first repair symbol
+     * @param numSymbols
+     *            The number of repair symbols to be written
+     * @param dst
+     *            The buffer where the repair symbols are written
+     * @exception IllegalArgumentException
+     *                If the provided encoding symbol identifier or the number of symbols are invalid
+     * @exception java.nio.BufferOverflowException
+     *                If the buffer has less than {@code numSymbols * T} bytes remaining
+     * @exception java.nio.ReadOnlyBufferException
+     *                If the buffer is read-only
+     */
+    public void writeRepairSymbols(int esi, int numSymbols, ByteBuffer dst);
+
+    /**
+     * Writes the data of multiple repair symbols from the source block being encoded into the given buffer, one symbol
+     * after the other in the order of the given encoding symbol identifiers, starting at the current position of the
+     * buffer.
+     * <p>
+     * The symbols are encoded together, which is faster than encoding one symbol at a time. The position of the buffer
+     * is advanced by {@code esis.length * T} bytes, where {@code T} is the symbol size.
+     * <p>
+     * <b><em>Bounds checking</em></b> - If we have {@code K} as the number of source symbols into which is divided the
+     * source block being encoded, and {@code max_esi} as the {@linkplain ParameterChecker#maxEncodingSymbolID() maximum
+     * value for the encoding symbol identifier}, then for each {@code esi} in the given array, {@code esi} &ge;
+     * {@code K} and {@code esi} &le; {@code max_esi} must be true, otherwise an {@code IllegalArgumentException} is
+     * thrown.
+     *
+     * @param esis
+     *            The encoding symbol identifiers of the repair symbols
+     * @param dst
+     *            The buffer where the repair symbols are written
+     * @exception IllegalArgumentException
+     *                If any of the provided encoding symbol identifiers is invalid
+     * @exception java.nio.BufferOverflowException
+     *                If the buffer has less than {@code esis.length * T} bytes remaining
+     * @exception java.nio.ReadOnlyBufferException
+     *                If the buffer is read-only
+     */
+    public void writeRepairSymbols(int[] esis, ByteBuffer dst);
+
+    /**
+     * Writes in the provided buffer the contents of an encoding packet with one or more encoding symbols from the
+     * source block being encoded, and returns the number of bytes written.
+     * <p>
+     * The written contents are the same as the ones written by {@link EncodingPacket#writeTo(ByteBuffer)} for the
+     * packet returned by {@link #sourcePacket(int, int) sourcePacket(esi, numSymbols)}, if {@code esi} is the
+     * identifier of a source symbol, or else by {@link #repairPacket(int, int) repairPacket(esi, numSymbols)}: the FEC
+     * payload ID, followed by the symbols data length, followed by the symbols data itself. The data is written
+     * directly, without creating an encoding packet, so that a sender can produce packets without allocating memory
+     * for each one. The position of the buffer is advanced by the number of bytes written.
+     * <p>
+     * <b><em>Bounds checking</em></b> - The same as in method {@link #sourcePacket(int, int)}, if {@code esi} is less
+     * than the number of source symbols, or else the same as in method {@link #repairPacket(int, int)}.
+     *
+     * @param esi
+     *            The encoding symbol identifier of the first symbol in the packet
+     * @param numSymbols
+     *            The number of symbols in the packet
+     * @param dst
+     *            The buffer where the packet contents are written
+     * @return the number of bytes written
+     * @exception IllegalArgumentException
+     *                If the provided encoding symbol identifier or the number of symbols are invalid
+     * @exception java.nio.BufferOverflowException
+     *                If the buffer does not have enough bytes remaining for the packet contents
+     * @exception java.nio.ReadOnlyBufferException
+     *                If the buffer is read-only
+     */
+    public int writePacket(int esi, int numSymbols, ByteBuffer dst);
+
+    /**
+     * Writes in the provided array the contents of an encoding packet with one or more encoding symbols from the source
+     * block being encoded, and returns the number of bytes written.
+     * <p>
+     * This method is the same as {@link #writePacket(int, int, ByteBuffer)}, but the contents are written in an array,
+     * starting at the given index.
+     *
+     * @param esi
+     *            The encoding symbol identifier of the first symbol in the packet
+     * @param numSymbols
+     *            The number of symbols in the packet
+     * @param array
+     *            The array where the packet contents are written
+     * @param offset
+     *            The index in the array where the packet contents start
+     * @return the number of bytes written
+     * @exception IllegalArgumentException
+     *                If the provided encoding symbol identifier or the number of symbols are invalid
+     * @exception IndexOutOfBoundsException
+     *                If the offset is negative or if the array does not have enough bytes after the offset for the
+     *                packet contents
+     * @exception NullPointerException
+     *                If {@code array} is {@code null}
+     */
+    public int writePacket(int esi, int numSymbols, byte[] array, int offset);
+
+    /**
+     * Starts preparing this encoder for the production of repair symbols, in a thread pool shared by the library.
+     * <p>
+     * Calling this method is the same as calling {@link #prepare(Executor)} with the shared pool. The pool is a
+     * {@link java.util.concurrent.ForkJoinPool} with a parallelism equal to the number of available processors, whose
+     * threads do not prevent the JVM from exiting.
+     *
+     * @return a future that is completed (with this encoder) when the encoder is prepared
+     */
+    public Future<SourceBlockEncoder> prepare();
+
+    /**
+     * Starts preparing this encoder for the production of repair symbols, in the given executor.
+     * <p>
+     * Before the first repair symbol is produced, the encoder must compute some intermediate data from the source
+     * symbols, which is the most expensive part of the encoding of a source block. This computation is done only
+     * once, either by the first thread that needs it or by the executor given to this method, and any other threads
+     * that need it wait for its completion. This method allows the computation to be done in advance, for example,
+     * while the packets of another source block are transmitted.
+     * <p>
+     * If the encoder is already prepared, or if its preparation has already started, nothing is submitted to the
+     * executor. The returned future cannot be cancelled, and it completes exceptionally only if the computation fails.
+     *
+     * @param executor
+     *            The executor where the encoder is prepared
+     * @return a future that is completed (with this encoder) when the encoder is prepared
+     * @exception NullPointerException
+     *                If the executor is {@code null}
+     * @exception java.util.concurrent.RejectedExecutionException
+     *                If the executor rejects the preparation
+     */
+    public Future<SourceBlockEncoder> prepare(Executor executor);
+
     /**
      * Returns a new builder object for an iterable over encoding packets.
      * <p>
@@ -1819,6 +1819,18 @@ public abstract class AbstractByteMatrix implements ByteMatrix {
         return new NonZeroRowIterator(i, fromColumn, toColumn);
     }
 
+    @Override
+    public ByteVectorIterator readOnlyNonZeroRowIterator(int i) {
+
+        return nonZeroRowIterator(i);
+    }
+
+    @Override
+    public ByteVectorIterator readOnlyNonZeroRowIterator(int i, int fromColumn, int toColumn) {
+
+        return nonZeroRowIterator(i, fromColumn, toColumn);
+    }
+
 
     private final class NonZeroRowIterator extends AbstractNonZeroIterator {
 
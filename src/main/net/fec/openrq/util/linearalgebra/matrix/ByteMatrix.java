@@ -1568,6 +1568,30 @@ public interface ByteMatrix {
      */
     ByteVectorIterator nonZeroRowIterator(int i, int fromColumn, int toColumn);
 
+    /**
+     * Returns a vector iterator over the non zero elements of a row of this matrix, which must only be used for reading
+     * the row (no copies are performed, not even of rows that this matrix shares with other matrices).
+     * 
+     * @param i
+     *            The row index
+     * @return a non zero vector iterator that must not be used to modify this matrix
+     */
+    ByteVectorIterator readOnlyNonZeroRowIterator(int i);
+
+    /**
+     * Returns a vector iterator over the non zero elements of a range of a row of this matrix, which must only be used
+     * for reading the row (no copies are performed, not even of rows that this matrix shares with other matrices).
+     * 
+     * @param i
+     *            The row index
+     * @param fromColumn
+     *            The starting column index (inclusive)
+     * @param toColumn
+     *            The ending column index (exclusive)
+     * @return a non zero vector iterator that must not be used to modify this matrix
+     */
+    ByteVectorIterator readOnlyNonZeroRowIterator(int i, int fromColumn, int toColumn);
+
     /**
      * Returns a vector iterator over the non zero elements of a column of this matrix (no copies are performed).
      * 
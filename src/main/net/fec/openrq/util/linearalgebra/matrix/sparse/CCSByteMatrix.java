@@ -150,7 +150,7 @@ public class CCSByteMatrix extends AbstractCompressedByteMatrix implements Spars
     @Override
     public void clearColumn(int j) {
 
-        sparseCols.vectorR(j).clear(); // this is non mutable on an empty vector
+        sparseCols.clearVector(j);
     }
 
     @Override
@@ -219,7 +219,7 @@ public class CCSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         if (i != j) {
             for (int col = 0; col < columns(); col++) {
-                sparseCols.vectorR(col).swap(i, j); // vectorR because swap is non-destructive in empty vectors
+                sparseCols.vectorW(col).swap(i, j); // vectorW because swap is non-destructive in empty vectors
             }
         }
     }
@@ -48,9 +48,11 @@ import static net.fec.openrq.util.math.OctetOps.aTimesB;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Objects;
 
 import net.fec.openrq.util.checking.Indexables;
+import net.fec.openrq.util.datatype.UnsignedTypes;
 import net.fec.openrq.util.linearalgebra.LinearAlgebra;
 import net.fec.openrq.util.linearalgebra.factory.Factory;
 import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
@@ -152,7 +154,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
     @Override
     public void clearRow(int i) {
 
-        sparseRows.vectorR(i).clear(); // this is non mutable on an empty vector
+        sparseRows.clearVector(i);
     }
 
     // =========================================================================
@@ -173,7 +175,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         if (value != 0) {
             for (int i = 0; i < rows(); i++) {
-                ByteVectorIterator it = nonZeroRowIterator(i);
+                ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
                 while (it.hasNext()) {
                     it.next();
                     final byte prod = aTimesB(value, it.get());
@@ -205,7 +207,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         for (int i = 0; i < rows(); i++) {
             byte acc = 0;
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 final byte prod = aTimesB(it.get(), vector.get(it.index()));
@@ -242,7 +244,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         for (int i = 0; i < rows(); i++) {
             for (int j = 0; j < result.columns(); j++) {
                 byte acc = 0;
-                ByteVectorIterator it = nonZeroRowIterator(i);
+                ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
                 while (it.hasNext()) {
                     it.next();
                     final byte prod = aTimesB(it.get(), matrix.get(it.index(), j));
@@ -312,7 +314,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         for (int i = fromThisRow; i < toThisRow; i++) {
             for (int j = fromOtherColumn; j < toOtherColumn; j++) {
                 byte acc = 0;
-                ByteVectorIterator it = nonZeroRowIterator(i, fromThisColumn, toThisColumn);
+                ByteVectorIterator it = readOnlyNonZeroRowIterator(i, fromThisColumn, toThisColumn);
                 while (it.hasNext()) {
                     it.next();
                     final byte prod = aTimesB(it.get(), matrix.get(it.index(), j));
@@ -350,7 +352,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         for (int j = 0; j < matrix.columns(); j++) {
             byte acc = 0;
 
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 final byte prod = aTimesB(it.get(), matrix.get(it.index(), j));
@@ -386,7 +388,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         for (int j = 0; j < matrix.columns(); j++) {
             byte acc = 0;
 
-            ByteVectorIterator it = nonZeroRowIterator(i, fromColumn, toColumn);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i, fromColumn, toColumn);
             while (it.hasNext()) {
                 it.next();
                 final byte prod = aTimesB(it.get(), matrix.get(it.index() - fromColumn, j));
@@ -416,7 +418,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         ByteMatrix result = factory.createMatrix(columns(), rows());
 
         for (int i = 0; i < rows(); i++) {
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 result.set(it.index(), i, it.get());
@@ -468,7 +470,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         if (i != j) {
             for (int row = 0; row < rows(); row++) {
-                sparseRows.vectorR(row).swap(i, j); // vectorR because swap is non-destructive in empty vectors
+                sparseRows.vectorW(row).swap(i, j); // vectorW because swap is non-destructive in empty vectors
             }
         }
     }
@@ -479,6 +481,89 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         return new CRSByteMatrix(rows(), columns(), sparseRows.copy());
     }
 
+    /**
+     * Returns a copy of this matrix with a different number of rows, where each row is only copied the first time it
+     * is modified in the returned matrix. The rows past the last row of this matrix are zero.
+     * <p>
+     * <b><em>This matrix must not be modified while the returned matrix is in use.</em></b>
+     * 
+     * @param rows
+     *            The number of rows of the returned matrix
+     * @return a copy-on-write copy of this matrix
+     */
+    public CRSByteMatrix copyOnWrite(int rows) {
+
+        if (rows < 0) throw new IllegalArgumentException("number of rows must be non-negative");
+        return new CRSByteMatrix(rows, columns(), sparseRows.copyOnWrite(rows));
+    }
+
+    /**
+     * Returns the number of rows that this matrix still shares with the matrix it was
+     * {@linkplain #copyOnWrite(int) copied} from, which is zero if this matrix is not a copy-on-write copy.
+     * 
+     * @return the number of rows that were not copied yet
+     */
+    public int sharedRows() {
+
+        return sparseRows.numSharedVectors();
+    }
+
+    @Override
+    public ByteMatrix select(int[] rowIndices, int[] columnIndices, Factory factory) {
+
+        // only selections into another CRS matrix without repeated columns are optimized
+        if (factory != LinearAlgebra.CRS_FACTORY || rowIndices.length == 0 || columnIndices.length == 0) {
+            return super.select(rowIndices, columnIndices, factory);
+        }
+
+        // the new index of each column, or -1 if the column is not selected
+        final int[] newColumns = new int[columns()];
+        Arrays.fill(newColumns, -1);
+        for (int j = 0; j < columnIndices.length; j++) {
+            Indexables.checkIndexBounds(columnIndices[j], columns());
+            if (newColumns[columnIndices[j]] != -1) {
+                return super.select(rowIndices, columnIndices, factory);
+            }
+            newColumns[columnIndices[j]] = j;
+        }
+
+        final byte[][] values = new byte[rowIndices.length][];
+        final int[][] indices = new int[rowIndices.length][];
+        final int[] cardinalities = new int[rowIndices.length];
+
+        int[] entries = new int[0];
+        for (int i = 0; i < rowIndices.length; i++) {
+            Indexables.checkIndexBounds(rowIndices[i], rows());
+            final ByteVector row = sparseRows.vectorR(rowIndices[i]);
+            if (entries.length < row.nonZeros()) {
+                entries = new int[row.nonZeros()];
+            }
+
+            // each entry keeps the new column index in the high bits and the value in the low bits, so that sorting
+            // the entries sorts them by column
+            int n = 0;
+            final ByteVectorIterator it = row.nonZeroIterator();
+            while (it.hasNext()) {
+                it.next();
+                final int newCol = newColumns[it.index()];
+                if (newCol != -1) {
+                    entries[n++] = (newCol << Byte.SIZE) | UnsignedTypes.getUnsignedByte(it.get());
+                }
+            }
+            Arrays.sort(entries, 0, n);
+
+            values[i] = new byte[n];
+            indices[i] = new int[n];
+            cardinalities[i] = n;
+            for (int k = 0; k < n; k++) {
+                values[i][k] = (byte)entries[k];
+                indices[i][k] = entries[k] >>> Byte.SIZE;
+            }
+        }
+
+        return new CRSByteMatrix(rowIndices.length, columnIndices.length, values, indices, cardinalities);
+    }
+
     @Override
     public boolean nonZeroAt(int i, int j) {
 
@@ -537,7 +622,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
     public void eachNonZero(MatrixProcedure procedure) {
 
         for (int i = 0; i < rows(); i++) {
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 procedure.apply(i, it.index(), it.get());
@@ -655,6 +740,21 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
         return sparseRows.vectorRW(i).nonZeroIterator(fromColumn, toColumn);
     }
 
+    @Override
+    public ByteVectorIterator readOnlyNonZeroRowIterator(int i) {
+
+        Indexables.checkIndexBounds(i, rows());
+        return sparseRows.vectorR(i).nonZeroIterator();
+    }
+
+    @Override
+    public ByteVectorIterator readOnlyNonZeroRowIterator(int i, int fromColumn, int toColumn) {
+
+        Indexables.checkIndexBounds(i, rows());
+        Indexables.checkFromToBounds(fromColumn, toColumn, columns());
+        return sparseRows.vectorR(i).nonZeroIterator(fromColumn, toColumn);
+    }
+
     @Override
     public ByteBuffer serializeToBuffer() {
 
@@ -665,7 +765,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         for (int i = 0; i < rows(); i++) {
             Serialization.writeMatrixRowCardinality(buffer, nonZerosInRow(i));
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 Serialization.writeMatrixColumnIndex(buffer, it.index());
@@ -686,7 +786,7 @@ public class CRSByteMatrix extends AbstractCompressedByteMatrix implements Spars
 
         for (int i = 0; i < rows(); i++) {
             Serialization.writeMatrixRowCardinality(ch, nonZerosInRow(i));
-            ByteVectorIterator it = nonZeroRowIterator(i);
+            ByteVectorIterator it = readOnlyNonZeroRowIterator(i);
             while (it.hasNext()) {
                 it.next();
                 Serialization.writeMatrixColumnIndex(ch, it.index());
@@ -36,6 +36,9 @@ final class SparseVectors {
     private final ByteVector[] vectors;
     private final ByteVector empty;
 
+    // the vectors that are shared with other instances, which are copied before being modified (null if none)
+    private boolean[] shared;
+
 
     SparseVectors(int numVectors, int vectorLength) {
 
@@ -44,6 +47,7 @@ final class SparseVectors {
         for (int i = 0; i < numVectors; i++) {
             vectors[i] = empty;
         }
+        this.shared = null;
     }
 
     SparseVectors(int numVectors, int vectorLength, byte[][] values, int[][] indices, int[] cardinalities) {
@@ -53,12 +57,14 @@ final class SparseVectors {
         for (int i = 0; i < numVectors; i++) {
             vectors[i] = initCompressedVector(values[i], indices[i], cardinalities[i]);
         }
+        this.shared = null;
     }
 
     private SparseVectors(ByteVector[] vectors, ByteVector empty) {
 
         this.vectors = Objects.requireNonNull(vectors);
         this.empty = Objects.requireNonNull(empty);
+        this.shared = null;
     }
 
     SparseVectors copy() {
@@ -72,6 +78,38 @@ final class SparseVectors {
         return new SparseVectors($vectors, empty);
     }
 
+    /**
+     * Returns new sparse vectors that share the vectors of these ones, until they are modified in the returned
+     * instance; the vectors past the end of these ones are empty.
+     * <p>
+     * <b><em>These vectors must not be modified while the returned ones are in use.</em></b>
+     */
+    SparseVectors copyOnWrite(int numVectors) {
+
+        final SparseVectors $copy = new SparseVectors(numVectors, empty.length());
+        $copy.shared = new boolean[numVectors];
+        for (int i = 0; i < Math.min(numVectors, vectors.length); i++) {
+            if (vectors[i] != empty) {
+                $copy.vectors[i] = vectors[i];
+                $copy.shared[i] = true;
+            }
+        }
+
+        return $copy;
+    }
+
+    // the number of vectors that are still shared with other instances
+    int numSharedVectors() {
+
+        int num = 0;
+        if (shared != null) {
+            for (boolean sh : shared) {
+                if (sh) num++;
+            }
+        }
+        return num;
+    }
+
     void initializeVector(int index, VectorSource source) {
 
         vectors[index] = new CompressedByteVector(source);
@@ -85,9 +123,35 @@ final class SparseVectors {
             vec = initCompressedVector();
             vectors[index] = vec;
         }
+        else if (shared != null && shared[index]) {
+            vec = vec.copy();
+            vectors[index] = vec;
+            shared[index] = false;
+        }
         return vec;
     }
 
+    // Write, without initializing empty vectors (for operations that are non mutable on an empty vector)
+    ByteVector vectorW(int index) {
+
+        if (shared != null && shared[index]) {
+            vectors[index] = vectors[index].copy();
+            shared[index] = false;
+        }
+        return vectors[index];
+    }
+
+    void clearVector(int index) {
+
+        if (shared != null && shared[index]) {
+            vectors[index] = empty;
+            shared[index] = false;
+        }
+        else {
+            vectors[index].clear(); // this is non mutable on an empty vector
+        }
+    }
+
     // Read Only
     ByteVector vectorR(int index) {
 
@@ -97,6 +161,11 @@ final class SparseVectors {
     void swapVectors(int i, int j) {
 
         ArrayUtils.swapObjects(vectors, i, j);
+        if (shared != null) {
+            final boolean aux = shared[i];
+            shared[i] = shared[j];
+            shared[j] = aux;
+        }
     }
 
     private ByteVector initCompressedVector() {
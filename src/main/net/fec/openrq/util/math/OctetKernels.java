@@ -0,0 +1,695 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fec.openrq.util.math;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.fec.openrq.util.datatype.SizeOf;
+
+
+/**
+ * Alternative implementations of the vector kernels in {@link OctetOps}, and the ones that are used in this platform.
+ * <p>
+ * The implementations of each kernel are declared from the simplest to the most involved. The ones based on the Vector
+ * API (see {@link VectorKernels}) are used whenever that API is available. Otherwise, the implementations that are the
+ * fastest once compiled by HotSpot are used: the byte loops over arrays (which HotSpot can vectorize), and the words
+ * over buffers. Timing the implementations when this class is initialized would only measure the interpreted code.
+ * <p>
+ * The implementation of each kernel can be overridden with a system property, whose value is the name of the
+ * implementation: {@code net.fec.openrq.arrayMultiplyAddKernel}, {@code net.fec.openrq.bufferMultiplyAddKernel} and
+ * {@code net.fec.openrq.additionKernel}. A property with an unknown or unavailable implementation is ignored.
+ */
+final class OctetKernels {
+
+    // indexed by multiplier, the products of the multiplier by each value of the low and high nibble of a byte
+    private static final byte[][] LOW_NIBBLE_PRODUCTS;
+    private static final byte[][] HIGH_NIBBLE_PRODUCTS;
+
+    static {
+        final int size = 1 << Byte.SIZE;
+        final int nibbleSize = 1 << (Byte.SIZE / 2);
+
+        LOW_NIBBLE_PRODUCTS = new byte[size][nibbleSize];
+        HIGH_NIBBLE_PRODUCTS = new byte[size][nibbleSize];
+
+        for (int m = 0; m < size; m++) {
+            for (int n = 0; n < nibbleSize; n++) {
+                LOW_NIBBLE_PRODUCTS[m][n] = OctetOps.aTimesB((byte)m, (byte)n);
+                HIGH_NIBBLE_PRODUCTS[m][n] = OctetOps.aTimesB((byte)m, (byte)(n << 4));
+            }
+        }
+    }
+
+    /**
+     * The kernel used to add a vector multiplied by a value (other than 0 and 1) to another vector, in arrays.
+     */
+    static final MultiplyAddKernel ARRAY_MULTIPLY_ADD;
+
+    /**
+     * The kernel used to add a vector multiplied by a value (other than 0 and 1) to another vector, in buffers.
+     */
+    static final MultiplyAddKernel BUFFER_MULTIPLY_ADD;
+
+    /**
+     * The kernel used to add a vector to another vector, in arrays.
+     */
+    static final AdditionKernel ARRAY_ADDITION;
+
+    /**
+     * The kernel used to multiply a vector by a value (other than 0 and 1), in arrays.
+     */
+    static final ProductKernel ARRAY_PRODUCT;
+
+    static {
+        // the module of the Vector API has to be added to the JVM explicitly
+        final boolean vectorArrays = VectorKernels.isAvailable();
+        final boolean vectorBuffers = VectorKernels.supportsBuffers();
+
+        ARRAY_MULTIPLY_ADD = multiplyAddKernel("net.fec.openrq.arrayMultiplyAddKernel", vectorArrays,
+            vectorArrays ? MultiplyAddKernel.VECTOR : MultiplyAddKernel.PRODUCT_TABLE);
+        BUFFER_MULTIPLY_ADD = multiplyAddKernel("net.fec.openrq.bufferMultiplyAddKernel", vectorBuffers,
+            vectorBuffers ? MultiplyAddKernel.VECTOR : MultiplyAddKernel.PRODUCT_TABLE_WORDS);
+        ARRAY_ADDITION = additionKernel("net.fec.openrq.additionKernel", vectorArrays,
+            vectorArrays ? AdditionKernel.VECTOR : AdditionKernel.BYTES);
+
+        // there is a single scalar product kernel
+        ARRAY_PRODUCT = vectorArrays ? ProductKernel.VECTOR : ProductKernel.PRODUCT_TABLE;
+    }
+
+
+    // returns the implementation named by the given system property, if it is available (the one of the Vector API
+    // only if the given flag is set), or else the default one
+    private static MultiplyAddKernel multiplyAddKernel(
+        String property,
+        boolean vector,
+        MultiplyAddKernel defaultKernel)
+    {
+
+        final String name = System.getProperty(property);
+        for (MultiplyAddKernel kernel : MultiplyAddKernel.values()) {
+            if (kernel.name().equals(name) && (kernel == MultiplyAddKernel.VECTOR ? vector : kernel.isAvailable())) {
+                return kernel;
+            }
+        }
+        return defaultKernel;
+    }
+
+    // returns the implementation named by the given system property, if it is available (the one of the Vector API
+    // only if the given flag is set), or else the default one
+    private static AdditionKernel additionKernel(String property, boolean vector, AdditionKernel defaultKernel) {
+
+        final String name = System.getProperty(property);
+        for (AdditionKernel kernel : AdditionKernel.values()) {
+            if (kernel.name().equals(name) && (kernel == AdditionKernel.VECTOR ? vector : kernel.isAvailable())) {
+                return kernel;
+            }
+        }
+        return defaultKernel;
+    }
+
+
+    /**
+     * Implementations of {@code result = multiplier * vector1 + vector2}.
+     * <p>
+     * The implementations over buffers use absolute positions and do not change the positions of the buffers. Each
+     * implementation has its own loops, without virtual calls, so that running the others does
+     * not affect how it is compiled.
+     */
+    static enum MultiplyAddKernel {
+
+        /**
+         * Each byte is multiplied with a lookup in the row of the multiplication table of the multiplier, and added
+         * separately.
+         */
+        PRODUCT_TABLE {
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                byte[] vector1,
+                int vecPos1,
+                byte[] vector2,
+                int vecPos2,
+                byte[] result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] products = OctetOps.productsOf(multiplier);
+                final int resEnd = resPos + length;
+                for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
+                    result[r] = (byte)(products[vector1[v1] & 0xFF] ^ vector2[v2]);
+                }
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                ByteBuffer vector1,
+                int vecPos1,
+                ByteBuffer vector2,
+                int vecPos2,
+                ByteBuffer result,
+                int resPos,
+                int length)
+            {
+
+                productTableBytes(OctetOps.productsOf(multiplier), vector1, vecPos1, vector2, vecPos2, result, resPos,
+                    length);
+            }
+        },
+
+        /**
+         * Eight bytes at a time are read as a long, multiplied byte by byte with lookups in the row of the
+         * multiplication table of the multiplier, and added as a long.
+         */
+        PRODUCT_TABLE_WORDS {
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                byte[] vector1,
+                int vecPos1,
+                byte[] vector2,
+                int vecPos2,
+                byte[] result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] products = OctetOps.productsOf(multiplier);
+                final int sol = SizeOf.LONG;
+                final int resEnd = resPos + length;
+                final int resLongEnd = resPos + ((length / sol) * sol);
+
+                int v1 = vecPos1;
+                int v2 = vecPos2;
+                int r = resPos;
+                for (; r < resLongEnd; v1 += sol, v2 += sol, r += sol) {
+                    final long word = getLong(vector1, v1);
+                    long prod = 0L;
+                    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                        prod |= (products[(int)(word >>> shift) & 0xFF] & 0xFFL) << shift;
+                    }
+                    putLong(result, r, prod ^ getLong(vector2, v2));
+                }
+
+                for (; r < resEnd; v1++, v2++, r++) {
+                    result[r] = (byte)(products[vector1[v1] & 0xFF] ^ vector2[v2]);
+                }
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                ByteBuffer vector1,
+                int vecPos1,
+                ByteBuffer vector2,
+                int vecPos2,
+                ByteBuffer result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] products = OctetOps.productsOf(multiplier);
+                if (haveSameOrder(vector1, vector2, result)) {
+                    productTableWords(products, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+                }
+                else {
+                    productTableBytes(products, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+                }
+            }
+        },
+
+        /**
+         * Each byte is multiplied with two lookups in the (much smaller) tables of products of the multiplier by the
+         * low and high nibbles of a byte, and added separately.
+         */
+        SPLIT_NIBBLE {
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                byte[] vector1,
+                int vecPos1,
+                byte[] vector2,
+                int vecPos2,
+                byte[] result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] lowProducts = LOW_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final byte[] highProducts = HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final int resEnd = resPos + length;
+                for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
+                    final int b = vector1[v1];
+                    result[r] = (byte)(lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F] ^ vector2[v2]);
+                }
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                ByteBuffer vector1,
+                int vecPos1,
+                ByteBuffer vector2,
+                int vecPos2,
+                ByteBuffer result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] lowProducts = LOW_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final byte[] highProducts = HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final int resEnd = resPos + length;
+                for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
+                    final int b = vector1.get(v1);
+                    result.put(r, (byte)(lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F] ^ vector2.get(v2)));
+                }
+            }
+        },
+
+        /**
+         * Eight bytes at a time are read as a long, multiplied byte by byte with lookups in the tables of products of
+         * the multiplier by the low and high nibbles of a byte, and added as a long.
+         */
+        SPLIT_NIBBLE_WORDS {
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                byte[] vector1,
+                int vecPos1,
+                byte[] vector2,
+                int vecPos2,
+                byte[] result,
+                int resPos,
+                int length)
+            {
+
+                final byte[] lowProducts = LOW_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final byte[] highProducts = HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF];
+                final int sol = SizeOf.LONG;
+                final int resEnd = resPos + length;
+                final int resLongEnd = resPos + ((length / sol) * sol);
+
+                int v1 = vecPos1;
+                int v2 = vecPos2;
+                int r = resPos;
+                for (; r < resLongEnd; v1 += sol, v2 += sol, r += sol) {
+                    final long word = getLong(vector1, v1);
+                    long prod = 0L;
+                    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                        final int b = (int)(word >>> shift);
+                        prod |= ((lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F]) & 0xFFL) << shift;
+                    }
+                    putLong(result, r, prod ^ getLong(vector2, v2));
+                }
+
+                for (; r < resEnd; v1++, v2++, r++) {
+                    final int b = vector1[v1];
+                    result[r] = (byte)(lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F] ^ vector2[v2]);
+                }
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                ByteBuffer vector1,
+                int vecPos1,
+                ByteBuffer vector2,
+                int vecPos2,
+                ByteBuffer result,
+                int resPos,
+                int length)
+            {
+
+                if (haveSameOrder(vector1, vector2, result)) {
+                    splitNibbleWords(LOW_NIBBLE_PRODUCTS[multiplier & 0xFF], HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF],
+                        vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+                }
+                else {
+                    productTableBytes(OctetOps.productsOf(multiplier), vector1, vecPos1, vector2, vecPos2, result,
+                        resPos, length);
+                }
+            }
+        },
+
+        /**
+         * The bytes are multiplied, with shuffles of the products of the multiplier by the low and high nibbles of a
+         * byte, and added, many at a time, by the Vector API.
+         */
+        VECTOR {
+
+            @Override
+            boolean isAvailable() {
+
+                return VectorKernels.isAvailable();
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                byte[] vector1,
+                int vecPos1,
+                byte[] vector2,
+                int vecPos2,
+                byte[] result,
+                int resPos,
+                int length)
+            {
+
+                VectorKernels.multiplyAdd(multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+            }
+
+            @Override
+            void multiplyAdd(
+                byte multiplier,
+                ByteBuffer vector1,
+                int vecPos1,
+                ByteBuffer vector2,
+                int vecPos2,
+                ByteBuffer result,
+                int resPos,
+                int length)
+            {
+
+                VectorKernels.multiplyAdd(multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+            }
+        };
+
+
+        /**
+         * Returns {@code true} if this implementation can be used in this JVM.
+         */
+        boolean isAvailable() {
+
+            return true;
+        }
+
+
+        /**
+         * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+         * {@code [0, length)}.
+         */
+        abstract void multiplyAdd(
+            byte multiplier,
+            byte[] vector1,
+            int vecPos1,
+            byte[] vector2,
+            int vecPos2,
+            byte[] result,
+            int resPos,
+            int length);
+
+        /**
+         * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+         * {@code [0, length)}.
+         */
+        abstract void multiplyAdd(
+            byte multiplier,
+            ByteBuffer vector1,
+            int vecPos1,
+            ByteBuffer vector2,
+            int vecPos2,
+            ByteBuffer result,
+            int resPos,
+            int length);
+
+        // the bytes of the longs only match if the buffers have the same byte order
+        private static boolean haveSameOrder(ByteBuffer vector1, ByteBuffer vector2, ByteBuffer result) {
+
+            final ByteOrder order = result.order();
+            return vector1.order() == order && vector2.order() == order;
+        }
+
+        private static void productTableBytes(
+            byte[] products,
+            ByteBuffer vector1,
+            int vecPos1,
+            ByteBuffer vector2,
+            int vecPos2,
+            ByteBuffer result,
+            int resPos,
+            int length)
+        {
+
+            final int resEnd = resPos + length;
+            for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
+                result.put(r, (byte)(products[vector1.get(v1) & 0xFF] ^ vector2.get(v2)));
+            }
+        }
+
+        // the buffers must have the same byte order
+        private static void productTableWords(
+            byte[] products,
+            ByteBuffer vector1,
+            int vecPos1,
+            ByteBuffer vector2,
+            int vecPos2,
+            ByteBuffer result,
+            int resPos,
+            int length)
+        {
+
+            final int sol = SizeOf.LONG;
+            final int resLongEnd = resPos + ((length / sol) * sol);
+
+            int v1 = vecPos1;
+            int v2 = vecPos2;
+            int r = resPos;
+            for (; r < resLongEnd; v1 += sol, v2 += sol, r += sol) {
+                final long word = vector1.getLong(v1);
+                long prod = 0L;
+                for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                    prod |= (products[(int)(word >>> shift) & 0xFF] & 0xFFL) << shift;
+                }
+                result.putLong(r, prod ^ vector2.getLong(v2));
+            }
+
+            productTableBytes(products, vector1, v1, vector2, v2, result, r, resPos + length - r);
+        }
+
+        // the buffers must have the same byte order
+        private static void splitNibbleWords(
+            byte[] lowProducts,
+            byte[] highProducts,
+            ByteBuffer vector1,
+            int vecPos1,
+            ByteBuffer vector2,
+            int vecPos2,
+            ByteBuffer result,
+            int resPos,
+            int length)
+        {
+
+            final int sol = SizeOf.LONG;
+            final int resEnd = resPos + length;
+            final int resLongEnd = resPos + ((length / sol) * sol);
+
+            int v1 = vecPos1;
+            int v2 = vecPos2;
+            int r = resPos;
+            for (; r < resLongEnd; v1 += sol, v2 += sol, r += sol) {
+                final long word = vector1.getLong(v1);
+                long prod = 0L;
+                for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                    final int b = (int)(word >>> shift);
+                    prod |= ((lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F]) & 0xFFL) << shift;
+                }
+                result.putLong(r, prod ^ vector2.getLong(v2));
+            }
+
+            for (; r < resEnd; v1++, v2++, r++) {
+                final int b = vector1.get(v1);
+                result.put(r, (byte)(lowProducts[b & 0x0F] ^ highProducts[(b >>> 4) & 0x0F] ^ vector2.get(v2)));
+            }
+        }
+    }
+
+    /**
+     * Implementations of {@code result = vector1 + vector2}, in arrays.
+     */
+    static enum AdditionKernel {
+
+        /**
+         * Each byte is added separately.
+         */
+        BYTES {
+
+            @Override
+            void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+                final int resEnd = resPos + length;
+                for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
+                    result[r] = (byte)(vector1[v1] ^ vector2[v2]);
+                }
+            }
+        },
+
+        /**
+         * Eight bytes at a time are read and added as a long.
+         */
+        WORDS {
+
+            @Override
+            void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+                final int sol = SizeOf.LONG;
+                final int resEnd = resPos + length;
+                final int resLongEnd = resPos + ((length / sol) * sol);
+
+                int v1 = vecPos1;
+                int v2 = vecPos2;
+                int r = resPos;
+                for (; r < resLongEnd; v1 += sol, v2 += sol, r += sol) {
+                    putLong(result, r, getLong(vector1, v1) ^ getLong(vector2, v2));
+                }
+
+                for (; r < resEnd; v1++, v2++, r++) {
+                    result[r] = (byte)(vector1[v1] ^ vector2[v2]);
+                }
+            }
+        },
+
+        /**
+         * Many bytes at a time are added by the Vector API.
+         */
+        VECTOR {
+
+            @Override
+            boolean isAvailable() {
+
+                return VectorKernels.isAvailable();
+            }
+
+            @Override
+            void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+                VectorKernels.add(vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+            }
+        };
+
+
+        /**
+         * Returns {@code true} if this implementation can be used in this JVM.
+         */
+        boolean isAvailable() {
+
+            return true;
+        }
+
+
+        /**
+         * {@code result[resPos + i] = vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+         * {@code [0, length)}.
+         */
+        abstract void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length);
+    }
+
+
+    /**
+     * Implementations of {@code result = multiplier * vector}, in arrays.
+     */
+    static enum ProductKernel {
+
+        /**
+         * Each byte is multiplied with a lookup in the row of the multiplication table of the multiplier.
+         */
+        PRODUCT_TABLE {
+
+            @Override
+            void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+                final byte[] products = OctetOps.productsOf(multiplier);
+                final int resEnd = resPos + length;
+                for (int v = vecPos, r = resPos; r < resEnd; v++, r++) {
+                    result[r] = products[vector[v] & 0xFF];
+                }
+            }
+        },
+
+        /**
+         * The bytes are multiplied, with shuffles of the products of the multiplier by the low and high nibbles of a
+         * byte, many at a time, by the Vector API.
+         */
+        VECTOR {
+
+            @Override
+            boolean isAvailable() {
+
+                return VectorKernels.isAvailable();
+            }
+
+            @Override
+            void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+                VectorKernels.multiply(multiplier, vector, vecPos, result, resPos, length);
+            }
+        };
+
+
+        /**
+         * Returns {@code true} if this implementation can be used in this JVM.
+         */
+        boolean isAvailable() {
+
+            return true;
+        }
+
+        /**
+         * {@code result[resPos + i] = multiplier * vector[vecPos + i]}, for each {@code i} in {@code [0, length)}.
+         */
+        abstract void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length);
+    }
+
+
+    // the eight bytes of the array from the given index, as a little-endian long
+    private static long getLong(byte[] array, int index) {
+
+        return (array[index] & 0xFFL)
+               | (array[index + 1] & 0xFFL) << 8
+               | (array[index + 2] & 0xFFL) << 16
+               | (array[index + 3] & 0xFFL) << 24
+               | (array[index + 4] & 0xFFL) << 32
+               | (array[index + 5] & 0xFFL) << 40
+               | (array[index + 6] & 0xFFL) << 48
+               | (array[index + 7] & 0xFFL) << 56;
+    }
+
+    // writes the long into the eight bytes of the array from the given index, in little-endian order
+    private static void putLong(byte[] array, int index, long value) {
+
+        array[index] = (byte)value;
+        array[index + 1] = (byte)(value >>> 8);
+        array[index + 2] = (byte)(value >>> 16);
+        array[index + 3] = (byte)(value >>> 24);
+        array[index + 4] = (byte)(value >>> 32);
+        array[index + 5] = (byte)(value >>> 40);
+        array[index + 6] = (byte)(value >>> 48);
+        array[index + 7] = (byte)(value >>> 56);
+    }
+
+
+    private OctetKernels() {
+
+        // not instantiable
+    }
+}
@@ -31,6 +31,10 @@ import net.fec.openrq.util.io.ByteBuffers;
  */
 public final class OctetOps {
 
+    // the length of the slices of the vectors in the broadcast and gather additions, so that a slice of the shared
+    // vector and one of another vector fit together in the first level cache
+    private static final int SLICE_LENGTH = 4096;
+
     public static int UNSIGN(int b) {
 
         return UnsignedTypes.getUnsignedByte(b);
@@ -61,6 +65,15 @@ public final class OctetOps {
         return MULT_TABLE[UNSIGN(u)][UNSIGN(v)];
     }
 
+    /**
+     * Returns the products of the given value by each octet, indexed by the (unsigned) octet. The returned array must
+     * not be modified.
+     */
+    static byte[] productsOf(byte u) {
+
+        return MULT_TABLE[UNSIGN(u)];
+    }
+
     public static byte aDividedByB(byte u, byte v) {
 
         if (v == 0) throw new ArithmeticException("cannot divide by zero");
@@ -135,9 +148,7 @@ public final class OctetOps {
                 Arrays.fill(result, resPos, resEnd, (byte)0); // uses from and to indexes
             }
             else {
-                for (int rr = resPos, vv = vecPos; rr < resEnd; rr++, vv++) {
-                    result[rr] = aTimesB(value, vector[vv]);
-                }
+                OctetKernels.ARRAY_PRODUCT.multiply(value, vector, vecPos, result, resPos, length);
             }
         }
     }
@@ -190,11 +201,9 @@ public final class OctetOps {
                 System.arraycopy(vector, vecPos, result, resPos, length); // uses offset and length
             }
         }
-        else {
-            final int resEnd = resPos + length;
-            for (int rr = resPos, vv = vecPos; rr < resEnd; rr++, vv++) {
-                result[rr] = aDividedByB(vector[vv], value);
-            }
+        else if (length > 0) { // dividing by zero throws an exception, as long as there is something to divide
+            final byte inverse = aDividedByB((byte)1, value);
+            OctetKernels.ARRAY_PRODUCT.multiply(inverse, vector, vecPos, result, resPos, length);
         }
     }
 
@@ -248,10 +257,7 @@ public final class OctetOps {
         int length)
     {
 
-        final int resEnd = resPos + length;
-        for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
-            result[r] = aPlusB(vector1[v1], vector2[v2]);
-        }
+        OctetKernels.ARRAY_ADDITION.add(vector1, vecPos1, vector2, vecPos2, result, resPos, length);
     }
 
     public static void vectorVectorAddition(ByteBuffer vector1, ByteBuffer vector2, ByteBuffer result) {
@@ -303,10 +309,8 @@ public final class OctetOps {
             vectorVectorAddition(vector1, vecPos1, vector2, vecPos2, result, resPos, length);
         }
         else {
-            final int resEnd = resPos + length;
-            for (int v1 = vecPos1, v2 = vecPos2, r = resPos; r < resEnd; v1++, v2++, r++) {
-                result[r] = aPlusB(aTimesB(vec1Multiplier, vector1[v1]), vector2[v2]);
-            }
+            OctetKernels.ARRAY_MULTIPLY_ADD.multiplyAdd(
+                vec1Multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
         }
     }
 
@@ -332,50 +336,171 @@ public final class OctetOps {
             vectorVectorAddition(vector1, vector2, result, length);
         }
         else {
-            final int sol = SizeOf.LONG;
-            final int v1Pos = vector1.position();
-            final int v2Pos = vector2.position();
-            final int rPos = result.position();
+            OctetKernels.BUFFER_MULTIPLY_ADD.multiplyAdd(
+                vec1Multiplier,
+                vector1, vector1.position(),
+                vector2, vector2.position(),
+                result, result.position(),
+                length);
+        }
+    }
 
-            final int rEnd = rPos + length;
-            final int rLongEnd = rPos + ((length / sol) * sol);
+    /**
+     * Adds one vector, multiplied by a value per destination, to many destination vectors:
+     * {@code results[rows[n]] = multipliers[n] * vector + results[rows[n]]}, for each {@code n} in {@code [from, to)},
+     * over the first {@code length} octets of the vectors.
+     * <p>
+     * The operations are done one slice of the vectors at a time, so that each slice of the source vector is read from
+     * the cache by every destination. A destination may be the source vector itself, since each octet only depends on
+     * the octets in the same position.
+     */
+    public static void vectorBroadcastAddition(
+        byte[] multipliers,
+        byte[] vector,
+        byte[][] results,
+        int[] rows,
+        int from,
+        int to,
+        int length)
+    {
 
-            int v1 = v1Pos;
-            int v2 = v2Pos;
-            int rr = rPos;
-            for (; rr < rLongEnd; v1 += sol, v2 += sol, rr += sol) {
-                final long prod = productAsLong(vec1Multiplier, vector1, v1);
-                final long sum = aLongPlusBLong(prod, vector2.getLong(v2));
-                result.putLong(rr, sum);
+        for (int pos = 0; pos < length; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, length - pos);
+            for (int n = from; n < to; n++) {
+                multiplyAdd(multipliers[n], vector, pos, results[rows[n]], pos, sliceLength);
             }
+        }
+    }
+
+    /**
+     * Adds many vectors, each multiplied by a value, to one destination vector:
+     * {@code result = multipliers[n] * vectors[rows[n]] + result}, for each {@code n} in {@code [from, to)}, over the
+     * first {@code length} octets of the vectors.
+     * <p>
+     * The operations are done one slice of the vectors at a time, so that each slice of the destination vector stays in
+     * the cache while every source is added to it.
+     */
+    public static void vectorGatherAddition(
+        byte[] multipliers,
+        byte[][] vectors,
+        int[] rows,
+        int from,
+        int to,
+        byte[] result,
+        int length)
+    {
 
-            for (; rr < rEnd; v1++, v2++, rr++) {
-                final byte prod = aTimesB(vec1Multiplier, vector1.get(v1));
-                final byte sum = aPlusB(prod, vector2.get(v2));
-                result.put(rr, sum);
+        for (int pos = 0; pos < length; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, length - pos);
+            for (int n = from; n < to; n++) {
+                multiplyAdd(multipliers[n], vectors[rows[n]], pos, result, pos, sliceLength);
             }
         }
     }
 
-    /*
-     * Reads 8 bytes, multiplying each one by the multiplier,
-     * and stores the products inside one long value.
+    /**
+     * Adds many vectors to one destination vector: {@code result = vectors[rows[n]] + result}, for each {@code n} in
+     * {@code [from, to)}, over the first {@code length} octets of the vectors.
+     * <p>
+     * The operations are done one slice of the vectors at a time, so that each slice of the destination vector stays in
+     * the cache while every source is added to it.
      */
-    private static long productAsLong(byte multiplier, ByteBuffer vector, int vecPos) {
+    public static void vectorGatherAddition(byte[][] vectors, int[] rows, int from, int to, byte[] result, int length) {
 
-        long ret = 0L;
-        if (vector.order() == ByteOrder.BIG_ENDIAN) {
-            for (int n = SizeOf.LONG - 1, vv = vecPos; n >= 0; n--, vv++) {
-                ret |= (aTimesB(multiplier, vector.get(vv)) & 0xFFL) << (n * Byte.SIZE);
+        for (int pos = 0; pos < length; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, length - pos);
+            for (int n = from; n < to; n++) {
+                OctetKernels.ARRAY_ADDITION.add(vectors[rows[n]], pos, result, pos, result, pos, sliceLength);
             }
         }
-        else {
-            for (int n = 0, vv = vecPos; n < SizeOf.LONG; n++, vv++) {
-                ret |= (aTimesB(multiplier, vector.get(vv)) & 0xFFL) << (n * Byte.SIZE);
+    }
+
+    /**
+     * Same as {@link #vectorBroadcastAddition(byte[], byte[], byte[][], int[], int, int, int)}, with every vector stored
+     * in a single array: the source vector at position {@code vecPos} and the destination of row {@code r} at position
+     * {@code positions[r]}. Only the octets of the vectors in {@code [column, column + length)} are added.
+     */
+    public static void vectorBroadcastAddition(
+        byte[] multipliers,
+        byte[] data,
+        int vecPos,
+        int[] positions,
+        int[] rows,
+        int from,
+        int to,
+        int column,
+        int length)
+    {
+
+        final int end = column + length;
+        for (int pos = column; pos < end; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, end - pos);
+            for (int n = from; n < to; n++) {
+                multiplyAdd(multipliers[n], data, vecPos + pos, data, positions[rows[n]] + pos, sliceLength);
             }
         }
+    }
 
-        return ret;
+    /**
+     * Same as {@link #vectorGatherAddition(byte[], byte[][], int[], int, int, byte[], int)}, with every source vector
+     * stored in a single array, the vector of row {@code r} at position {@code positions[r]}, and the destination vector
+     * at position {@code resPos} of its array.
+     */
+    public static void vectorGatherAddition(
+        byte[] multipliers,
+        byte[] data,
+        int[] positions,
+        int[] rows,
+        int from,
+        int to,
+        byte[] result,
+        int resPos,
+        int length)
+    {
+
+        for (int pos = 0; pos < length; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, length - pos);
+            for (int n = from; n < to; n++) {
+                multiplyAdd(multipliers[n], data, positions[rows[n]] + pos, result, resPos + pos, sliceLength);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #vectorGatherAddition(byte[][], int[], int, int, byte[], int)}, with every source vector stored in
+     * a single array, the vector of row {@code r} at position {@code positions[r]}, and the destination vector at
+     * position {@code resPos} of its array.
+     */
+    public static void vectorGatherAddition(
+        byte[] data,
+        int[] positions,
+        int[] rows,
+        int from,
+        int to,
+        byte[] result,
+        int resPos,
+        int length)
+    {
+
+        for (int pos = 0; pos < length; pos += SLICE_LENGTH) {
+            final int sliceLength = Math.min(SLICE_LENGTH, length - pos);
+            for (int n = from; n < to; n++) {
+                final int vecPos = positions[rows[n]] + pos;
+                OctetKernels.ARRAY_ADDITION.add(data, vecPos, result, resPos + pos, result, resPos + pos, sliceLength);
+            }
+        }
+    }
+
+    // result = multiplier * vector + result
+    private static void multiplyAdd(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+        if (multiplier == 1) {
+            OctetKernels.ARRAY_ADDITION.add(vector, vecPos, result, resPos, result, resPos, length);
+        }
+        else if (multiplier != 0) {
+            OctetKernels.ARRAY_MULTIPLY_ADD.multiplyAdd(
+                multiplier, vector, vecPos, result, resPos, result, resPos, length);
+        }
     }
 
     /*
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fec.openrq.util.math;
+
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Vector kernels implemented with the Vector API (module {@code jdk.incubator.vector}) of newer JVMs.
+ * <p>
+ * This version of the class, for older JVMs, is never available. The implementation is a versioned class in the
+ * multi-release jar built by target "jarvector" of the build file, which is available in JVMs that support it, if the
+ * module {@code jdk.incubator.vector} is added at runtime ({@code --add-modules jdk.incubator.vector}).
+ */
+final class VectorKernels {
+
+    /**
+     * Returns {@code true} if the kernels in this class can be used in this JVM.
+     */
+    static boolean isAvailable() {
+
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the kernels in this class use the Vector API over direct buffers, in this JVM (otherwise
+     * they fall back to scalar code).
+     */
+    static boolean supportsBuffers() {
+
+        return false;
+    }
+
+    /**
+     * {@code result[resPos + i] = vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}.
+     */
+    static void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+        throw new UnsupportedOperationException("the Vector API is not available");
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector[vecPos + i]}, for each {@code i} in {@code [0, length)}.
+     */
+    static void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+        throw new UnsupportedOperationException("the Vector API is not available");
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}.
+     */
+    static void multiplyAdd(
+        byte multiplier,
+        byte[] vector1,
+        int vecPos1,
+        byte[] vector2,
+        int vecPos2,
+        byte[] result,
+        int resPos,
+        int length)
+    {
+
+        throw new UnsupportedOperationException("the Vector API is not available");
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}, using absolute positions in the buffers.
+     */
+    static void multiplyAdd(
+        byte multiplier,
+        ByteBuffer vector1,
+        int vecPos1,
+        ByteBuffer vector2,
+        int vecPos2,
+        ByteBuffer result,
+        int resPos,
+        int length)
+    {
+
+        throw new UnsupportedOperationException("the Vector API is not available");
+    }
+
+    private VectorKernels() {
+
+        // not instantiable
+    }
+}
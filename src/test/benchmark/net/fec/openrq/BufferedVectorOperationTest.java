@@ -39,6 +39,10 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
 
+/**
+ * Nested class {@link VectorApi} runs the same benchmarks in a forked JVM with the Vector API, which is used by the
+ * octet operations if the multi-release jar of target "jarvector" (in the build file) is on the class path.
+ */
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @Warmup(iterations = 5)
 @Measurement(iterations = 10)
@@ -118,4 +122,23 @@ public class BufferedVectorOperationTest {
 
         OctetOps.valueVectorDivision(divisor, srcDirBuf, dstDirBuf);
     }
+
+    @Benchmark
+    public void testArrayMultiplyAddition() {
+
+        OctetOps.vectorVectorAddition(divisor, srcArray, dstArray, dstArray);
+    }
+
+    @Benchmark
+    public void testDirectBufferMultiplyAddition() {
+
+        OctetOps.vectorVectorAddition(divisor, srcDirBuf, dstDirBuf, dstDirBuf);
+    }
+
+
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public static class VectorApi extends BufferedVectorOperationTest {
+
+        // same benchmarks
+    }
 }
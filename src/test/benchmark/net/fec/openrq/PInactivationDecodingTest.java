@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.util.concurrent.TimeUnit;
+
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+import net.fec.openrq.util.rq.SystematicIndices;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the PI decoding of the intermediate symbols from the constraint matrix of an extended source block.
+ * <p>
+ * The symbols have a single octet, so that the time is spent in the elimination over the matrix, mostly in its first
+ * phase. Only methods that the earlier versions of the decoder also have are used, so that the benchmark can be run
+ * against them for comparison.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(0)
+@State(Scope.Benchmark)
+public class PInactivationDecodingTest {
+
+    // default parameter values
+    private static final int DEF_NUM_SOURCE_SYMBOLS = 1000;
+
+
+    @Param({"100", "" + DEF_NUM_SOURCE_SYMBOLS, "4000", "8000"})
+    private int srcsymbs;
+
+    private int Kprime;
+    private ByteMatrix A;
+    private byte[][] D;
+
+
+    public PInactivationDecodingTest() {
+
+        this.srcsymbs = DEF_NUM_SOURCE_SYMBOLS;
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+
+        Kprime = SystematicIndices.ceil(srcsymbs);
+    }
+
+    // the decoding modifies the matrix and the symbols
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+
+        A = LinearSystem.generateConstraintMatrix(Kprime);
+        D = new byte[A.rows()][1];
+        for (int row = 0; row < D.length; row++) {
+            D[row][0] = (byte)row;
+        }
+    }
+
+    @Benchmark
+    public byte[][] test() throws SingularMatrixException {
+
+        return LinearSystem.PInactivationDecoding(A, D, Kprime);
+    }
+}
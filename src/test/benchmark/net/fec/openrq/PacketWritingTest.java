@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static net.fec.openrq.util.math.ExtraMath.ceilDiv;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.fec.openrq.parameters.FECParameters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares the production of repair packets as packet objects with their writing into reused buffers. Run with the
+ * JMH option {@code -prof gc} to compare the allocation rates.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(0)
+@State(Scope.Benchmark)
+public class PacketWritingTest {
+
+    // default parameter values
+    private static final int DEF_DATA_LEN = 1_500_000;
+    private static final int DEF_NUM_SOURCE_SYMBOLS = 1000;
+    private static final int NUM_REPAIR_SYMBOLS = 100;
+
+
+    private static ArraySourceBlockEncoder newSBEncoder(int F, int K) {
+
+        TestingCommon.checkParamsForSingleSourceBlockData(F, K);
+
+        // force single source block
+        final FECParameters fecParams = FECParameters.newParameters(F, ceilDiv(F, K), 1);
+        final Random rand = TestingCommon.newSeededRandom();
+
+        final byte[] data = TestingCommon.randomBytes(F, rand);
+        return (ArraySourceBlockEncoder)OpenRQ.newEncoder(data, fecParams).sourceBlock(0);
+    }
+
+
+    @Param({"" + DEF_DATA_LEN})
+    private int datalen;
+
+    @Param({"" + DEF_NUM_SOURCE_SYMBOLS})
+    private int srcsymbs;
+
+    private ArraySourceBlockEncoder enc;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private int nextRepairSymbol;
+
+
+    public PacketWritingTest() {
+
+        this.datalen = DEF_DATA_LEN;
+        this.srcsymbs = DEF_NUM_SOURCE_SYMBOLS;
+
+        this.enc = null;
+        this.heapBuffer = null;
+        this.directBuffer = null;
+        this.nextRepairSymbol = 0;
+    }
+
+    @Setup
+    public void setup() {
+
+        enc = newSBEncoder(datalen, srcsymbs);
+        enc.prepareNow();
+
+        final int packetSize = 8 + enc.repairPacket(enc.numberOfSourceSymbols()).symbolsLength();
+        heapBuffer = ByteBuffer.allocate(packetSize);
+        directBuffer = ByteBuffer.allocateDirect(packetSize);
+    }
+
+    // cycles through the first repair symbols
+    private int nextESI() {
+
+        final int esi = enc.numberOfSourceSymbols() + nextRepairSymbol;
+        nextRepairSymbol = (nextRepairSymbol + 1) % NUM_REPAIR_SYMBOLS;
+        return esi;
+    }
+
+    @Benchmark
+    public ByteBuffer testRepairPacket() {
+
+        heapBuffer.clear();
+        enc.repairPacket(nextESI()).writeTo(heapBuffer);
+        return heapBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer testWritePacket() {
+
+        heapBuffer.clear();
+        enc.writePacket(nextESI(), 1, heapBuffer);
+        return heapBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer testWritePacketDirect() {
+
+        directBuffer.clear();
+        enc.writePacket(nextESI(), 1, directBuffer);
+        return directBuffer;
+    }
+
+    // for CPU/memory profiling
+    public static void main(String[] args) {
+
+        final PacketWritingTest test = new PacketWritingTest();
+        test.setup();
+        final int iters = 100_000;
+        for (int i = 0; i < iters; i++) {
+            test.testWritePacket();
+        }
+    }
+}
@@ -41,6 +41,10 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
 
+/**
+ * Nested class {@link VectorApi} runs the same benchmarks in a forked JVM with the Vector API, which is used by the
+ * octet operations if the multi-release jar of target "jarvector" (in the build file) is on the class path.
+ */
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @Warmup(iterations = 5)
 @Measurement(iterations = 10)
@@ -135,4 +139,23 @@ public class XorTest {
             dstDirBuf.putLong(OctetOps.aLongPlusBLong(eL, dstDirBuf.getLong(dstDirBuf.position())));
         }
     }
+
+    @Benchmark
+    public void testArrayOctetOps() {
+
+        OctetOps.vectorVectorAddition(srcBuf.array(), dstBuf.array(), dstBuf.array());
+    }
+
+    @Benchmark
+    public void testDirectOctetOps() {
+
+        OctetOps.vectorVectorAddition(srcDirBuf, dstDirBuf, dstDirBuf);
+    }
+
+
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public static class VectorApi extends XorTest {
+
+        // same benchmarks
+    }
 }
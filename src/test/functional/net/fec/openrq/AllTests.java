@@ -31,6 +31,11 @@ import org.junit.runners.Suite.SuiteClasses;
                ParametersBoundsSuite.class,
                OpenRQClassTest.class,
                DataIntegrityCheckTest.class,
+               ConcurrentEncodingTest.class,
+               ISDManagerTest.class,
+               GraphComponentsTest.class,
+               SourceBlockDecoderTest.class,
+               ConstraintMatrixCacheTest.class,
                ReadWriteSuite.class
 })
 public class AllTests {
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import net.fec.openrq.encoder.DataEncoder;
+import net.fec.openrq.encoder.EncodingPacketHandler;
+import net.fec.openrq.encoder.SourceBlockEncoder;
+import net.fec.openrq.parameters.FECParameters;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the encoding of source blocks and data objects by multiple threads.
+ */
+public class ConcurrentEncodingTest {
+
+    private static final int NUM_THREADS = 8;
+
+
+    private static ArrayDataEncoder newEncoder(int K, int T, int Z) {
+
+        final FECParameters fecParams = FECParameters.newParameters((long)K * T * Z, T, Z);
+        return OpenRQ.newEncoder(TestingCommon.randomBytes(fecParams.dataLengthAsInt(), TestingCommon.newSeededRandom()),
+            fecParams);
+    }
+
+    @Test
+    public void testConcurrentRepairPackets() throws Exception {
+
+        final SourceBlockEncoder expectedEnc = newEncoder(1000, 16, 1).sourceBlock(0);
+        final SourceBlockEncoder enc = newEncoder(1000, 16, 1).sourceBlock(0);
+        final int K = enc.numberOfSourceSymbols();
+
+        // every thread requests a repair packet from the fresh encoder at the same time
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            final List<Future<EncodingPacket>> packets = new ArrayList<>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                final int esi = K + i;
+                packets.add(executor.submit(new Callable<EncodingPacket>() {
+
+                    @Override
+                    public EncodingPacket call() throws InterruptedException {
+
+                        start.await();
+                        return enc.repairPacket(esi);
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < NUM_THREADS; i++) {
+                assertEquals(expectedEnc.repairPacket(K + i).symbols(), packets.get(i).get().symbols());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrepare() throws Exception {
+
+        final SourceBlockEncoder expectedEnc = newEncoder(1000, 16, 1).sourceBlock(0);
+        final SourceBlockEncoder enc = newEncoder(1000, 16, 1).sourceBlock(0);
+        final int K = enc.numberOfSourceSymbols();
+
+        final Future<SourceBlockEncoder> prepared = enc.prepare();
+        assertFalse(prepared.cancel(true));
+        assertSame(enc, prepared.get());
+        assertTrue(prepared.isDone());
+        assertEquals(expectedEnc.repairPacket(K).symbols(), enc.repairPacket(K).symbols());
+
+        // an already prepared encoder submits nothing
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        assertSame(enc, enc.prepare(executor).get());
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws Exception {
+
+        final SourceBlockEncoder expectedEnc = newEncoder(1000, 16, 1).sourceBlock(0);
+        final ArraySourceBlockEncoder enc = (ArraySourceBlockEncoder)newEncoder(1000, 16, 1).sourceBlock(0);
+        final int K = enc.numberOfSourceSymbols();
+
+        // a failed computation of the intermediate symbols is repeated by the next caller
+        ArraySourceBlockEncoder.forceInterSymbolsFailure(enc, new IllegalStateException());
+        assertEquals(expectedEnc.repairPacket(K).symbols(), enc.repairPacket(K).symbols());
+
+        ArraySourceBlockEncoder.forceInterSymbolsFailure(enc, new IllegalStateException());
+        assertSame(enc, enc.prepare().get());
+        assertEquals(expectedEnc.repairPacket(K + 1).symbols(), enc.repairPacket(K + 1).symbols());
+    }
+
+    @Test
+    public void testPrepareAll() throws Exception {
+
+        final ArrayDataEncoder enc = newEncoder(100, 16, 4);
+        final ForkJoinPool pool = new ForkJoinPool(NUM_THREADS);
+        try {
+            final Future<DataEncoder> prepared = enc.prepare(pool);
+            assertSame(enc, prepared.get());
+            assertTrue(prepared.isDone());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testForEachPacket() {
+
+        final int numRepairPackets = 150; // more than a single task per source block
+        final ArrayDataEncoder expectedEnc = newEncoder(200, 16, 4);
+        final ArrayDataEncoder enc = newEncoder(200, 16, 4);
+
+        final ConcurrentMap<String, EncodingPacket> packets = new ConcurrentHashMap<>();
+        final ForkJoinPool pool = new ForkJoinPool(NUM_THREADS);
+        try {
+            enc.forEachPacket(numRepairPackets, new EncodingPacketHandler() {
+
+                @Override
+                public void handlePacket(EncodingPacket packet) {
+
+                    assertNull(packets.put(packet.sourceBlockNumber() + ":" + packet.encodingSymbolID(), packet));
+                }
+            }, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        int numPackets = 0;
+        for (SourceBlockEncoder sbEnc : expectedEnc.sourceBlockIterable()) {
+            final int sbn = sbEnc.sourceBlockNumber();
+            for (int esi = 0; esi < sbEnc.numberOfSourceSymbols() + numRepairPackets; esi++) {
+                final EncodingPacket packet = packets.get(sbn + ":" + esi);
+                assertNotNull(packet);
+                assertEquals(sbEnc.encodingPacket(esi).symbols(), packet.symbols());
+                numPackets++;
+            }
+        }
+        assertEquals(numPackets, packets.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForEachPacketInvalidRepairPackets() {
+
+        newEncoder(100, 16, 4).forEachPacket(-1, new EncodingPacketHandler() {
+
+            @Override
+            public void handlePacket(EncodingPacket packet) {
+
+                // not called
+            }
+        });
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.fec.openrq.util.linearalgebra.LinearAlgebra;
+import net.fec.openrq.util.linearalgebra.matrix.sparse.CRSByteMatrix;
+import net.fec.openrq.util.rq.SystematicIndices;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that decoding only copies the rows of the cached constraint matrices that it modifies.
+ */
+public class ConstraintMatrixCacheTest {
+
+    private static final int[] KPRIMES = {10, 101, 1002};
+
+
+    @Test
+    public void testSharedRowsAfterDecoding() throws SingularMatrixException {
+
+        for (int Kprime : KPRIMES) {
+            checkSharedRowsAfterDecoding(Kprime);
+        }
+    }
+
+    private static void checkSharedRowsAfterDecoding(int Kprime) throws SingularMatrixException {
+
+        final int Ki = SystematicIndices.getKIndex(Kprime);
+        final int S = SystematicIndices.S(Ki);
+        final int H = SystematicIndices.H(Ki);
+
+        final CRSByteMatrix A = (CRSByteMatrix)LinearSystem.generateConstraintMatrix(Kprime);
+        assertEquals(A.rows(), A.sharedRows());
+
+        // replace the rows of a tenth of the source symbols with the rows of repair symbols
+        final int numLost = Kprime / 10;
+        for (int n = 0; n < numLost; n++) {
+            final int row = S + H + 10 * n;
+            A.clearRow(row);
+            for (int col : EncodingIndexes.get(Kprime, Kprime + n)) {
+                A.set(row, col, (byte)1);
+            }
+        }
+        assertEquals(A.rows() - numLost, A.sharedRows());
+
+        // the rows that are only read by the decoding are not copied
+        LinearSystem.PInactivationSchedule(A, Kprime);
+        assertTrue(A.sharedRows() > 0);
+
+        // and the cached matrix is left untouched
+        final CRSByteMatrix cached = (CRSByteMatrix)LinearSystem.generateConstraintMatrix(Kprime);
+        assertEquals(LinearSystem.newConstraintMatrix(Kprime, 0, LinearAlgebra.CRS_FACTORY), cached);
+    }
+}
@@ -17,7 +17,10 @@ package net.fec.openrq;
 
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,6 +50,7 @@ import org.junit.runners.Parameterized.Parameters;
 public final class DataIntegrityCheckTest {
 
     private static int MAX_EXTRA_SYMBOLS;
+    private static int MAX_ONLINE_K;
     private static Random RAND;
 
 
@@ -54,6 +58,7 @@ public final class DataIntegrityCheckTest {
     public static void initStaticParameters() {
 
         MAX_EXTRA_SYMBOLS = 2;
+        MAX_ONLINE_K = 256; // online decoding takes longer in total, so we only test the smaller source blocks
         RAND = TestingCommon.newSeededRandom();
     }
 
@@ -89,7 +94,7 @@ public final class DataIntegrityCheckTest {
 
         System.out.printf("Testing data integrity with F=[%d, %d] K=[%d, %d] Z=[%d, %d] N=%d%n",
             Fs[0], Fs[Fs.length - 1], Ks[0], Ks[Ks.length - 1], Zs[0], Zs[Zs.length - 1], N, N);
-        System.out.println("Testing " + 2 * params.size() + " data integrity tests...");
+        System.out.println("Testing " + 5 * params.size() + " data integrity tests...");
         return params;
     }
 
@@ -150,4 +155,114 @@ public final class DataIntegrityCheckTest {
         // compare the original and decoded data
         assertArrayEquals(data, dec.dataArray());
     }
+
+    @Test
+    public void checkRepairSymbolsInBulk() {
+
+        final byte[] data = TestingCommon.randomBytes(fecParams.dataLengthAsInt(), RAND);
+        final ArrayDataEncoder enc = OpenRQ.newEncoder(data, fecParams);
+        final int T = fecParams.symbolSize();
+
+        for (SourceBlockEncoder sbEnc : enc.sourceBlockIterable()) {
+            final int K = sbEnc.numberOfSourceSymbols();
+            final int numSymbols = K + MAX_EXTRA_SYMBOLS;
+
+            // a range of repair symbols, after some offset in a larger buffer
+            final ByteBuffer expected = ByteBuffer.allocate(1 + numSymbols * T);
+            final ByteBuffer actual = ByteBuffer.allocate(1 + numSymbols * T);
+            expected.put((byte)1);
+            actual.put((byte)1);
+            for (int esi = K; esi < K + numSymbols; esi++) {
+                expected.put(sbEnc.repairPacket(esi).symbols());
+            }
+            sbEnc.writeRepairSymbols(K, numSymbols, actual);
+            assertEquals(expected.position(), actual.position());
+            assertArrayEquals(expected.array(), actual.array());
+
+            // a set of repair symbols, in no particular order
+            final int[] esis = {K + 7, ParameterChecker.maxEncodingSymbolID(), K, K + 7};
+            final ByteBuffer expectedSet = ByteBuffer.allocate(esis.length * T);
+            final ByteBuffer actualSet = ByteBuffer.allocateDirect(esis.length * T);
+            for (int esi : esis) {
+                expectedSet.put(sbEnc.repairPacket(esi).symbols());
+            }
+            sbEnc.writeRepairSymbols(esis, actualSet);
+            expectedSet.flip();
+            actualSet.flip();
+            assertEquals(expectedSet, actualSet);
+        }
+    }
+
+    @Test
+    public void checkPacketsWrittenInPlace() {
+
+        final byte[] data = TestingCommon.randomBytes(fecParams.dataLengthAsInt(), RAND);
+        final ArrayDataEncoder enc = OpenRQ.newEncoder(data, fecParams);
+
+        for (SourceBlockEncoder sbEnc : enc.sourceBlockIterable()) {
+            final int K = sbEnc.numberOfSourceSymbols();
+
+            // all source symbols, the last (possibly shorter) source symbol, and a few repair symbols
+            checkPacketWrittenInPlace(sbEnc, sbEnc.sourcePacket(0, K));
+            checkPacketWrittenInPlace(sbEnc, sbEnc.sourcePacket(K - 1, 1));
+            checkPacketWrittenInPlace(sbEnc, sbEnc.repairPacket(K + 1, 3));
+        }
+    }
+
+    private static void checkPacketWrittenInPlace(SourceBlockEncoder sbEnc, EncodingPacket packet) {
+
+        final int esi = packet.encodingSymbolID();
+        final int numSymbols = packet.numberOfSymbols();
+        final int size = packet.asArray().length;
+
+        // the packet contents, after some offset in a larger array
+        final byte[] expected = new byte[1 + size];
+        final byte[] actual = new byte[1 + size];
+        packet.writeTo(expected, 1);
+        assertEquals(size, sbEnc.writePacket(esi, numSymbols, actual, 1));
+        assertArrayEquals(expected, actual);
+
+        // the packet contents, in array-backed and direct buffers
+        for (ByteBuffer buf : new ByteBuffer[] {ByteBuffer.allocate(size), ByteBuffer.allocateDirect(size)}) {
+            assertEquals(size, sbEnc.writePacket(esi, numSymbols, buf));
+            assertEquals(size, buf.position());
+            buf.flip();
+            assertEquals(packet.asBuffer(), buf);
+        }
+    }
+
+    @Test
+    public void checkDataWithRandomSymbolsOnline() {
+
+        Assume.assumeTrue(fecParams.totalSymbols() <= MAX_ONLINE_K);
+
+        final byte[] data = TestingCommon.randomBytes(fecParams.dataLengthAsInt(), RAND);
+        final ArrayDataEncoder enc = OpenRQ.newEncoder(data, fecParams);
+        final ArrayDataDecoder dec = OpenRQ.newDecoder(fecParams, 0);
+
+        for (SourceBlockEncoder sbEnc : enc.sourceBlockIterable()) {
+            final int K = sbEnc.numberOfSourceSymbols();
+            final Set<Integer> esis = TestingCommon.randomAnyESIs(RAND, K + MAX_EXTRA_SYMBOLS);
+            final Iterator<Integer> esiIter = esis.iterator();
+            final SourceBlockDecoder sbDec = dec.sourceBlock(sbEnc.sourceBlockNumber());
+            sbDec.setOnlineDecoding(true);
+
+            SourceBlockState sbState = SourceBlockState.INCOMPLETE;
+            int prevRank = sbDec.decodingRank();
+            while (sbState != SourceBlockState.DECODED && esiIter.hasNext()) {
+                sbState = sbDec.putEncodingPacket(sbEnc.encodingPacket(esiIter.next()));
+
+                // the rank never decreases, and it is the number of intermediate symbols once decoded
+                final int rank = sbDec.decodingRank();
+                assertTrue(rank >= prevRank);
+                prevRank = rank;
+            }
+
+            // if the source block is still not decoded, then we ignore this test
+            Assume.assumeTrue(sbState == SourceBlockState.DECODED);
+        }
+
+        // compare the original and decoded data
+        assertArrayEquals(data, dec.dataArray());
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests class GraphComponents against a search of the components of the graph after every change.
+ */
+public class GraphComponentsTest {
+
+    private static final int NUM_NODES = 40;
+    private static final int NUM_EDGES = 400;
+    private static final int NUM_ROUNDS = 200;
+
+
+    @Test
+    public void testLargestComponentEdge() {
+
+        final Random rand = TestingCommon.newSeededRandom();
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            checkRandomGraph(rand);
+        }
+    }
+
+    @Test
+    public void testEmptyGraph() {
+
+        final GraphComponents graph = new GraphComponents(2, 1);
+        assertEquals(-1, graph.largestComponentEdge());
+
+        graph.addEdge(0, 0, 1);
+        assertEquals(0, graph.largestComponentEdge());
+
+        graph.removeEdge(0);
+        graph.finishRemovals();
+        assertEquals(-1, graph.largestComponentEdge());
+    }
+
+    // adds and removes random edges, in batches, and checks the graph after each batch
+    private static void checkRandomGraph(Random rand) {
+
+        final GraphComponents graph = new GraphComponents(NUM_NODES, NUM_EDGES);
+        final int[][] edges = new int[NUM_EDGES][];
+        final List<Integer> present = new ArrayList<>();
+
+        int nextEdge = 0;
+        while (nextEdge < NUM_EDGES || !present.isEmpty()) {
+            // remove some edges, possibly all the edges of some nodes (as when columns leave V)
+            if (!present.isEmpty() && rand.nextBoolean()) {
+                if (rand.nextBoolean()) {
+                    final int node = edges[present.get(rand.nextInt(present.size()))][0];
+                    for (int n = present.size() - 1; n >= 0; n--) {
+                        final int[] edge = edges[present.get(n)];
+                        if (edge[0] == node || edge[1] == node) {
+                            graph.removeEdge(present.remove(n));
+                        }
+                    }
+                }
+                else {
+                    final int numRemovals = 1 + rand.nextInt(Math.min(3, present.size()));
+                    for (int n = 0; n < numRemovals; n++) {
+                        graph.removeEdge(present.remove(rand.nextInt(present.size())));
+                    }
+                }
+                graph.finishRemovals();
+            }
+
+            // add some edges
+            final int numAdditions = Math.min(rand.nextInt(4), NUM_EDGES - nextEdge);
+            for (int n = 0; n < numAdditions; n++, nextEdge++) {
+                final int node1 = rand.nextInt(NUM_NODES);
+                int node2 = rand.nextInt(NUM_NODES - 1);
+                if (node2 >= node1) {
+                    node2++;
+                }
+                edges[nextEdge] = new int[] {node1, node2};
+                graph.addEdge(nextEdge, node1, node2);
+                present.add(nextEdge);
+            }
+
+            checkLargestComponentEdge(graph, edges, present);
+        }
+    }
+
+    private static void checkLargestComponentEdge(GraphComponents graph, int[][] edges, List<Integer> present) {
+
+        // the component of each node, by searching the edges that are present
+        final int[] component = new int[NUM_NODES];
+        Arrays.fill(component, -1);
+        final int[] componentSizes = new int[NUM_NODES];
+        int maxSize = 0;
+        for (int start = 0; start < NUM_NODES; start++) {
+            if (component[start] == -1 && hasEdges(start, edges, present)) {
+                final Deque<Integer> toVisit = new ArrayDeque<>();
+                component[start] = start;
+                toVisit.add(start);
+                while (!toVisit.isEmpty()) {
+                    final int node = toVisit.remove();
+                    componentSizes[start]++;
+                    for (int e : present) {
+                        final int other;
+                        if (edges[e][0] == node) other = edges[e][1];
+                        else if (edges[e][1] == node) other = edges[e][0];
+                        else continue;
+
+                        if (component[other] == -1) {
+                            component[other] = start;
+                            toVisit.add(other);
+                        }
+                    }
+                }
+                maxSize = Math.max(maxSize, componentSizes[start]);
+            }
+        }
+
+        final int edge = graph.largestComponentEdge();
+        if (present.isEmpty()) {
+            assertEquals(-1, edge);
+        }
+        else {
+            assertTrue(present.contains(edge));
+            assertEquals(maxSize, componentSizes[component[edges[edge][0]]]);
+        }
+    }
+
+    private static boolean hasEdges(int node, int[][] edges, List<Integer> present) {
+
+        for (int e : present) {
+            if (edges[e][0] == node || edges[e][1] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the loading and caching of optimized decoders.
+ */
+public class ISDManagerTest {
+
+    private static final int NUM_THREADS = 8;
+
+
+    @Test
+    public void testLazyLoading() {
+
+        final CountingLoader loader = new CountingLoader(100, 10);
+        final ISDManager manager = new ISDManager(loader, 1000);
+        assertEquals(0, loader.numLoads(10));
+
+        // loaded when first requested, and then kept in memory
+        final ISDManager.LoadedISD dec = manager.getDecoder(10);
+        assertNotNull(dec);
+        assertEquals(10, dec.supportedKPrime());
+        assertEquals(1, loader.numLoads(10));
+
+        assertSame(dec, manager.getDecoder(10));
+        assertEquals(1, loader.numLoads(10));
+
+        // a value of K' without a decoder is never loaded
+        assertNull(manager.getDecoder(12));
+        assertEquals(0, loader.numLoads(12));
+    }
+
+    @Test
+    public void testSingleFlightLoading() throws Exception {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingLoader loader = new CountingLoader(100, release, 10);
+        final ISDManager manager = new ISDManager(loader, 1000);
+
+        // every thread requests the decoder while the first loading is held
+        final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            final List<Future<ISDManager.LoadedISD>> decoders = new ArrayList<>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                decoders.add(executor.submit(new Callable<ISDManager.LoadedISD>() {
+
+                    @Override
+                    public ISDManager.LoadedISD call() {
+
+                        return manager.getDecoder(10);
+                    }
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            final ISDManager.LoadedISD dec = decoders.get(0).get();
+            assertNotNull(dec);
+            for (Future<ISDManager.LoadedISD> other : decoders) {
+                assertSame(dec, other.get());
+            }
+            assertEquals(1, loader.numLoads(10));
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void testEvictionByFootprint() {
+
+        final CountingLoader loader = new CountingLoader(40, 10, 12, 18, 20);
+        final ISDManager manager = new ISDManager(loader, 100);
+
+        manager.getDecoder(10);
+        manager.getDecoder(12);
+        manager.getDecoder(10); // 12 becomes the least recently used decoder
+        manager.getDecoder(18); // over the maximum footprint, so 12 is evicted
+
+        manager.getDecoder(10);
+        manager.getDecoder(18);
+        assertEquals(1, loader.numLoads(10));
+        assertEquals(1, loader.numLoads(18));
+
+        manager.getDecoder(12);
+        assertEquals(2, loader.numLoads(12));
+    }
+
+    @Test
+    public void testDecoderLargerThanCache() {
+
+        final CountingLoader loader = new CountingLoader(1000, 10);
+        final ISDManager manager = new ISDManager(loader, 100);
+
+        // the most recently used decoder is kept, even if it is larger than the cache
+        final ISDManager.LoadedISD dec = manager.getDecoder(10);
+        assertSame(dec, manager.getDecoder(10));
+        assertEquals(1, loader.numLoads(10));
+    }
+
+
+    // loads decoders of a fixed footprint for the given values of K', counting the loadings
+    private static final class CountingLoader implements ISDManager.Loader {
+
+        private final long footprint;
+        private final ConcurrentMap<Integer, AtomicInteger> numLoads;
+        private final CountDownLatch release; // may be null
+
+
+        CountingLoader(long footprint, int... Kprimes) {
+
+            this(footprint, null, Kprimes);
+        }
+
+        // every loading waits for the release
+        CountingLoader(long footprint, CountDownLatch release, int... Kprimes) {
+
+            this.footprint = footprint;
+            this.numLoads = new ConcurrentHashMap<>();
+            for (int Kprime : Kprimes) {
+                numLoads.put(Kprime, new AtomicInteger());
+            }
+            this.release = release;
+        }
+
+        int numLoads(int Kprime) {
+
+            final AtomicInteger n = numLoads.get(Kprime);
+            return (n == null) ? 0 : n.get();
+        }
+
+        @Override
+        public boolean contains(int Kprime) {
+
+            return numLoads.containsKey(Kprime);
+        }
+
+        @Override
+        public ISDManager.LoadedISD load(int Kprime) {
+
+            numLoads.get(Kprime).incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new FakeISD(Kprime, footprint);
+        }
+    }
+
+    private static final class FakeISD implements ISDManager.LoadedISD {
+
+        private final int Kprime;
+        private final long footprint;
+
+
+        FakeISD(int Kprime, long footprint) {
+
+            this.Kprime = Kprime;
+            this.footprint = footprint;
+        }
+
+        @Override
+        public int supportedKPrime() {
+
+            return Kprime;
+        }
+
+        @Override
+        public long footprint() {
+
+            return footprint;
+        }
+
+        @Override
+        public byte[][] decode(byte[][] D) {
+
+            return D;
+        }
+
+        @Override
+        public SymbolArena decode(SymbolArena D) {
+
+            return D;
+        }
+    }
+}
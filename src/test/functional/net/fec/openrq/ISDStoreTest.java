@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+import net.fec.openrq.util.rq.SystematicIndices;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the writing and reading of class ISDStore.
+ */
+public class ISDStoreTest {
+
+    private static final int[] K_PRIMES = {10, 101, 1002};
+    private static final int SYMBOL_SIZE = 4;
+
+    @ClassRule
+    public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+    private static Path storeFile;
+
+
+    @BeforeClass
+    public static void writeStore() throws IOException, SingularMatrixException {
+
+        storeFile = TEMP_FOLDER.newFile("ISDs.store").toPath();
+        try (ISDStore.Writer writer = new ISDStore.Writer(storeFile)) {
+            for (int Kprime : K_PRIMES) {
+                final ByteMatrix A = LinearSystem.generateConstraintMatrix(Kprime);
+                writer.add(Kprime, LinearSystem.PInactivationSchedule(A, Kprime).compile());
+            }
+        }
+    }
+
+    @Test
+    public void testMappedStore() throws IOException, SingularMatrixException {
+
+        checkStore(ISDStore.map(storeFile));
+    }
+
+    @Test
+    public void testHeapStore() throws IOException, SingularMatrixException {
+
+        checkStore(ISDStore.open(ByteBuffer.wrap(Files.readAllBytes(storeFile))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidStore() throws IOException {
+
+        final byte[] bytes = Files.readAllBytes(storeFile);
+        bytes[0] ^= 1;
+        ISDStore.open(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedKPrimes() throws IOException, SingularMatrixException {
+
+        final Path file = TEMP_FOLDER.newFile().toPath();
+        try (ISDStore.Writer writer = new ISDStore.Writer(file)) {
+            final CompiledSchedule schedule =
+                LinearSystem.PInactivationSchedule(LinearSystem.generateConstraintMatrix(10), 10).compile();
+            writer.add(10, schedule);
+            writer.add(10, schedule);
+        }
+    }
+
+    private static void checkStore(ISDStore store) throws IOException, SingularMatrixException {
+
+        assertEquals(K_PRIMES.length, store.numEntries());
+        for (int entry = 0; entry < K_PRIMES.length; entry++) {
+            assertEquals(K_PRIMES[entry], store.entryKPrime(entry));
+        }
+
+        assertFalse(store.contains(18));
+        assertNull(store.schedule(18));
+
+        for (int Kprime : K_PRIMES) {
+            assertTrue(store.contains(Kprime));
+
+            final byte[][] expected = LinearSystem.PInactivationSchedule(
+                LinearSystem.generateConstraintMatrix(Kprime), Kprime).apply(randomD(Kprime));
+            final byte[][] actual = store.schedule(Kprime).apply(randomD(Kprime));
+
+            assertEquals(expected.length, actual.length);
+            for (int row = 0; row < expected.length; row++) {
+                assertArrayEquals(expected[row], actual[row]);
+            }
+        }
+    }
+
+    private static byte[][] randomD(int Kprime) {
+
+        final int Ki = SystematicIndices.getKIndex(Kprime);
+        final int L = Kprime + SystematicIndices.S(Ki) + SystematicIndices.H(Ki);
+
+        final Random rand = new Random(Kprime);
+        final byte[][] D = new byte[L][SYMBOL_SIZE];
+        for (int row = 0; row < L; row++) {
+            rand.nextBytes(D[row]);
+        }
+
+        return D;
+    }
+}
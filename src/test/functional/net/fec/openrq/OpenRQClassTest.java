@@ -263,4 +263,34 @@ public class OpenRQClassTest {
             OpenRQ.minRepairSymbols(numSourceSymbols, extraSymbols, loss);
         }
     }
+
+    public static final class PreloadEncodingData {
+
+        @Test
+        public void testNoExceptions() {
+
+            OpenRQ.preloadEncodingData(TestingCommon.Minimal.fecParameters());
+            OpenRQ.preloadEncodingData(1);
+        }
+
+        @Test(expected = NullPointerException.class)
+        public void test_NPE() {
+
+            final FECParameters fecParams = null;
+
+            OpenRQ.preloadEncodingData(fecParams);
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void test_IAE_nonPosNumSourceSymbols() {
+
+            OpenRQ.preloadEncodingData(0);
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void test_IAE_largeNumSourceSymbols() {
+
+            OpenRQ.preloadEncodingData(ParameterChecker.maxNumSourceSymbolsPerBlock() + 1);
+        }
+    }
 }
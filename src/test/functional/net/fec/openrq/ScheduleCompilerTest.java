@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.fec.openrq.util.linearalgebra.LinearAlgebra;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+
+/**
+ * Tests that the schedules compiled by class ScheduleCompiler have the same effect as the original ones.
+ */
+@RunWith(Parameterized.class)
+public class ScheduleCompilerTest {
+
+    private static final int SYMBOL_SIZE = 4;
+
+
+    @Parameters(name = "Kprime = {0}, overhead = {1}")
+    public static Collection<Object[]> getParameters() {
+
+        final List<Object[]> params = new ArrayList<>();
+        for (int Kprime : new int[] {10, 101, 1002}) {
+            for (int overhead : new int[] {0, 3}) {
+                params.add(new Object[] {Kprime, overhead});
+            }
+        }
+        return params;
+    }
+
+
+    @Parameter(0)
+    public int Kprime;
+
+    @Parameter(1)
+    public int overhead;
+
+
+    @Test
+    public void testCompiledSchedule() throws SingularMatrixException {
+
+        final SymbolSchedule schedule = newSchedule();
+        final CompiledSchedule compiled = schedule.compile();
+
+        assertTrue(compiled.size() <= schedule.size());
+        assertSameSymbols(schedule.apply(randomD()), compiled.apply(randomD()));
+    }
+
+    @Test
+    public void testCompactForm() throws SingularMatrixException, IOException {
+
+        final SymbolSchedule schedule = newSchedule();
+        final CompiledSchedule compiled = schedule.compile();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiled.writeCompact(out);
+        final CompiledSchedule read = CompiledSchedule.readCompact(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(compiled.size(), read.size());
+        assertEquals(compiled.numGroups(), read.numGroups());
+        assertSameSymbols(schedule.apply(randomD()), read.apply(randomD()));
+    }
+
+    @Test
+    public void testLegacyOperations() throws SingularMatrixException, IOException {
+
+        final SymbolSchedule schedule = newSchedule();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        schedule.serializeToChannel(Channels.newChannel(out));
+
+        final List<ISDOperation> ops = new ArrayList<>();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ReadableByteChannel ch = Channels.newChannel(in);
+        while (in.available() > 0) {
+            ops.add(ISDOps.readOperation(ch));
+        }
+
+        final SymbolSchedule folded = ISDOps.toSchedule(ops);
+        assertNotNull(folded);
+        assertSameSymbols(schedule.apply(randomD()), folded.compile().apply(randomD()));
+    }
+
+    @Test
+    public void testMatrixOperations() throws SingularMatrixException {
+
+        // a row reduction followed by a multiplication by a lower triangular matrix, over a permutation of the last
+        // rows of D
+        final int size = 6;
+        final int rows = LinearSystem.generateConstraintMatrix(Kprime, overhead).rows();
+        final int[] d = new int[size];
+        for (int i = 0; i < size; i++) {
+            d[i] = rows - 1 - ((5 * i) % size);
+        }
+
+        final Random rand = new Random(Kprime);
+        final ByteMatrix X = LinearAlgebra.BASIC2D_FACTORY.createMatrix(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col <= row; col++) {
+                X.set(row, col, (byte)(col == row ? 1 + rand.nextInt(255) : rand.nextInt(256)));
+            }
+        }
+
+        final ByteMatrix R = LinearAlgebra.BASIC2D_FACTORY.createMatrix(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                R.set(row, col, (byte)rand.nextInt(256));
+            }
+        }
+
+        final List<ISDOperation> ops = new ArrayList<>();
+        ops.add(ISDOps.newPhase2Operation(R, 0, size, 0, size, d));
+        ops.add(ISDOps.newPhase3Operation(X, size, size, d));
+
+        byte[][] expected = randomD();
+        for (ISDOperation op : ops) {
+            expected = op.apply(expected);
+        }
+
+        final SymbolSchedule folded = ISDOps.toSchedule(ops);
+        assertNotNull(folded);
+        assertSameSymbols(expected, folded.compile().apply(randomD()));
+    }
+
+    private SymbolSchedule newSchedule() throws SingularMatrixException {
+
+        return newSchedule(Kprime, overhead);
+    }
+
+    private byte[][] randomD() {
+
+        return randomD(Kprime, overhead, SYMBOL_SIZE);
+    }
+
+    // the overhead rows are rows of repair symbols
+    static SymbolSchedule newSchedule(int Kprime, int overhead) throws SingularMatrixException {
+
+        final ByteMatrix A = LinearSystem.generateConstraintMatrix(Kprime, overhead);
+        for (int row = A.rows() - overhead; row < A.rows(); row++) {
+            for (int col : LinearSystem.encIndexes(Kprime, new Tuple(Kprime, Kprime + row))) {
+                A.set(row, col, (byte)1);
+            }
+        }
+
+        return LinearSystem.PInactivationSchedule(A, Kprime);
+    }
+
+    static byte[][] randomD(int Kprime, int overhead, int symbolSize) {
+
+        final Random rand = new Random(Kprime + overhead);
+        final byte[][] D = new byte[LinearSystem.generateConstraintMatrix(Kprime, overhead).rows()][symbolSize];
+        for (byte[] row : D) {
+            rand.nextBytes(row);
+        }
+
+        return D;
+    }
+
+    static void assertSameSymbols(byte[][] expected, byte[][] actual) {
+
+        assertEquals(expected.length, actual.length);
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals("row " + row, expected[row], actual[row]);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import net.fec.openrq.decoder.SourceBlockDecoder;
+import net.fec.openrq.decoder.SourceBlockState;
+import net.fec.openrq.encoder.SourceBlockEncoder;
+import net.fec.openrq.parameters.FECParameters;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the decoding modes of source block decoders.
+ */
+public class SourceBlockDecoderTest {
+
+    private static final int SYMB_SIZE = 16;
+    private static final int[] RESUMED_KS = {10, 26, 101};
+    private static final int MAX_FAILURE_ATTEMPTS = 10_000;
+    private static final int REPAIR_ESI_RANGE = 100_000;
+    private static final int ONLINE_K = 4_000;
+    private static final int ONLINE_EXTRA_SYMBOLS = 10;
+
+
+    // returns the decoder of a single source block with the specified number of source symbols
+    private static SourceBlockDecoder newSBDecoder(int K) {
+
+        final FECParameters fecParams = FECParameters.newParameters((long)K * SYMB_SIZE, SYMB_SIZE, 1);
+        return OpenRQ.newDecoder(fecParams, 0).sourceBlock(0);
+    }
+
+    @Test
+    public void testResumedDecoding() {
+
+        final Random rand = TestingCommon.newSeededRandom();
+        for (int K : RESUMED_KS) {
+            checkResumedDecoding(K, rand);
+        }
+    }
+
+    // finds K repair symbols that fail to decode, and checks that the decoding resumes once another one is added
+    private static void checkResumedDecoding(int K, Random rand) {
+
+        final FECParameters fecParams = FECParameters.newParameters((long)K * SYMB_SIZE, SYMB_SIZE, 1);
+        final byte[] data = TestingCommon.randomBytes(fecParams.dataLengthAsInt(), rand);
+        final SourceBlockEncoder sbEnc = OpenRQ.newEncoder(data, fecParams).sourceBlock(0);
+
+        for (int attempt = 0; attempt < MAX_FAILURE_ATTEMPTS; attempt++) {
+            final ArrayDataDecoder dec = OpenRQ.newDecoder(fecParams, 0);
+            final SourceBlockDecoder sbDec = dec.sourceBlock(0);
+
+            // only repair symbols, without any extra symbol, so that the decoding fails once in a while
+            final int[] esis = randomRepairESIs(K, K + 1, rand);
+            for (int i = 0; i < K; i++) {
+                sbDec.putEncodingPacket(sbEnc.repairPacket(esis[i]));
+            }
+
+            if (sbDec.latestState() == SourceBlockState.DECODING_FAILURE) {
+                // the rank deficient system is kept, so one more independent symbol completes it
+                assertEquals(SourceBlockState.DECODED, sbDec.putEncodingPacket(sbEnc.repairPacket(esis[K])));
+                assertArrayEquals(data, dec.dataArray());
+                return;
+            }
+        }
+
+        fail("no decoding failure found with K = " + K);
+    }
+
+    private static int[] randomRepairESIs(int K, int numSymbols, Random rand) {
+
+        final int[] esis = new int[numSymbols];
+        for (int i = 0; i < numSymbols; i++) {
+            boolean repeated;
+            do {
+                esis[i] = K + rand.nextInt(REPAIR_ESI_RANGE);
+                repeated = false;
+                for (int j = 0; j < i; j++) {
+                    repeated |= esis[j] == esis[i];
+                }
+            }
+            while (repeated);
+        }
+
+        return esis;
+    }
+
+    @Test
+    public void testOnlineDecodingLargeBlock() {
+
+        final Random rand = TestingCommon.newSeededRandom();
+        final FECParameters fecParams = FECParameters.newParameters((long)ONLINE_K * SYMB_SIZE, SYMB_SIZE, 1);
+        final byte[] data = TestingCommon.randomBytes(fecParams.dataLengthAsInt(), rand);
+        final SourceBlockEncoder sbEnc = OpenRQ.newEncoder(data, fecParams).sourceBlock(0);
+
+        final ArrayDataDecoder dec = OpenRQ.newDecoder(fecParams, 0);
+        final SourceBlockDecoder sbDec = dec.sourceBlock(0);
+        sbDec.setOnlineDecoding(true);
+        assertTrue(sbDec.isOnlineDecoding());
+
+        // every repair symbol adds at most one to the rank, and the block is decoded as soon as the rank is full
+        int prevRank = sbDec.decodingRank();
+        for (int esi : randomRepairESIs(ONLINE_K, ONLINE_K + ONLINE_EXTRA_SYMBOLS, rand)) {
+            final SourceBlockState state = sbDec.putEncodingPacket(sbEnc.repairPacket(esi));
+            final int rank = sbDec.decodingRank();
+            assertTrue(prevRank <= rank && rank <= prevRank + 1);
+            prevRank = rank;
+
+            if (state == SourceBlockState.DECODED) {
+                assertArrayEquals(data, dec.dataArray());
+                return;
+            }
+        }
+
+        fail("source block not decoded online with " + ONLINE_EXTRA_SYMBOLS + " extra symbols");
+    }
+
+    @Test
+    public void testOfflineDecodingByDefault() {
+
+        final SourceBlockDecoder sbDec = newSBDecoder(ONLINE_K);
+        assertFalse(sbDec.isOnlineDecoding());
+        assertEquals(-1, sbDec.decodingRank());
+    }
+}
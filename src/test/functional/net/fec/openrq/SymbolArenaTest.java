@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import static net.fec.openrq.ScheduleCompilerTest.assertSameSymbols;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.fec.openrq.util.linearalgebra.LinearAlgebra;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+
+/**
+ * Tests that the symbol schedules and operations have the same effect over a symbol arena as over arrays of symbols.
+ */
+@RunWith(Parameterized.class)
+public class SymbolArenaTest {
+
+    private static final int SYMBOL_SIZE = 4;
+
+
+    @Parameters(name = "Kprime = {0}, overhead = {1}")
+    public static Collection<Object[]> getParameters() {
+
+        return ScheduleCompilerTest.getParameters();
+    }
+
+
+    @Parameter(0)
+    public int Kprime;
+
+    @Parameter(1)
+    public int overhead;
+
+
+    @Test
+    public void testArenaSchedule() throws SingularMatrixException {
+
+        final SymbolSchedule schedule = newSchedule();
+        final CompiledSchedule compiled = schedule.compile();
+
+        final byte[][] expected = schedule.apply(randomD());
+        assertSameSymbols(expected, schedule.apply(SymbolArena.copyOf(randomD(), SYMBOL_SIZE)).toArrays());
+        assertSameSymbols(expected, compiled.apply(SymbolArena.copyOf(randomD(), SYMBOL_SIZE)).toArrays());
+    }
+
+    @Test
+    public void testTiledSchedule() throws SingularMatrixException {
+
+        // large enough symbols that the largest arenas are executed in column tiles
+        final int symbolSize = 2000;
+        final SymbolSchedule schedule = newSchedule();
+        final CompiledSchedule compiled = schedule.compile();
+
+        final byte[][] expected = schedule.apply(randomD(symbolSize));
+        final SymbolArena D = SymbolArena.copyOf(randomD(symbolSize), symbolSize);
+        if (Kprime > 1000) {
+            assertTrue(D.tileLength() < symbolSize);
+        }
+
+        assertSameSymbols(expected, compiled.apply(D).toArrays());
+        assertSameSymbols(expected, schedule.apply(SymbolArena.copyOf(randomD(symbolSize), symbolSize)).toArrays());
+    }
+
+    @Test
+    public void testSlicedSchedule() throws SingularMatrixException {
+
+        // the same symbols, processed in a single slice and in parallel column slices
+        final int symbolSize = 4100;
+        final CompiledSchedule compiled = newSchedule().compile();
+        final byte[][] symbols = randomD(symbolSize);
+
+        final SymbolArena expected = SymbolArena.copyOf(symbols, symbolSize);
+        final SymbolArena sliced = SymbolArena.copyOf(symbols, symbolSize);
+        expected.applyByColumns(compiled, 1);
+        sliced.applyByColumns(compiled, 4);
+
+        assertArrayEquals(expected.array(), sliced.array());
+    }
+
+    @Test
+    public void testArenaOperations() {
+
+        // a row reduction followed by a multiplication by a dense matrix, over a permutation of the last rows of D
+        final int size = 5;
+        final int rows = LinearSystem.generateConstraintMatrix(Kprime, overhead).rows();
+        final int[] d = new int[size];
+        for (int i = 0; i < size; i++) {
+            d[i] = rows - 1 - ((3 * i) % size);
+        }
+
+        final Random rand = new Random(Kprime);
+        final ByteMatrix X = LinearAlgebra.BASIC2D_FACTORY.createMatrix(size, size);
+        final ByteMatrix R = LinearAlgebra.BASIC2D_FACTORY.createMatrix(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                X.set(row, col, (byte)rand.nextInt(256));
+                R.set(row, col, (byte)rand.nextInt(256));
+            }
+        }
+
+        final int[] c = new int[rows];
+        final int[] reorder = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            c[i] = i;
+            reorder[i] = rows - 1 - i;
+        }
+
+        final List<ISDOperation> ops = new ArrayList<>();
+        ops.add(ISDOps.newPhase1Operation((byte)7, 0, 1));
+        ops.add(ISDOps.newPhase5_1Operation((byte)3, 2));
+        ops.add(ISDOps.newPhase2Operation(R, 0, size, 0, size, d));
+        ops.add(ISDOps.newPhase3Operation(X, size, size, d));
+        ops.add(ISDOps.newReorderOperation(rows, c, reorder));
+
+        byte[][] expected = randomD();
+        SymbolArena actual = SymbolArena.copyOf(randomD(), SYMBOL_SIZE);
+        for (ISDOperation op : ops) {
+            expected = op.apply(expected);
+            actual = op.apply(actual);
+        }
+
+        assertSameSymbols(expected, actual.toArrays());
+    }
+
+    private SymbolSchedule newSchedule() throws SingularMatrixException {
+
+        return ScheduleCompilerTest.newSchedule(Kprime, overhead);
+    }
+
+    @Test
+    public void testArenaPadding() {
+
+        final int rows = LinearSystem.generateConstraintMatrix(Kprime, overhead).rows();
+
+        // small symbols are not padded, large symbols are padded to the alignment
+        assertEquals(rows * SYMBOL_SIZE, SymbolArena.allocate(rows, SYMBOL_SIZE).array().length);
+        assertEquals(rows * 65, SymbolArena.allocate(rows, 65).array().length);
+        assertEquals(rows * 1024, SymbolArena.allocate(rows, 1000).array().length);
+        assertEquals(rows * SymbolArena.ALIGNMENT, SymbolArena.allocate(rows, SymbolArena.ALIGNMENT).array().length);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testArenaOverflow() {
+
+        final int rows = LinearSystem.generateConstraintMatrix(Kprime, overhead).rows();
+        SymbolArena.allocate(rows, Integer.MAX_VALUE / rows + 1);
+    }
+
+    @Test
+    public void testArenaAppend() {
+
+        final byte[][] symbols = randomD();
+        SymbolArena arena = SymbolArena.copyOf(symbols, SYMBOL_SIZE);
+
+        // the array grows once, and then has room for as many symbols again
+        arena = arena.append(1);
+        final byte[] grown = arena.array();
+        for (int n = 1; n < symbols.length; n++) {
+            arena = arena.append(1);
+        }
+        assertSame(grown, arena.array());
+
+        assertEquals(2 * symbols.length, arena.numRows());
+        final byte[][] appended = arena.toArrays();
+        for (int row = 0; row < appended.length; row++) {
+            if (row < symbols.length) {
+                assertArrayEquals(symbols[row], appended[row]);
+            }
+            else {
+                assertArrayEquals(new byte[SYMBOL_SIZE], appended[row]);
+            }
+        }
+    }
+
+    private byte[][] randomD() {
+
+        return randomD(SYMBOL_SIZE);
+    }
+
+    private byte[][] randomD(int symbolSize) {
+
+        return ScheduleCompilerTest.randomD(Kprime, overhead, symbolSize);
+    }
+}
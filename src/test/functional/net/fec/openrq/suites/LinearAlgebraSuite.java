@@ -16,9 +16,13 @@
 package net.fec.openrq.suites;
 
 
+import net.fec.openrq.ScheduleCompilerTest;
+import net.fec.openrq.SymbolArenaTest;
 import net.fec.openrq.util.linearalgebra.factory.LinearAlgebraFactorySuite;
 import net.fec.openrq.util.linearalgebra.matrix.LinearAlgebraMatrixSuite;
 import net.fec.openrq.util.linearalgebra.vector.LinearAlgebraVectorSuite;
+import net.fec.openrq.util.math.OctetKernelsTest;
+import net.fec.openrq.util.math.OctetOpsTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -29,7 +33,11 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
                LinearAlgebraFactorySuite.class,
                LinearAlgebraMatrixSuite.class,
-               LinearAlgebraVectorSuite.class
+               LinearAlgebraVectorSuite.class,
+               OctetKernelsTest.class,
+               OctetOpsTest.class,
+               ScheduleCompilerTest.class,
+               SymbolArenaTest.class
 })
 public class LinearAlgebraSuite {
 
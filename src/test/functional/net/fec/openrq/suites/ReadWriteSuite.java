@@ -16,6 +16,7 @@
 package net.fec.openrq.suites;
 
 
+import net.fec.openrq.ISDStoreTest;
 import net.fec.openrq.SBDInfoReadWriteTest;
 import net.fec.openrq.parameters.FECParametersReadWriteTest;
 
@@ -27,7 +28,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
                FECParametersReadWriteTest.class,
-               SBDInfoReadWriteTest.class
+               SBDInfoReadWriteTest.class,
+               ISDStoreTest.class
 })
 public class ReadWriteSuite {
 
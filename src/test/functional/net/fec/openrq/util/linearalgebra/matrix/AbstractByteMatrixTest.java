@@ -2193,6 +2193,24 @@ public abstract class AbstractByteMatrixTest {
         assertEquals(d, a.select(rowInd, colInd));
     }
 
+    @Test
+    public void testSelect7() {
+
+        // Permutation of rows and columns.
+        ByteMatrix a = matrixA();
+        int[] rowInd = new int[] {4, 0, 2, 1, 3};
+        int[] colInd = new int[] {5, 2, 0, 4, 1, 3};
+        ByteMatrix d = factory().createMatrix(new byte[][] {
+                                                            // 5 2 0 4 1 3
+                                                            {6, 8, 75, 94, 7, 2},// 4
+                                                            {8, 67, 8, 3, 5, 9},// 0
+                                                            {6, 8, 7, 7, 5, 0},// 2
+                                                            {6, 21, 3, 4, 86, 9},// 1
+                                                            {4, 1, 3, 3, 98, 2} // 3
+        });
+        assertEquals(d, a.select(rowInd, colInd));
+    }
+
     @Test
     public void testFoldSum() {
 
@@ -36,8 +36,13 @@
 package net.fec.openrq.util.linearalgebra.matrix.sparse;
 
 
+import static org.junit.Assert.assertEquals;
 import net.fec.openrq.util.linearalgebra.factory.CRSFactory;
 import net.fec.openrq.util.linearalgebra.factory.Factory;
+import net.fec.openrq.util.linearalgebra.io.ByteVectorIterator;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+
+import org.junit.Test;
 
 
 public class CRSByteMatrixTest extends SparseByteMatrixTest {
@@ -47,4 +52,107 @@ public class CRSByteMatrixTest extends SparseByteMatrixTest {
 
         return new CRSFactory();
     }
+
+    @Test
+    public void testCopyOnWrite_1() {
+
+        CRSByteMatrix a = (CRSByteMatrix)factory().createMatrix(new byte[][] {
+                                                                              {1, 0, 3},
+                                                                              {0, 5, 0},
+                                                                              {7, 0, 9}
+        });
+        ByteMatrix original = a.copy();
+
+        ByteMatrix b = a.copyOnWrite(4);
+        ByteMatrix c = factory().createMatrix(new byte[][] {
+                                                            {1, 0, 3},
+                                                            {0, 5, 0},
+                                                            {7, 0, 9},
+                                                            {0, 0, 0}
+        });
+        assertEquals(c, b);
+
+        b.set(0, 1, (byte)2);
+        b.clearRow(1);
+        b.addRowsInPlace(0, 2);
+        b.set(3, 2, (byte)4);
+
+        ByteMatrix d = factory().createMatrix(new byte[][] {
+                                                            {1, 2, 3},
+                                                            {0, 0, 0},
+                                                            {6, 2, 10},
+                                                            {0, 0, 4}
+        });
+        assertEquals(d, b);
+        assertEquals(original, a);
+    }
+
+    @Test
+    public void testCopyOnWrite_2() {
+
+        CRSByteMatrix a = (CRSByteMatrix)factory().createMatrix(new byte[][] {
+                                                                              {1, 0, 3},
+                                                                              {0, 5, 0},
+                                                                              {7, 0, 9}
+        });
+        ByteMatrix original = a.copy();
+
+        ByteMatrix b = a.copyOnWrite(2);
+        b.swapRows(0, 1);
+        b.swapColumns(0, 2);
+        b.divideRowInPlace(0, (byte)5);
+        ByteVectorIterator it = b.nonZeroRowIterator(1);
+        while (it.hasNext()) {
+            it.next();
+            it.set((byte)1);
+        }
+
+        ByteMatrix c = factory().createMatrix(new byte[][] {
+                                                            {0, 1, 0},
+                                                            {1, 0, 1}
+        });
+        assertEquals(c, b);
+        assertEquals(original, a);
+    }
+
+    @Test
+    public void testCopyOnWriteSharedRows() {
+
+        CRSByteMatrix a = (CRSByteMatrix)factory().createMatrix(new byte[][] {
+                                                                              {1, 0, 3},
+                                                                              {0, 5, 0},
+                                                                              {7, 0, 9}
+        });
+        assertEquals(0, a.sharedRows());
+
+        CRSByteMatrix b = a.copyOnWrite(4);
+        assertEquals(3, b.sharedRows());
+
+        // reading does not copy any row
+        for (int i = 0; i < b.rows(); i++) {
+            ByteVectorIterator it = b.readOnlyNonZeroRowIterator(i);
+            while (it.hasNext()) {
+                it.next();
+            }
+            it = b.readOnlyNonZeroRowIterator(i, 1, 3);
+            while (it.hasNext()) {
+                it.next();
+            }
+        }
+        b.transpose();
+        b.multiply(a.transpose());
+        assertEquals(3, b.sharedRows());
+
+        // each modified row is copied once
+        b.set(0, 1, (byte)2);
+        b.addRowsInPlace(0, 2);
+        assertEquals(1, b.sharedRows());
+
+        ByteVectorIterator it = b.nonZeroRowIterator(1);
+        while (it.hasNext()) {
+            it.next();
+            it.set((byte)1);
+        }
+        assertEquals(0, b.sharedRows());
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq.util.math;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.fec.openrq.util.math.OctetKernels.AdditionKernel;
+import net.fec.openrq.util.math.OctetKernels.MultiplyAddKernel;
+import net.fec.openrq.util.math.OctetKernels.ProductKernel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+
+/**
+ * Tests every implementation of the kernels in class OctetKernels against the octet operations.
+ */
+@RunWith(Parameterized.class)
+public class OctetKernelsTest {
+
+    private static final int VEC_POS_1 = 3;
+    private static final int VEC_POS_2 = 5;
+    private static final int RES_POS = 1;
+
+
+    @Parameters(name = "{0}, length = {1}")
+    public static Collection<Object[]> getParameters() {
+
+        final List<Object[]> params = new ArrayList<>();
+        for (MultiplyAddKernel kernel : MultiplyAddKernel.values()) {
+            for (int length : new int[] {0, 7, 8, 61}) {
+                params.add(new Object[] {kernel, length});
+            }
+        }
+        return params;
+    }
+
+
+    @Parameter(0)
+    public MultiplyAddKernel kernel;
+
+    @Parameter(1)
+    public int length;
+
+
+    @Test
+    public void testChosenKernels() {
+
+        assertNotNull(OctetKernels.ARRAY_MULTIPLY_ADD);
+        assertNotNull(OctetKernels.BUFFER_MULTIPLY_ADD);
+        assertNotNull(OctetKernels.ARRAY_ADDITION);
+        assertNotNull(OctetKernels.ARRAY_PRODUCT);
+    }
+
+    @Test
+    public void testArrayMultiplyAdd() {
+
+        assumeTrue(kernel.isAvailable());
+        final Random rand = new Random(length);
+        final byte[] vector1 = randomBytes(rand, VEC_POS_1 + length);
+        final byte[] vector2 = randomBytes(rand, VEC_POS_2 + length);
+
+        for (int m = 2; m < 256; m++) {
+            final byte multiplier = (byte)m;
+            final byte[] result = new byte[RES_POS + length + 1];
+            kernel.multiplyAdd(multiplier, vector1, VEC_POS_1, vector2, VEC_POS_2, result, RES_POS, length);
+
+            assertArrayEquals(expected(multiplier, vector1, vector2, result.length), result);
+        }
+    }
+
+    @Test
+    public void testArrayMultiplyAddInPlace() {
+
+        assumeTrue(kernel.isAvailable());
+        final Random rand = new Random(length);
+        final byte[] vector1 = randomBytes(rand, length);
+        final byte[] vector2 = randomBytes(rand, length);
+
+        final byte multiplier = (byte)0x8E;
+        final byte[] expected = new byte[length];
+        for (int i = 0; i < length; i++) {
+            expected[i] = OctetOps.aPlusB(OctetOps.aTimesB(multiplier, vector1[i]), vector2[i]);
+        }
+
+        kernel.multiplyAdd(multiplier, vector1, 0, vector2, 0, vector2, 0, length);
+        assertArrayEquals(expected, vector2);
+    }
+
+    @Test
+    public void testBufferMultiplyAdd() {
+
+        assumeTrue(kernel.isAvailable());
+        for (ByteOrder order1 : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            for (ByteOrder order2 : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                final Random rand = new Random(length);
+                final byte[] vector1 = randomBytes(rand, VEC_POS_1 + length);
+                final byte[] vector2 = randomBytes(rand, VEC_POS_2 + length);
+
+                final ByteBuffer buffer1 = directCopy(vector1).order(order1);
+                final ByteBuffer buffer2 = directCopy(vector2).order(order2);
+
+                for (int m = 2; m < 256; m++) {
+                    final byte multiplier = (byte)m;
+                    final ByteBuffer result = ByteBuffer.allocateDirect(RES_POS + length + 1).order(order1);
+                    kernel.multiplyAdd(multiplier, buffer1, VEC_POS_1, buffer2, VEC_POS_2, result, RES_POS, length);
+
+                    final byte[] actual = new byte[result.capacity()];
+                    result.get(actual);
+                    assertArrayEquals(expected(multiplier, vector1, vector2, actual.length), actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testArrayAddition() {
+
+        final Random rand = new Random(length);
+        final byte[] vector1 = randomBytes(rand, VEC_POS_1 + length);
+        final byte[] vector2 = randomBytes(rand, VEC_POS_2 + length);
+
+        for (AdditionKernel addition : AdditionKernel.values()) {
+            if (!addition.isAvailable()) {
+                continue;
+            }
+
+            final byte[] result = new byte[RES_POS + length + 1];
+            addition.add(vector1, VEC_POS_1, vector2, VEC_POS_2, result, RES_POS, length);
+
+            assertArrayEquals(addition.name(), expected((byte)1, vector1, vector2, result.length), result);
+        }
+    }
+
+    @Test
+    public void testArrayProduct() {
+
+        final Random rand = new Random(length);
+        final byte[] vector = randomBytes(rand, VEC_POS_1 + length);
+
+        for (ProductKernel product : ProductKernel.values()) {
+            if (!product.isAvailable()) {
+                continue;
+            }
+
+            for (int m = 2; m < 256; m++) {
+                final byte multiplier = (byte)m;
+                final byte[] result = new byte[RES_POS + length + 1];
+                product.multiply(multiplier, vector, VEC_POS_1, result, RES_POS, length);
+
+                final byte[] expected = new byte[result.length];
+                for (int i = 0; i < length; i++) {
+                    expected[RES_POS + i] = OctetOps.aTimesB(multiplier, vector[VEC_POS_1 + i]);
+                }
+                assertArrayEquals(product.name(), expected, result);
+            }
+        }
+    }
+
+    private byte[] expected(byte multiplier, byte[] vector1, byte[] vector2, int resultLength) {
+
+        final byte[] expected = new byte[resultLength];
+        for (int i = 0; i < length; i++) {
+            final byte prod = OctetOps.aTimesB(multiplier, vector1[VEC_POS_1 + i]);
+            expected[RES_POS + i] = OctetOps.aPlusB(prod, vector2[VEC_POS_2 + i]);
+        }
+        return expected;
+    }
+
+    private static byte[] randomBytes(Random rand, int length) {
+
+        final byte[] bytes = new byte[length];
+        rand.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer directCopy(byte[] bytes) {
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(Arrays.copyOf(bytes, bytes.length)).clear();
+        return buffer;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq.util.math;
+
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the octet operations over many vectors against the same operations over a pair of vectors at a time.
+ */
+public class OctetOpsTest {
+
+    private static final int NUM_ROWS = 12;
+    private static final int[] LENGTHS = {0, 13, 4096, 10007};
+
+
+    @Test
+    public void testBroadcastAddition() {
+
+        for (int length : LENGTHS) {
+            final Random rand = new Random(length);
+            final byte[][] expected = randomRows(rand, length);
+            final byte[][] actual = copyOf(expected);
+
+            // the source row is also one of the destinations
+            final int[] rows = {1, 4, 4, 7, 0, 11, 3};
+            final byte[] multipliers = randomBytes(rand, rows.length);
+            multipliers[2] = 0;
+            multipliers[3] = 1;
+
+            for (int n = 1; n < rows.length; n++) {
+                OctetOps.vectorVectorAddition(multipliers[n], expected[3], expected[rows[n]], expected[rows[n]]);
+            }
+            OctetOps.vectorBroadcastAddition(multipliers, actual[3], actual, rows, 1, rows.length, length);
+
+            for (int row = 0; row < NUM_ROWS; row++) {
+                assertArrayEquals("length = " + length + ", row = " + row, expected[row], actual[row]);
+            }
+        }
+    }
+
+    @Test
+    public void testGatherAddition() {
+
+        for (int length : LENGTHS) {
+            final Random rand = new Random(length);
+            final byte[][] rows = randomRows(rand, length);
+            final byte[] expected = randomBytes(rand, length);
+            final byte[] actual = expected.clone();
+            final byte[] actualOnes = expected.clone();
+
+            final int[] indexes = {5, 2, 2, 9, 0, 10};
+            final byte[] multipliers = randomBytes(rand, indexes.length);
+            multipliers[1] = 0;
+            multipliers[3] = 1;
+
+            final byte[] expectedOnes = expected.clone();
+            for (int n = 1; n < indexes.length; n++) {
+                OctetOps.vectorVectorAddition(multipliers[n], rows[indexes[n]], expected, expected);
+                OctetOps.vectorVectorAddition(rows[indexes[n]], expectedOnes, expectedOnes);
+            }
+            OctetOps.vectorGatherAddition(multipliers, rows, indexes, 1, indexes.length, actual, length);
+            OctetOps.vectorGatherAddition(rows, indexes, 1, indexes.length, actualOnes, length);
+
+            assertArrayEquals("length = " + length, expected, actual);
+            assertArrayEquals("length = " + length, expectedOnes, actualOnes);
+        }
+    }
+
+    private static byte[][] randomRows(Random rand, int length) {
+
+        final byte[][] rows = new byte[NUM_ROWS][];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            rows[row] = randomBytes(rand, length);
+        }
+        return rows;
+    }
+
+    private static byte[][] copyOf(byte[][] rows) {
+
+        final byte[][] copy = new byte[rows.length][];
+        for (int row = 0; row < rows.length; row++) {
+            copy[row] = rows[row].clone();
+        }
+        return copy;
+    }
+
+    private static byte[] randomBytes(Random rand, int length) {
+
+        final byte[] bytes = new byte[length];
+        rand.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fec.openrq;
+
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import net.fec.openrq.parameters.ParameterChecker;
+import net.fec.openrq.util.linearalgebra.matrix.ByteMatrix;
+import net.fec.openrq.util.rq.SystematicIndices;
+
+
+/**
+ * Offline generator of an {@link ISDStore} file, with the compiled PI decoding schedules of the constraint matrices
+ * of every value of K' in {@link SystematicIndices}, up to a maximum.
+ * <p>
+ * Usage: {@code ISDStoreGenerator <output file> [<maximum K'>]}
+ */
+final class ISDStoreGenerator {
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ISDStoreGenerator <output file> [<maximum K'>]");
+            System.exit(1);
+        }
+
+        final Path file = Paths.get(args[0]);
+        final int maxK = ParameterChecker.maxNumSourceSymbolsPerBlock();
+        final int maxKPrime = (args.length > 1) ? Integer.parseInt(args[1]) : maxK;
+        if (maxKPrime < SystematicIndices.K(0) || maxKPrime > maxK) {
+            System.err.printf("Maximum K' must be within [%d, %d]%n", SystematicIndices.K(0), maxK);
+            System.exit(1);
+        }
+
+        final int maxKi = SystematicIndices.getKIndex(SystematicIndices.floor(maxKPrime));
+        try (ISDStore.Writer writer = new ISDStore.Writer(file)) {
+            for (int Ki = 0; Ki <= maxKi; Ki++) {
+                final int Kprime = SystematicIndices.K(Ki);
+
+                final long start = System.nanoTime();
+                final ByteMatrix A = LinearSystem.generateConstraintMatrix(Kprime);
+                final SymbolSchedule schedule;
+                try {
+                    schedule = LinearSystem.PInactivationSchedule(A, Kprime);
+                }
+                catch (SingularMatrixException e) {
+                    // the encoder falls back to the standard decoding process for values of K' not in the store
+                    System.err.printf("K' = %5d: skipped, singular constraint matrix%n", Kprime);
+                    continue;
+                }
+                final CompiledSchedule compiled = schedule.compile();
+                writer.add(Kprime, compiled);
+
+                final long millis = (System.nanoTime() - start) / 1000000L;
+                System.out.printf("K' = %5d: %8d operations, %8d after compilation in %7d groups (%d ms)%n",
+                    Kprime, schedule.size(), compiled.size(), compiled.numGroups(), millis);
+            }
+        }
+    }
+
+    private ISDStoreGenerator() {
+
+        // not instantiable
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fec.openrq.util.math;
+
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Vector kernels implemented with the Vector API (module {@code jdk.incubator.vector}) of newer JVMs.
+ * <p>
+ * This is the versioned class of the multi-release jar. The kernels are available if the module
+ * {@code jdk.incubator.vector} was added at runtime ({@code --add-modules jdk.incubator.vector}), and if they produce
+ * the same results as the scalar kernels in a self-test; the code that uses the Vector API is kept in class
+ * {@link VectorOctetOps}, which is only loaded if the module is present.
+ */
+final class VectorKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final boolean AVAILABLE;
+    static {
+        boolean available = false;
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                available = VectorOctetOps.selfTest();
+            }
+            catch (LinkageError | RuntimeException e) {
+                // an incompatible version of the Vector API, keep the scalar kernels
+                available = false;
+            }
+        }
+        AVAILABLE = available;
+    }
+
+
+    /**
+     * Returns {@code true} if the kernels in this class can be used in this JVM.
+     */
+    static boolean isAvailable() {
+
+        return AVAILABLE;
+    }
+
+    /**
+     * Returns {@code true} if the kernels in this class use the Vector API over direct buffers, in this JVM (otherwise
+     * they fall back to scalar code).
+     */
+    static boolean supportsBuffers() {
+
+        return AVAILABLE && VectorOctetOps.supportsBuffers();
+    }
+
+    /**
+     * {@code result[resPos + i] = vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}.
+     */
+    static void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+        VectorOctetOps.add(vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector[vecPos + i]}, for each {@code i} in {@code [0, length)}.
+     */
+    static void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+        VectorOctetOps.multiply(multiplier, vector, vecPos, result, resPos, length);
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}.
+     */
+    static void multiplyAdd(
+        byte multiplier,
+        byte[] vector1,
+        int vecPos1,
+        byte[] vector2,
+        int vecPos2,
+        byte[] result,
+        int resPos,
+        int length)
+    {
+
+        VectorOctetOps.multiplyAdd(multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+    }
+
+    /**
+     * {@code result[resPos + i] = multiplier * vector1[vecPos1 + i] + vector2[vecPos2 + i]}, for each {@code i} in
+     * {@code [0, length)}, using absolute positions in the buffers.
+     */
+    static void multiplyAdd(
+        byte multiplier,
+        ByteBuffer vector1,
+        int vecPos1,
+        ByteBuffer vector2,
+        int vecPos2,
+        ByteBuffer result,
+        int resPos,
+        int length)
+    {
+
+        VectorOctetOps.multiplyAdd(multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+    }
+
+    private VectorKernels() {
+
+        // not instantiable
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 OpenRQ Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fec.openrq.util.math;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * The implementation of {@link VectorKernels}, with the Vector API.
+ * <p>
+ * An octet is multiplied with two lookups, done as shuffles of a vector, in the products of the multiplier by each
+ * value of the low and high nibble of an octet. The products are repeated along the vector, so that each lookup
+ * index (a nibble) is valid for any vector length of at least 16 octets.
+ */
+final class VectorOctetOps {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int NIBBLE_VALUES = 16;
+
+    // indexed by multiplier, the products of the multiplier by each value of the low and high nibble of an octet,
+    // repeated along the length of a vector
+    private static final byte[][] LOW_NIBBLE_PRODUCTS;
+    private static final byte[][] HIGH_NIBBLE_PRODUCTS;
+
+    static {
+        final int size = 1 << Byte.SIZE;
+        final int vecLength = SPECIES.length();
+
+        LOW_NIBBLE_PRODUCTS = new byte[size][vecLength];
+        HIGH_NIBBLE_PRODUCTS = new byte[size][vecLength];
+
+        for (int m = 0; m < size; m++) {
+            for (int i = 0; i < vecLength; i++) {
+                final int nibble = i % NIBBLE_VALUES;
+                LOW_NIBBLE_PRODUCTS[m][i] = OctetOps.aTimesB((byte)m, (byte)nibble);
+                HIGH_NIBBLE_PRODUCTS[m][i] = OctetOps.aTimesB((byte)m, (byte)(nibble << 4));
+            }
+        }
+    }
+
+    // the Vector API over buffers was replaced by the one over memory segments, in newer JVMs
+    private static final boolean BUFFERS_SUPPORTED = hasBufferMethods();
+
+
+    /**
+     * Returns {@code true} if the kernels over direct buffers use the Vector API.
+     */
+    static boolean supportsBuffers() {
+
+        return BUFFERS_SUPPORTED;
+    }
+
+    /**
+     * Returns {@code true} if every kernel produces the same results as the scalar kernels.
+     */
+    static boolean selfTest() {
+
+        if (SPECIES.length() < NIBBLE_VALUES) {
+            return false; // the nibbles would not be valid lookup indices
+        }
+
+        final int length = 3 * SPECIES.length() + 5;
+        final Random rand = new Random(0);
+        final byte[] vector1 = new byte[length];
+        final byte[] vector2 = new byte[length];
+        rand.nextBytes(vector1);
+        rand.nextBytes(vector2);
+
+        final byte[] expected = new byte[length];
+        final byte[] actual = new byte[length];
+        // the nibble products are computed by the scalar operations, what is tested is the vector code, which does
+        // not depend on the multiplier
+        for (int m : new int[] {0, 1, 2, 0x8E, 0xFF}) {
+            final byte multiplier = (byte)m;
+
+            OctetKernels.ProductKernel.PRODUCT_TABLE.multiply(multiplier, vector1, 0, expected, 0, length);
+            multiply(multiplier, vector1, 0, actual, 0, length);
+            if (!Arrays.equals(expected, actual)) {
+                return false;
+            }
+
+            OctetKernels.MultiplyAddKernel.PRODUCT_TABLE.multiplyAdd(
+                multiplier, vector1, 0, vector2, 0, expected, 0, length);
+            multiplyAdd(multiplier, vector1, 0, vector2, 0, actual, 0, length);
+            if (!Arrays.equals(expected, actual)) {
+                return false;
+            }
+        }
+
+        OctetKernels.AdditionKernel.BYTES.add(vector1, 0, vector2, 0, expected, 0, length);
+        add(vector1, 0, vector2, 0, actual, 0, length);
+        if (!Arrays.equals(expected, actual)) {
+            return false;
+        }
+
+        if (!BUFFERS_SUPPORTED) {
+            return true;
+        }
+
+        final ByteBuffer buffer1 = ByteBuffer.allocateDirect(length);
+        final ByteBuffer buffer2 = ByteBuffer.allocateDirect(length);
+        final ByteBuffer result = ByteBuffer.allocateDirect(length);
+        buffer1.put(0, vector1);
+        buffer2.put(0, vector2);
+        OctetKernels.MultiplyAddKernel.PRODUCT_TABLE.multiplyAdd((byte)0x8E, vector1, 0, vector2, 0, expected, 0, length);
+        multiplyAdd((byte)0x8E, buffer1, 0, buffer2, 0, result, 0, length);
+        result.get(0, actual);
+
+        return Arrays.equals(expected, actual);
+    }
+
+    static void add(byte[] vector1, int vecPos1, byte[] vector2, int vecPos2, byte[] result, int resPos, int length) {
+
+        final int vecLength = SPECIES.length();
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += vecLength) {
+            final ByteVector v1 = ByteVector.fromArray(SPECIES, vector1, vecPos1 + i);
+            final ByteVector v2 = ByteVector.fromArray(SPECIES, vector2, vecPos2 + i);
+            v1.lanewise(VectorOperators.XOR, v2).intoArray(result, resPos + i);
+        }
+
+        for (; i < length; i++) {
+            result[resPos + i] = (byte)(vector1[vecPos1 + i] ^ vector2[vecPos2 + i]);
+        }
+    }
+
+    static void multiply(byte multiplier, byte[] vector, int vecPos, byte[] result, int resPos, int length) {
+
+        final ByteVector lowProducts = ByteVector.fromArray(SPECIES, LOW_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final ByteVector highProducts = ByteVector.fromArray(SPECIES, HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final int vecLength = SPECIES.length();
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += vecLength) {
+            final ByteVector v = ByteVector.fromArray(SPECIES, vector, vecPos + i);
+            product(v, lowProducts, highProducts).intoArray(result, resPos + i);
+        }
+
+        final byte[] products = OctetOps.productsOf(multiplier);
+        for (; i < length; i++) {
+            result[resPos + i] = products[vector[vecPos + i] & 0xFF];
+        }
+    }
+
+    static void multiplyAdd(
+        byte multiplier,
+        byte[] vector1,
+        int vecPos1,
+        byte[] vector2,
+        int vecPos2,
+        byte[] result,
+        int resPos,
+        int length)
+    {
+
+        final ByteVector lowProducts = ByteVector.fromArray(SPECIES, LOW_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final ByteVector highProducts = ByteVector.fromArray(SPECIES, HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final int vecLength = SPECIES.length();
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += vecLength) {
+            final ByteVector v1 = ByteVector.fromArray(SPECIES, vector1, vecPos1 + i);
+            final ByteVector v2 = ByteVector.fromArray(SPECIES, vector2, vecPos2 + i);
+            product(v1, lowProducts, highProducts).lanewise(VectorOperators.XOR, v2).intoArray(result, resPos + i);
+        }
+
+        final byte[] products = OctetOps.productsOf(multiplier);
+        for (; i < length; i++) {
+            result[resPos + i] = (byte)(products[vector1[vecPos1 + i] & 0xFF] ^ vector2[vecPos2 + i]);
+        }
+    }
+
+    static void multiplyAdd(
+        byte multiplier,
+        ByteBuffer vector1,
+        int vecPos1,
+        ByteBuffer vector2,
+        int vecPos2,
+        ByteBuffer result,
+        int resPos,
+        int length)
+    {
+
+        if (vector1.hasArray() && vector2.hasArray() && result.hasArray() && !result.isReadOnly()) {
+            multiplyAdd(multiplier,
+                vector1.array(), vector1.arrayOffset() + vecPos1,
+                vector2.array(), vector2.arrayOffset() + vecPos2,
+                result.array(), result.arrayOffset() + resPos,
+                length);
+        }
+        else if (BUFFERS_SUPPORTED) {
+            multiplyAddBuffers(multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+        }
+        else {
+            OctetKernels.MultiplyAddKernel.PRODUCT_TABLE_WORDS.multiplyAdd(
+                multiplier, vector1, vecPos1, vector2, vecPos2, result, resPos, length);
+        }
+    }
+
+    private static void multiplyAddBuffers(
+        byte multiplier,
+        ByteBuffer vector1,
+        int vecPos1,
+        ByteBuffer vector2,
+        int vecPos2,
+        ByteBuffer result,
+        int resPos,
+        int length)
+    {
+
+        final ByteOrder order = ByteOrder.nativeOrder(); // irrelevant for octets
+        final ByteVector lowProducts = ByteVector.fromArray(SPECIES, LOW_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final ByteVector highProducts = ByteVector.fromArray(SPECIES, HIGH_NIBBLE_PRODUCTS[multiplier & 0xFF], 0);
+        final int vecLength = SPECIES.length();
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += vecLength) {
+            final ByteVector v1 = ByteVector.fromByteBuffer(SPECIES, vector1, vecPos1 + i, order);
+            final ByteVector v2 = ByteVector.fromByteBuffer(SPECIES, vector2, vecPos2 + i, order);
+            product(v1, lowProducts, highProducts).lanewise(VectorOperators.XOR, v2)
+                .intoByteBuffer(result, resPos + i, order);
+        }
+
+        final byte[] products = OctetOps.productsOf(multiplier);
+        for (; i < length; i++) {
+            result.put(resPos + i, (byte)(products[vector1.get(vecPos1 + i) & 0xFF] ^ vector2.get(vecPos2 + i)));
+        }
+    }
+
+    private static boolean hasBufferMethods() {
+
+        try {
+            ByteVector.class.getMethod("fromByteBuffer", VectorSpecies.class, ByteBuffer.class, int.class,
+                ByteOrder.class);
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // the products of the octets of v by the multiplier of the given nibble products
+    private static ByteVector product(ByteVector v, ByteVector lowProducts, ByteVector highProducts) {
+
+        final ByteVector lowNibbles = v.and((byte)0x0F);
+        final ByteVector highNibbles = v.lanewise(VectorOperators.LSHR, 4).and((byte)0x0F);
+        return lowNibbles.selectFrom(lowProducts).lanewise(VectorOperators.XOR, highNibbles.selectFrom(highProducts));
+    }
+
+    private VectorOctetOps() {
+
+        // not instantiable
+    }
+}